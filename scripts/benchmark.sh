@@ -0,0 +1,31 @@
+#!/bin/bash
+
+# =====================================================================
+# Microbenchmarks JMH do SPI (classes *Benchmark em src/test/java).
+# Não fazem parte do JAR do provider.
+#
+# Uso: bash scripts/benchmark.sh [opções do JMH]
+#   bash scripts/benchmark.sh GovBrLevelResponseDecoderBenchmark -prof gc
+#   bash scripts/benchmark.sh -l    (lista os benchmarks)
+# =====================================================================
+
+set -e  # Para no primeiro erro
+
+# Cores para output
+RED='\033[0;31m'
+YELLOW='\033[1;33m'
+NC='\033[0m' # No Color
+
+CLASSPATH_FILE="target/benchmark.classpath"
+
+if [ ! -f "pom.xml" ]; then
+    echo -e "${RED}❌ Erro: pom.xml não encontrado. Execute este script na raiz do projeto.${NC}"
+    exit 1
+fi
+
+echo -e "${YELLOW}📦 Compilando benchmarks...${NC}"
+mvn -q test-compile dependency:build-classpath \
+    -Dmdep.outputFile="$CLASSPATH_FILE" -Dmdep.includeScope=test
+
+# Classpath explícito: os forks do JMH herdam java.class.path
+java -cp "target/test-classes:target/classes:$(cat "$CLASSPATH_FILE")" org.openjdk.jmh.Main "$@"
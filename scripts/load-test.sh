@@ -0,0 +1,178 @@
+#!/bin/bash
+
+# =====================================================================
+# Teste de Carga - Logins completos pelo broker Gov.br
+# Keycloak local em modo dev (H2) + SPI + tema, com Gov.br e API de
+# nível simulados. Não acessa a rede: requer uma distribuição do
+# Keycloak 24 já baixada em KEYCLOAK_HOME.
+#
+# Uso: KEYCLOAK_HOME=/opt/keycloak-24.0.0 bash scripts/load-test.sh [logins] [concorrência]
+# =====================================================================
+
+set -e  # Para no primeiro erro
+
+# Cores para output
+RED='\033[0;31m'
+GREEN='\033[0;32m'
+YELLOW='\033[1;33m'
+BLUE='\033[0;34m'
+NC='\033[0m' # No Color
+
+# Configurações
+LOGINS=${1:-2000}
+CONCORRENCIA=${2:-8}
+KEYCLOAK_PORT=${KEYCLOAK_PORT:-8180}
+IDP_PORT=${IDP_PORT:-8181}
+API_PORT=${API_PORT:-8182}
+WORK_DIR=${WORK_DIR:-"target/carga"}
+THEME_NAME="govbr-custom"
+SPI_JAR="keycloak-govbr-level-validator-1.0-SNAPSHOT.jar"
+
+# Constantes de br.com.spi.govbr.trace.LoginFlowLoadDriver e GovBrProviderStub (src/test/java)
+REALM="govbr-carga"
+CLIENT_ID="govbr-carga-app"
+REDIRECT_URI="http://127.0.0.1/govbr-carga/callback"
+IDP_ALIAS="gov-br"
+IDP_CLIENT_ID="govbr-carga"
+IDP_CLIENT_SECRET="govbr-carga-segredo"
+FLOW_ALIAS="govbr-post-broker-login"
+
+KC_URL="http://127.0.0.1:${KEYCLOAK_PORT}"
+
+echo -e "${BLUE}🏋️  Teste de carga do login Gov.br${NC}"
+echo -e "${BLUE}=================================${NC}"
+
+# ====== ETAPA 1: VERIFICAÇÕES ======
+echo -e "\n${YELLOW}🔍 Etapa 1: Verificando pré-requisitos...${NC}"
+
+if [ ! -f "pom.xml" ]; then
+    echo -e "${RED}❌ Erro: pom.xml não encontrado. Execute este script na raiz do projeto.${NC}"
+    exit 1
+fi
+
+if [ -z "$KEYCLOAK_HOME" ] || [ ! -x "$KEYCLOAK_HOME/bin/kc.sh" ]; then
+    echo -e "${RED}❌ Erro: KEYCLOAK_HOME deve apontar para uma distribuição do Keycloak 24 descompactada${NC}"
+    exit 1
+fi
+
+echo -e "${GREEN}   ✅ Keycloak: $KEYCLOAK_HOME${NC}"
+
+# ====== ETAPA 2: BUILD DO SPI ======
+echo -e "\n${YELLOW}📦 Etapa 2: Build do SPI...${NC}"
+
+# Também compila o gerador de carga e os stubs, que ficam em src/test/java e fora do JAR
+mvn clean package -q
+
+if [ ! -f "target/${SPI_JAR}" ]; then
+    echo -e "${RED}❌ Erro: Build falhou. JAR não encontrado em target/${NC}"
+    exit 1
+fi
+
+echo -e "${GREEN}   ✅ Build concluído: target/${SPI_JAR}${NC}"
+
+# ====== ETAPA 3: KEYCLOAK DE TESTE ======
+echo -e "\n${YELLOW}⚙️  Etapa 3: Preparando Keycloak em ${WORK_DIR}...${NC}"
+
+# Cópia descartável: a distribuição original e seu banco H2 não são alterados
+KC_DIR="${WORK_DIR}/keycloak"
+mkdir -p "$WORK_DIR"
+cp -r "$KEYCLOAK_HOME" "$KC_DIR"
+cp "target/${SPI_JAR}" "$KC_DIR/providers/"
+cp -r "keycloak-govbr-theme/theme/${THEME_NAME}" "$KC_DIR/themes/"
+
+KC_PID=""
+parar_keycloak() {
+    if [ -n "$KC_PID" ] && kill -0 "$KC_PID" 2>/dev/null; then
+        echo -e "${BLUE}   Encerrando Keycloak (grava a gravação JFR)...${NC}"
+        kill "$KC_PID"
+        wait "$KC_PID" 2>/dev/null || true
+    fi
+}
+trap parar_keycloak EXIT
+
+KEYCLOAK_ADMIN=admin KEYCLOAK_ADMIN_PASSWORD=admin \
+JAVA_OPTS_APPEND="-XX:StartFlightRecording=filename=${WORK_DIR}/keycloak.jfr,settings=profile" \
+"$KC_DIR/bin/kc.sh" start-dev \
+    --http-port="${KEYCLOAK_PORT}" \
+    --metrics-enabled=true \
+    --log-level=INFO,br.com.spi.govbr:WARN \
+    --spi-authenticator-govbr-level-validator-nivel-api-url="http://127.0.0.1:${API_PORT}/nivel" \
+    --spi-authenticator-govbr-level-validator-audit-dir="${WORK_DIR}/audit" \
+    > "${WORK_DIR}/keycloak.log" 2>&1 &
+KC_PID=$!
+
+echo -e "${BLUE}   Aguardando Keycloak inicializar (log: ${WORK_DIR}/keycloak.log)...${NC}"
+for i in {1..120}; do
+    if curl -f -s "${KC_URL}/realms/master" > /dev/null 2>&1; then
+        echo -e "${GREEN}   ✅ Keycloak pronto em ${KC_URL}${NC}"
+        break
+    fi
+    if ! kill -0 "$KC_PID" 2>/dev/null; then
+        echo -e "${RED}❌ Erro: Keycloak encerrou durante a inicialização${NC}"
+        tail -20 "${WORK_DIR}/keycloak.log"
+        exit 1
+    fi
+    sleep 2
+done
+
+# ====== ETAPA 4: REALM DE CARGA ======
+echo -e "\n${YELLOW}🏗️  Etapa 4: Configurando realm ${REALM}...${NC}"
+
+KCADM="$KC_DIR/bin/kcadm.sh"
+KCADM_CONFIG="--config ${WORK_DIR}/kcadm.config"
+
+$KCADM config credentials $KCADM_CONFIG --server "$KC_URL" --realm master --user admin --password admin
+
+$KCADM create realms $KCADM_CONFIG -s realm="$REALM" -s enabled=true -s loginTheme="$THEME_NAME"
+
+$KCADM create clients $KCADM_CONFIG -r "$REALM" \
+    -s clientId="$CLIENT_ID" -s publicClient=true -s standardFlowEnabled=true \
+    -s "redirectUris=[\"${REDIRECT_URI}\"]"
+
+# O validator roda após cada login pelo broker (post broker login flow)
+$KCADM create authentication/flows $KCADM_CONFIG -r "$REALM" \
+    -s alias="$FLOW_ALIAS" -s providerId=basic-flow -s topLevel=true -s builtIn=false
+EXECUTION_ID=$($KCADM create "authentication/flows/${FLOW_ALIAS}/executions/execution" $KCADM_CONFIG -r "$REALM" \
+    -s provider=govbr-level-validator -i)
+$KCADM update "authentication/flows/${FLOW_ALIAS}/executions" $KCADM_CONFIG -r "$REALM" \
+    -b "{\"id\":\"${EXECUTION_ID}\",\"requirement\":\"REQUIRED\"}"
+
+$KCADM create identity-provider/instances $KCADM_CONFIG -r "$REALM" \
+    -s alias="$IDP_ALIAS" -s providerId=oidc -s enabled=true -s storeToken=true \
+    -s postBrokerLoginFlowAlias="$FLOW_ALIAS" \
+    -s config.authorizationUrl="http://127.0.0.1:${IDP_PORT}/auth" \
+    -s config.tokenUrl="http://127.0.0.1:${IDP_PORT}/token" \
+    -s config.clientId="$IDP_CLIENT_ID" \
+    -s config.clientSecret="$IDP_CLIENT_SECRET" \
+    -s config.clientAuthMethod=client_secret_post \
+    -s config.validateSignature=false \
+    -s config.disableUserInfo=true \
+    -s config.loginHint=true \
+    -s config.syncMode=IMPORT
+
+# Administrador do realm para ler /realms/govbr-carga/govbr-level/stats
+$KCADM create users $KCADM_CONFIG -r "$REALM" -s username=carga-admin -s enabled=true \
+    -s email=carga-admin@carga.invalid -s firstName=Carga -s lastName=Admin
+$KCADM set-password $KCADM_CONFIG -r "$REALM" --username carga-admin --new-password carga-admin
+$KCADM add-roles $KCADM_CONFIG -r "$REALM" --uusername carga-admin --cclientid realm-management --rolename view-users
+
+echo -e "${GREEN}   ✅ Realm, client, Identity Provider e flow configurados${NC}"
+
+# ====== ETAPA 5: CARGA ======
+echo -e "\n${YELLOW}🚀 Etapa 5: Executando ${LOGINS} logins (concorrência ${CONCORRENCIA})...${NC}"
+
+java -Dcarga.porta-idp="$IDP_PORT" -Dcarga.porta-api="$API_PORT" $CARGA_OPTS \
+    -cp "target/test-classes:target/classes:$KC_DIR/lib/lib/main/*" \
+    br.com.spi.govbr.trace.LoginFlowLoadDriver "$KC_URL" "$LOGINS" "$CONCORRENCIA"
+
+echo -e "\n${BLUE}📊 Estatísticas do SPI:${NC}"
+TOKEN=$(curl -s -d grant_type=password -d client_id=admin-cli -d username=carga-admin -d password=carga-admin \
+    "${KC_URL}/realms/${REALM}/protocol/openid-connect/token" | sed -E 's/.*"access_token":"([^"]+)".*/\1/')
+curl -s -H "Authorization: Bearer ${TOKEN}" "${KC_URL}/realms/${REALM}/govbr-level/stats" || true
+echo
+
+parar_keycloak
+
+echo -e "\n${GREEN}🎉 Teste de carga concluído${NC}"
+echo -e "• Gravação JFR: ${YELLOW}${WORK_DIR}/keycloak.jfr${NC} (alocação e eventos br.com.spi.govbr.*)"
+echo -e "• Log do Keycloak: ${YELLOW}${WORK_DIR}/keycloak.log${NC}"
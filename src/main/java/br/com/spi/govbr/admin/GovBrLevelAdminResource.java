@@ -0,0 +1,175 @@
+package br.com.spi.govbr.admin;
+
+import br.com.spi.govbr.authenticator.GovBrLevelAuthenticatorFactory;
+import br.com.spi.govbr.audit.LevelAuditLog;
+import br.com.spi.govbr.cache.LevelCacheInvalidator;
+import br.com.spi.govbr.config.GovBrConfig;
+import br.com.spi.govbr.service.GovBrOverloadDetector;
+import br.com.spi.govbr.service.LevelRefreshAheadTask;
+import br.com.spi.govbr.service.LevelValidationService;
+import br.com.spi.govbr.trace.LoginTraceRecorder;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.ClientErrorException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.NotAuthorizedException;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.jboss.logging.Logger;
+import org.keycloak.Config;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.services.managers.AppAuthManager;
+import org.keycloak.services.managers.AuthenticationManager;
+import org.keycloak.services.resources.admin.AdminAuth;
+import org.keycloak.services.resources.admin.permissions.AdminPermissionEvaluator;
+import org.keycloak.services.resources.admin.permissions.AdminPermissions;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Endpoints administrativos do cache de níveis Gov.br.
+ * Exige token de administrador do realm (view-users para leitura, manage-users para alterações).
+ * Cache, circuit breaker e limites são do nó e atendem todos os realms: fora do realm master,
+ * as estatísticas mostram apenas a parte do realm consultado.
+ */
+public class GovBrLevelAdminResource {
+
+    private static final Logger logger = Logger.getLogger(GovBrLevelAdminResource.class);
+
+    private final KeycloakSession session;
+    private final RealmModel realm;
+    private final LevelValidationService validationService;
+    private final LevelRefreshAheadTask refreshAheadTask;
+    private final LevelCacheInvalidator cacheInvalidator;
+    private final GovBrOverloadDetector overloadDetector;
+    private final LevelAuditLog auditLog;
+    private final LoginTraceRecorder traceRecorder;
+    private final LevelWarmupJobs warmupJobs;
+
+    public GovBrLevelAdminResource(KeycloakSession session, GovBrLevelAuthenticatorFactory factory,
+                                   LevelWarmupJobs warmupJobs) {
+        this.session = session;
+        this.realm = session.getContext().getRealm();
+        this.validationService = factory.getValidationService();
+        this.refreshAheadTask = factory.getRefreshAheadTask();
+        this.cacheInvalidator = factory.getCacheInvalidator();
+        this.overloadDetector = factory.getOverloadDetector();
+        this.auditLog = factory.getAuditLog();
+        this.traceRecorder = factory.getTraceRecorder();
+        this.warmupJobs = warmupJobs;
+    }
+
+    @GET
+    @Path("stats")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> estatisticas() {
+        AdminPermissionEvaluator permissoes = autenticar();
+        permissoes.users().requireView();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("realmCache", validationService.getLevelCache().estatisticasRealm(realm.getId()));
+        stats.put("realmPartition", validationService.getApiClient().estatisticasRealm(realm.getId()));
+
+        // Dados do nó inteiro (todos os realms) só para administradores do realm master
+        if (Config.getAdminRealm().equals(realm.getName()) && permissoes.realm().canViewRealm()) {
+            stats.put("cache", validationService.getLevelCache().estatisticas());
+            stats.put("upstreamLatency", validationService.getApiClient().estatisticasLatencia());
+            stats.put("concurrencyLimit", validationService.getApiClient().estatisticasConcorrencia());
+            stats.put("overload", overloadDetector.estatisticas());
+            if (auditLog != null) {
+                stats.put("audit", auditLog.estatisticas());
+            }
+            if (traceRecorder != null) {
+                stats.put("traceCapture", traceRecorder.estatisticas());
+            }
+            if (validationService.getClaimsVerifier() != null) {
+                stats.put("tokenClaims", validationService.getClaimsVerifier().estatisticas());
+            }
+            stats.put("refreshAhead", refreshAheadTask.estatisticas());
+        }
+        return stats;
+    }
+
+    @DELETE
+    @Path("cache/users/{userId}")
+    public Response invalidarUsuario(@PathParam("userId") String userId) {
+        autenticar().users().requireManage();
+
+        cacheInvalidator.invalidarUsuario(session, realm.getId(), userId);
+        logger.infof("Cache de nível invalidado para usuário %s", userId);
+
+        return Response.noContent().build();
+    }
+
+    @DELETE
+    @Path("cache")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> invalidarRealm() {
+        autenticar().users().requireManage();
+
+        int removidos = cacheInvalidator.invalidarRealm(session, realm.getId());
+        return Map.of("removed", removidos);
+    }
+
+    /**
+     * Inicia o pré-carregamento do nível de uma lista de usuários (ids ou usernames) em segundo
+     * plano; o andamento é consultado em {@code cache/warmup/{jobId}}
+     */
+    @POST
+    @Path("cache/warmup")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response aquecerCache(List<String> usuarios) {
+        autenticar().users().requireManage();
+
+        if (usuarios == null || usuarios.isEmpty()) {
+            throw new BadRequestException("Lista de usuários vazia");
+        }
+        if (usuarios.size() > GovBrConfig.WARMUP_MAX_USERS) {
+            throw new BadRequestException("Máximo de " + GovBrConfig.WARMUP_MAX_USERS + " usuários por requisição");
+        }
+
+        LevelWarmupJobs.Job job = warmupJobs.iniciar(session.getKeycloakSessionFactory(), realm.getId(),
+                List.copyOf(usuarios), validationService);
+        if (job == null) {
+            throw new ClientErrorException("Aquecimento já em andamento no realm", Response.Status.CONFLICT);
+        }
+
+        logger.infof("Aquecimento do cache Gov.br %s iniciado no realm %s: %d usuários",
+                job.getId(), realm.getName(), usuarios.size());
+        return Response.accepted(job.estatisticas()).build();
+    }
+
+    @GET
+    @Path("cache/warmup/{jobId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> andamentoAquecimento(@PathParam("jobId") String jobId) {
+        autenticar().users().requireView();
+
+        LevelWarmupJobs.Job job = warmupJobs.buscar(realm.getId(), jobId);
+        if (job == null) {
+            throw new NotFoundException("Aquecimento não encontrado");
+        }
+        return job.estatisticas();
+    }
+
+    private AdminPermissionEvaluator autenticar() {
+        AuthenticationManager.AuthResult auth = new AppAuthManager.BearerTokenAuthenticator(session)
+                .authenticate();
+        if (auth == null) {
+            throw new NotAuthorizedException("Bearer");
+        }
+
+        AdminAuth adminAuth = new AdminAuth(realm, auth.getToken(), auth.getUser(), auth.getClient());
+        return AdminPermissions.evaluator(session, realm, adminAuth);
+    }
+}
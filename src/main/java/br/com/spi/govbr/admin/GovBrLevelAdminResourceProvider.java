@@ -0,0 +1,33 @@
+package br.com.spi.govbr.admin;
+
+import br.com.spi.govbr.authenticator.GovBrLevelAuthenticatorFactory;
+import br.com.spi.govbr.config.GovBrConfig;
+import org.keycloak.authentication.Authenticator;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.services.resource.RealmResourceProvider;
+
+public class GovBrLevelAdminResourceProvider implements RealmResourceProvider {
+
+    private final KeycloakSession session;
+    private final LevelWarmupJobs warmupJobs;
+
+    public GovBrLevelAdminResourceProvider(KeycloakSession session, LevelWarmupJobs warmupJobs) {
+        this.session = session;
+        this.warmupJobs = warmupJobs;
+    }
+
+    @Override
+    public Object getResource() {
+        // O estado (cache, circuit breaker) pertence à factory do authenticator
+        GovBrLevelAuthenticatorFactory factory = (GovBrLevelAuthenticatorFactory) session
+                .getKeycloakSessionFactory()
+                .getProviderFactory(Authenticator.class, GovBrConfig.AUTHENTICATOR_ID);
+
+        return new GovBrLevelAdminResource(session, factory, warmupJobs);
+    }
+
+    @Override
+    public void close() {
+        // Não utilizado
+    }
+}
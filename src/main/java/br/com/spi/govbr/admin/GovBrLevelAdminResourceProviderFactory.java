@@ -0,0 +1,45 @@
+package br.com.spi.govbr.admin;
+
+import br.com.spi.govbr.config.GovBrConfig;
+import org.keycloak.Config;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.services.resource.RealmResourceProvider;
+import org.keycloak.services.resource.RealmResourceProviderFactory;
+
+/**
+ * Registra o endpoint administrativo /realms/{realm}/govbr-level
+ */
+public class GovBrLevelAdminResourceProviderFactory implements RealmResourceProviderFactory {
+
+    // Aquecimentos em andamento sobrevivem à requisição que os iniciou
+    private LevelWarmupJobs warmupJobs;
+
+    @Override
+    public RealmResourceProvider create(KeycloakSession session) {
+        return new GovBrLevelAdminResourceProvider(session, warmupJobs);
+    }
+
+    @Override
+    public void init(Config.Scope config) {
+        this.warmupJobs = new LevelWarmupJobs(GovBrConfig.WARMUP_THREADS, GovBrConfig.WARMUP_QUEUE_SIZE,
+                GovBrConfig.WARMUP_JOB_HISTORY);
+    }
+
+    @Override
+    public void postInit(KeycloakSessionFactory factory) {
+        // Não implementado
+    }
+
+    @Override
+    public void close() {
+        if (warmupJobs != null) {
+            warmupJobs.close();
+        }
+    }
+
+    @Override
+    public String getId() {
+        return GovBrConfig.ADMIN_RESOURCE_ID;
+    }
+}
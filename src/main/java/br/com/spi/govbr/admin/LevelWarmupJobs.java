@@ -0,0 +1,185 @@
+package br.com.spi.govbr.admin;
+
+import br.com.spi.govbr.service.LevelValidationService;
+import br.com.spi.govbr.util.TokenExtractor;
+import org.jboss.logging.Logger;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.utils.KeycloakModelUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Aquecimentos do cache executados fora da thread da requisição administrativa.
+ *
+ * Cada usuário é consultado em uma transação própria por um pool com poucas threads, para que um
+ * aquecimento grande não ocupe a API de nível nem as threads HTTP do Keycloak. Os últimos
+ * aquecimentos ficam disponíveis para consulta do andamento.
+ */
+public class LevelWarmupJobs {
+
+    private static final Logger logger = Logger.getLogger(LevelWarmupJobs.class);
+
+    private final ThreadPoolExecutor executor;
+    private final int historico;
+    private final Map<String, Job> jobs = new LinkedHashMap<>();
+
+    public LevelWarmupJobs(int threads, int capacidadeFila, int historico) {
+        this.historico = historico;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadeFila),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "govbr-warmup");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Agenda o aquecimento; retorna null se já houver um aquecimento em andamento no realm
+     */
+    public synchronized Job iniciar(KeycloakSessionFactory sessionFactory, String realmId,
+                                    List<String> usuarios, LevelValidationService validationService) {
+        for (Job job : jobs.values()) {
+            if (job.realmId.equals(realmId) && !job.concluido()) {
+                return null;
+            }
+        }
+
+        Job job = new Job(UUID.randomUUID().toString(), realmId, usuarios.size());
+        jobs.put(job.id, job);
+        while (jobs.size() > historico) {
+            jobs.remove(jobs.keySet().iterator().next());
+        }
+
+        for (String usuario : usuarios) {
+            try {
+                executor.execute(() -> aquecer(sessionFactory, job, usuario, validationService));
+            } catch (RejectedExecutionException e) {
+                job.falhou(usuario);
+            }
+        }
+        return job;
+    }
+
+    public synchronized Job buscar(String realmId, String jobId) {
+        Job job = jobs.get(jobId);
+        return job != null && job.realmId.equals(realmId) ? job : null;
+    }
+
+    private void aquecer(KeycloakSessionFactory sessionFactory, Job job, String usuario,
+                         LevelValidationService validationService) {
+        boolean carregado;
+        try {
+            carregado = KeycloakModelUtils.runJobInTransactionWithResult(sessionFactory, session -> {
+                RealmModel realm = session.realms().getRealm(job.realmId);
+                UserModel user = realm != null ? buscarUsuario(session, realm, usuario) : null;
+                if (user == null) {
+                    return false;
+                }
+                session.getContext().setRealm(realm);
+                try {
+                    validationService.aquecerNivel(realm.getId(), user.getId(),
+                            TokenExtractor.fonteToken(session, realm, user, validationService.getApiClient()));
+                    return true;
+                } catch (Exception e) {
+                    logger.warnf("Falha no aquecimento do nível do usuário %s: %s", usuario, e.getMessage());
+                    return false;
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.warnf("Falha no aquecimento do nível do usuário %s: %s", usuario, e.getMessage());
+            carregado = false;
+        }
+
+        if (carregado) {
+            job.carregou();
+        } else {
+            job.falhou(usuario);
+        }
+    }
+
+    private static UserModel buscarUsuario(KeycloakSession session, RealmModel realm, String usuario) {
+        UserModel user = session.users().getUserById(realm, usuario);
+        return user != null ? user : session.users().getUserByUsername(realm, usuario);
+    }
+
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Andamento de um aquecimento
+     */
+    public static final class Job {
+
+        private final String id;
+        private final String realmId;
+        private final int total;
+        private final long iniciadoEm = System.currentTimeMillis();
+        private final AtomicInteger carregados = new AtomicInteger();
+        private final AtomicInteger processados = new AtomicInteger();
+        private final ConcurrentLinkedQueue<String> falhas = new ConcurrentLinkedQueue<>();
+        private volatile long concluidoEm;
+
+        private Job(String id, String realmId, int total) {
+            this.id = id;
+            this.realmId = realmId;
+            this.total = total;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        boolean concluido() {
+            return processados.get() >= total;
+        }
+
+        private void carregou() {
+            carregados.incrementAndGet();
+            processou();
+        }
+
+        private void falhou(String usuario) {
+            falhas.add(usuario);
+            processou();
+        }
+
+        private void processou() {
+            if (processados.incrementAndGet() == total) {
+                concluidoEm = System.currentTimeMillis();
+                logger.infof("Aquecimento do cache Gov.br %s no realm %s: %d carregados, %d falhas",
+                        id, realmId, carregados.get(), falhas.size());
+            }
+        }
+
+        public Map<String, Object> estatisticas() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("jobId", id);
+            long fim = concluidoEm;
+            stats.put("status", fim > 0 ? "DONE" : "RUNNING");
+            stats.put("total", total);
+            stats.put("processed", processados.get());
+            stats.put("loaded", carregados.get());
+            stats.put("failed", new ArrayList<>(falhas));
+            stats.put("startedAt", iniciadoEm);
+            if (fim > 0) {
+                stats.put("finishedAt", fim);
+            }
+            return stats;
+        }
+    }
+}
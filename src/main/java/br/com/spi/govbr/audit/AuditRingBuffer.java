@@ -0,0 +1,77 @@
+package br.com.spi.govbr.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Buffer circular limitado, sem locks, para vários produtores e um único consumidor.
+ *
+ * Cada posição tem um número de sequência: igual à posição de escrita quando livre e à
+ * posição + 1 quando preenchida. Os produtores disputam a cauda por CAS; o consumidor
+ * libera a posição avançando a sequência em uma volta completa.
+ */
+final class AuditRingBuffer<T> {
+
+    private final Object[] itens;
+    private final AtomicLongArray sequencias;
+    private final int mascara;
+    private final AtomicLong cauda = new AtomicLong();
+    private long cabeca; // apenas a thread consumidora
+
+    AuditRingBuffer(int capacidadeMinima) {
+        int capacidade = Integer.highestOneBit(Math.max(2, capacidadeMinima - 1)) << 1;
+        this.itens = new Object[capacidade];
+        this.sequencias = new AtomicLongArray(capacidade);
+        this.mascara = capacidade - 1;
+        for (int i = 0; i < capacidade; i++) {
+            sequencias.set(i, i);
+        }
+    }
+
+    /**
+     * Insere o item; false se o buffer estiver cheio
+     */
+    boolean oferecer(T item) {
+        while (true) {
+            long posicao = cauda.get();
+            int indice = (int) (posicao & mascara);
+            long diferenca = sequencias.get(indice) - posicao;
+            if (diferenca == 0) {
+                if (cauda.compareAndSet(posicao, posicao + 1)) {
+                    itens[indice] = item;
+                    sequencias.set(indice, posicao + 1);
+                    return true;
+                }
+            } else if (diferenca < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Remove o próximo item, ou null se não houver item publicado (somente o consumidor)
+     */
+    @SuppressWarnings("unchecked")
+    T retirar() {
+        int indice = (int) (cabeca & mascara);
+        if (sequencias.get(indice) != cabeca + 1) {
+            return null;
+        }
+        T item = (T) itens[indice];
+        itens[indice] = null;
+        sequencias.set(indice, cabeca + itens.length);
+        cabeca++;
+        return item;
+    }
+
+    int capacidade() {
+        return itens.length;
+    }
+
+    /**
+     * Itens aguardando o consumidor (aproximado)
+     */
+    long pendentes() {
+        return Math.max(0, cauda.get() - cabeca);
+    }
+}
@@ -0,0 +1,284 @@
+package br.com.spi.govbr.audit;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.jboss.logging.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Log de auditoria das decisões de nível, gravado fora da thread de login.
+ *
+ * As decisões entram em um {@link AuditRingBuffer} de capacidade fixa e uma única thread
+ * as grava em lotes, como linhas JSON, em {@code govbr-level-audit-<instante UTC>.jsonl}.
+ * Cada lote termina com um único {@code force} (group commit); o arquivo é rotacionado ao
+ * atingir o tamanho máximo, e a cada rotação os arquivos além de {@code maxArquivos} são
+ * apagados, dos mais antigos para os mais novos (0 mantém todos). Sem decisões pendentes, o
+ * escritor dorme até o próximo registro o acordar.
+ * Com o buffer cheio, a política {@link Politica#DROP} descarta a decisão e
+ * {@link Politica#BLOCK} espera o escritor liberar espaço.
+ */
+public class LevelAuditLog {
+
+    private static final Logger logger = Logger.getLogger(LevelAuditLog.class);
+
+    public static final String PREFIXO_ARQUIVO = "govbr-level-audit-";
+    public static final String SUFIXO_ARQUIVO = ".jsonl";
+
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder().build();
+    private static final DateTimeFormatter FORMATO_ARQUIVO =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS'Z'").withZone(ZoneOffset.UTC);
+
+    private static final int LOTE_MAXIMO = 1024;
+    // Limite de segurança do sono do escritor ocioso; normalmente ele é acordado pelo registro
+    private static final long ESPERA_OCIOSA_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long ESPERA_BLOQUEIO_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    public enum Politica { DROP, BLOCK }
+
+    private final Path diretorio;
+    private final long tamanhoMaximoArquivo;
+    private final int maxArquivos;
+    private final Politica politica;
+    private final AuditRingBuffer<LevelAuditRecord> buffer;
+    private final Thread escritor;
+
+    private volatile boolean encerrando;
+    private volatile boolean escritorDormindo;
+
+    // Somente a thread escritora
+    private final ByteArrayOutputStream lote = new ByteArrayOutputStream(64 * 1024);
+    private FileChannel arquivoAtual;
+    private Path caminhoAtual;
+    private long tamanhoAtual;
+
+    private final LongAdder registrados = new LongAdder();
+    private final LongAdder gravados = new LongAdder();
+    private final LongAdder descartados = new LongAdder();
+    private final LongAdder falhasEscrita = new LongAdder();
+    private final LongAdder rotacoes = new LongAdder();
+    private final LongAdder apagados = new LongAdder();
+
+    public LevelAuditLog(Path diretorio, int capacidadeBuffer, long tamanhoMaximoArquivo, int maxArquivos,
+                         Politica politica) {
+        this.diretorio = diretorio;
+        this.tamanhoMaximoArquivo = tamanhoMaximoArquivo;
+        this.maxArquivos = maxArquivos;
+        this.politica = politica;
+        this.buffer = new AuditRingBuffer<>(capacidadeBuffer);
+        this.escritor = new Thread(this::executar, "govbr-level-audit");
+        this.escritor.setDaemon(true);
+    }
+
+    public void iniciar() {
+        escritor.start();
+        logger.infof("Auditoria de níveis Gov.br em %s (buffer %d, política %s, até %s arquivos)",
+                diretorio, buffer.capacidade(), politica, maxArquivos > 0 ? maxArquivos : "∞");
+    }
+
+    /**
+     * Enfileira a decisão; nunca faz I/O na thread chamadora
+     */
+    public void registrar(LevelAuditRecord registro) {
+        if (buffer.oferecer(registro)) {
+            registrados.increment();
+            acordarEscritor();
+            return;
+        }
+        if (politica == Politica.BLOCK) {
+            while (!encerrando) {
+                LockSupport.parkNanos(ESPERA_BLOQUEIO_NANOS);
+                if (buffer.oferecer(registro)) {
+                    registrados.increment();
+                    acordarEscritor();
+                    return;
+                }
+            }
+        }
+        descartados.increment();
+    }
+
+    /**
+     * Só custa um unpark quando o escritor está dormindo; com carga, ele nunca chega a dormir
+     */
+    private void acordarEscritor() {
+        if (escritorDormindo) {
+            LockSupport.unpark(escritor);
+        }
+    }
+
+    private void executar() {
+        while (true) {
+            boolean encerrar = encerrando;
+            int quantidade = drenarLote();
+            if (quantidade > 0) {
+                gravarLote(quantidade);
+            } else if (encerrar) {
+                break;
+            } else {
+                dormir();
+            }
+        }
+        fecharArquivo();
+    }
+
+    /**
+     * Anuncia o sono antes de conferir o buffer de novo: um registro publicado depois da conferência
+     * vê {@code escritorDormindo} e faz o unpark, que também vale se chegar antes do park
+     */
+    private void dormir() {
+        escritorDormindo = true;
+        try {
+            if (buffer.pendentes() == 0 && !encerrando) {
+                LockSupport.parkNanos(this, ESPERA_OCIOSA_NANOS);
+            }
+        } finally {
+            escritorDormindo = false;
+        }
+    }
+
+    private int drenarLote() {
+        lote.reset();
+        int quantidade = 0;
+        try (JsonGenerator gerador = JSON_FACTORY.createGenerator(lote)) {
+            gerador.setRootValueSeparator(null);
+            LevelAuditRecord registro;
+            while (quantidade < LOTE_MAXIMO && (registro = buffer.retirar()) != null) {
+                escreverJson(gerador, registro);
+                gerador.writeRaw('\n');
+                quantidade++;
+            }
+        } catch (IOException e) {
+            // ByteArrayOutputStream não lança IOException
+            throw new IllegalStateException(e);
+        }
+        return quantidade;
+    }
+
+    private static void escreverJson(JsonGenerator gerador, LevelAuditRecord registro) throws IOException {
+        gerador.writeStartObject();
+        gerador.writeNumberField("time", registro.time());
+        gerador.writeStringField("realmId", registro.realmId());
+        gerador.writeStringField("clientId", registro.clientId());
+        gerador.writeStringField("userId", registro.userId());
+        gerador.writeStringField("outcome", registro.outcome());
+        gerador.writeStringField("level", registro.level());
+        gerador.writeStringField("acceptedLevels", registro.acceptedLevels());
+        gerador.writeBooleanField("fromCache", registro.fromCache());
+        gerador.writeEndObject();
+    }
+
+    private void gravarLote(int quantidade) {
+        try {
+            if (arquivoAtual == null || tamanhoAtual + lote.size() > tamanhoMaximoArquivo) {
+                rotacionar();
+            }
+            ByteBuffer dados = ByteBuffer.wrap(lote.toByteArray());
+            while (dados.hasRemaining()) {
+                tamanhoAtual += arquivoAtual.write(dados);
+            }
+            arquivoAtual.force(false);
+            gravados.add(quantidade);
+        } catch (IOException e) {
+            falhasEscrita.add(quantidade);
+            logger.errorf("Falha ao gravar %d decisões na auditoria Gov.br (%s): %s",
+                    quantidade, caminhoAtual, e.getMessage());
+            // Reabre um arquivo novo no próximo lote
+            fecharArquivo();
+        }
+    }
+
+    private void rotacionar() throws IOException {
+        fecharArquivo();
+        Files.createDirectories(diretorio);
+        Path caminho = diretorio.resolve(PREFIXO_ARQUIVO + FORMATO_ARQUIVO.format(Instant.now()) + SUFIXO_ARQUIVO);
+        for (int tentativa = 1; Files.exists(caminho); tentativa++) {
+            caminho = diretorio.resolve(PREFIXO_ARQUIVO + FORMATO_ARQUIVO.format(Instant.now())
+                    + "-" + tentativa + SUFIXO_ARQUIVO);
+        }
+        arquivoAtual = FileChannel.open(caminho,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        caminhoAtual = caminho;
+        tamanhoAtual = 0;
+        rotacoes.increment();
+        apagarExcedentes();
+    }
+
+    /**
+     * Mantém os {@code maxArquivos} mais recentes, incluindo o recém-aberto
+     */
+    private void apagarExcedentes() {
+        if (maxArquivos <= 0) {
+            return;
+        }
+        try {
+            List<Path> arquivos = LevelAuditReader.arquivos(diretorio);
+            for (Path antigo : arquivos.subList(0, Math.max(0, arquivos.size() - maxArquivos))) {
+                if (!antigo.equals(caminhoAtual) && Files.deleteIfExists(antigo)) {
+                    apagados.increment();
+                }
+            }
+        } catch (IOException e) {
+            logger.warnf("Falha ao apagar arquivos antigos da auditoria Gov.br em %s: %s", diretorio, e.getMessage());
+        }
+    }
+
+    private void fecharArquivo() {
+        if (arquivoAtual == null) {
+            return;
+        }
+        try {
+            arquivoAtual.close();
+        } catch (IOException e) {
+            logger.warnf("Falha ao fechar %s: %s", caminhoAtual, e.getMessage());
+        }
+        arquivoAtual = null;
+    }
+
+    /**
+     * Grava o que estiver no buffer e encerra o escritor
+     */
+    public void close() {
+        encerrando = true;
+        LockSupport.unpark(escritor);
+        try {
+            escritor.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (descartados.sum() > 0) {
+            logger.warnf("%d decisões Gov.br não auditadas por buffer cheio", descartados.sum());
+        }
+    }
+
+    public Map<String, Object> estatisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("directory", diretorio.toString());
+        stats.put("overflowPolicy", politica.name());
+        stats.put("bufferCapacity", buffer.capacidade());
+        stats.put("pending", buffer.pendentes());
+        stats.put("recorded", registrados.sum());
+        stats.put("written", gravados.sum());
+        stats.put("dropped", descartados.sum());
+        stats.put("writeFailures", falhasEscrita.sum());
+        stats.put("filesOpened", rotacoes.sum());
+        stats.put("maxFiles", maxArquivos);
+        stats.put("filesDeleted", apagados.sum());
+        return stats;
+    }
+}
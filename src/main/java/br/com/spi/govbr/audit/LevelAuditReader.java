@@ -0,0 +1,129 @@
+package br.com.spi.govbr.audit;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Consulta os arquivos do log de auditoria, em ordem de criação, sem carregá-los em memória.
+ *
+ * Uso: {@code java -cp keycloak-govbr-level-validator.jar br.com.spi.govbr.audit.LevelAuditReader
+ * <diretório> <userId> [realmId]}. Imprime, uma por linha, todas as decisões do usuário.
+ */
+public final class LevelAuditReader {
+
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder().build();
+
+    /**
+     * Ordem de criação: instante do nome e, no mesmo instante, o sufixo numérico da rotação
+     * ({@code <instante>.jsonl} antes de {@code <instante>-1.jsonl}, {@code -2} antes de {@code -10})
+     */
+    private static final Comparator<Path> ORDEM_CRIACAO = Comparator
+            .comparing((Path p) -> instante(p.getFileName().toString()))
+            .thenComparingLong(p -> sequencia(p.getFileName().toString()));
+
+    private LevelAuditReader() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Uso: LevelAuditReader <diretório> <userId> [realmId]");
+            System.exit(2);
+        }
+        long encontradas = buscarPorUsuario(Path.of(args[0]), args[1], args.length == 3 ? args[2] : null,
+                System.out::println);
+        System.err.printf("%d decisões encontradas%n", encontradas);
+    }
+
+    /**
+     * Entrega ao consumidor cada linha JSON com as decisões do usuário (e do realm, se informado)
+     */
+    public static long buscarPorUsuario(Path diretorio, String userId, String realmId,
+                                        Consumer<String> consumidor) throws IOException {
+        long encontradas = 0;
+        for (Path arquivo : arquivos(diretorio)) {
+            try (BufferedReader leitor = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
+                String linha;
+                while ((linha = leitor.readLine()) != null) {
+                    // Filtro barato antes do parse: a maioria das linhas é de outros usuários
+                    if (linha.contains(userId) && corresponde(linha, userId, realmId)) {
+                        consumidor.accept(linha);
+                        encontradas++;
+                    }
+                }
+            }
+        }
+        return encontradas;
+    }
+
+    static List<Path> arquivos(Path diretorio) throws IOException {
+        if (!Files.isDirectory(diretorio)) {
+            return List.of();
+        }
+        try (Stream<Path> listagem = Files.list(diretorio)) {
+            return listagem
+                    .filter(p -> {
+                        String nome = p.getFileName().toString();
+                        return nome.startsWith(LevelAuditLog.PREFIXO_ARQUIVO)
+                                && nome.endsWith(LevelAuditLog.SUFIXO_ARQUIVO);
+                    })
+                    .sorted(ORDEM_CRIACAO)
+                    .toList();
+        }
+    }
+
+    private static String instante(String nome) {
+        String base = nome.substring(LevelAuditLog.PREFIXO_ARQUIVO.length(),
+                nome.length() - LevelAuditLog.SUFIXO_ARQUIVO.length());
+        int separador = base.indexOf('-');
+        return separador < 0 ? base : base.substring(0, separador);
+    }
+
+    private static long sequencia(String nome) {
+        String base = nome.substring(LevelAuditLog.PREFIXO_ARQUIVO.length(),
+                nome.length() - LevelAuditLog.SUFIXO_ARQUIVO.length());
+        int separador = base.indexOf('-');
+        if (separador < 0) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(base.substring(separador + 1));
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static boolean corresponde(String linha, String userId, String realmId) {
+        String usuario = null;
+        String realm = null;
+        try (JsonParser parser = JSON_FACTORY.createParser(linha)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String campo = parser.currentName();
+                parser.nextToken();
+                if ("userId".equals(campo)) {
+                    usuario = parser.getValueAsString();
+                } else if ("realmId".equals(campo)) {
+                    realm = parser.getValueAsString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            // Linha truncada (queda do nó durante a gravação)
+            return false;
+        }
+        return userId.equals(usuario) && (realmId == null || realmId.equals(realm));
+    }
+}
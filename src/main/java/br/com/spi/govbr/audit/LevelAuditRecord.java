@@ -0,0 +1,16 @@
+package br.com.spi.govbr.audit;
+
+/**
+ * Decisão de nível Gov.br tomada no login, como gravada no log de auditoria
+ */
+public record LevelAuditRecord(
+        long time,
+        String realmId,
+        String clientId,
+        String userId,
+        String outcome,
+        String level,
+        String acceptedLevels,
+        boolean fromCache
+) {
+}
@@ -1,10 +1,20 @@
 package br.com.spi.govbr.authenticator;
 
+import br.com.spi.govbr.audit.LevelAuditLog;
+import br.com.spi.govbr.audit.LevelAuditRecord;
 import br.com.spi.govbr.config.GovBrConfig;
+import br.com.spi.govbr.constants.GovBrLevelConstants;
 import br.com.spi.govbr.dto.ValidationResult;
+import br.com.spi.govbr.dto.GovBrOverloadResponse;
 import br.com.spi.govbr.dto.GovBrThemeErrorHandler;
+import br.com.spi.govbr.jfr.GovBrValidationEvent;
+import br.com.spi.govbr.policy.AcceptedLevels;
+import br.com.spi.govbr.policy.LevelPolicyRegistry;
+import br.com.spi.govbr.service.GovBrOverloadDetector;
 import br.com.spi.govbr.service.LevelValidationService;
+import br.com.spi.govbr.trace.LoginTraceRecorder;
 import br.com.spi.govbr.util.GovBrSessionCleaner;
+import br.com.spi.govbr.util.GovBrTracing;
 import br.com.spi.govbr.util.TokenExtractor;
 import org.jboss.logging.Logger;
 import org.keycloak.authentication.AuthenticationFlowContext;
@@ -13,6 +23,7 @@ import org.keycloak.authentication.Authenticator;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserModel;
+import org.keycloak.models.UserSessionModel;
 import jakarta.ws.rs.core.Response;
 
 public class GovBrLevelAuthenticator implements Authenticator {
@@ -20,50 +31,197 @@ public class GovBrLevelAuthenticator implements Authenticator {
     private static final Logger logger = Logger.getLogger(GovBrLevelAuthenticator.class);
 
     private final LevelValidationService validationService;
+    private final LevelPolicyRegistry policyRegistry;
+    private final GovBrOverloadDetector overloadDetector;
+    private final LevelAuditLog auditLog;
+    private final LoginTraceRecorder traceRecorder;
+    private final long janelaSessaoSsoMillis;
+    private final int retryAfterSegundos;
 
-    public GovBrLevelAuthenticator() {
-        this.validationService = new LevelValidationService();
+    /**
+     * Decisão de um login, entregue à auditoria e ao trace de capacidade. Só é copiada para o
+     * {@link GovBrValidationEvent} quando o JFR vai gravá-lo.
+     */
+    private record Decisao(String outcome, String level, AcceptedLevels niveisAceitos,
+                           boolean fromCache, long upstreamMillis) {
+
+        static final Decisao IGNORADA = de("SKIPPED", null);
+
+        static Decisao de(String outcome, AcceptedLevels niveisAceitos) {
+            return new Decisao(outcome, null, niveisAceitos, false, 0);
+        }
+
+        boolean ignorada() {
+            return this == IGNORADA;
+        }
+    }
+
+    public GovBrLevelAuthenticator(LevelValidationService validationService,
+                                   LevelPolicyRegistry policyRegistry,
+                                   GovBrOverloadDetector overloadDetector,
+                                   LevelAuditLog auditLog,
+                                   LoginTraceRecorder traceRecorder,
+                                   long janelaSessaoSsoMillis,
+                                   int retryAfterSegundos) {
+        this.validationService = validationService;
+        this.policyRegistry = policyRegistry;
+        this.overloadDetector = overloadDetector;
+        this.auditLog = auditLog;
+        this.traceRecorder = traceRecorder;
+        this.janelaSessaoSsoMillis = janelaSessaoSsoMillis;
+        this.retryAfterSegundos = retryAfterSegundos;
     }
 
     @Override
     public void authenticate(AuthenticationFlowContext context) {
+        GovBrValidationEvent evento = new GovBrValidationEvent();
+        evento.begin();
+        Decisao decisao = null;
+        try {
+            decisao = GovBrTracing.rastrear("govbr.validacao", () -> validar(context));
+        } finally {
+            evento.end();
+            if (evento.shouldCommit()) {
+                registrarEvento(context, evento, decisao);
+            }
+            if (decisao != null && !decisao.ignorada()) {
+                auditar(context, decisao);
+                capturarTrace(context, decisao);
+            }
+        }
+    }
+
+    private void registrarEvento(AuthenticationFlowContext context, GovBrValidationEvent evento, Decisao decisao) {
+        evento.realmId = context.getRealm().getId();
+        evento.userId = context.getUser() != null ? context.getUser().getId() : null;
+        if (decisao != null) {
+            evento.outcome = decisao.outcome();
+            evento.level = decisao.level();
+            evento.acceptedLevels = decisao.niveisAceitos() != null ? decisao.niveisAceitos().texto() : null;
+            evento.fromCache = decisao.fromCache();
+            evento.upstreamMillis = decisao.upstreamMillis();
+        }
+        evento.commit();
+    }
+
+    /**
+     * Entrega a decisão ao log de auditoria (gravação assíncrona); logins que não são Gov.br não são auditados
+     */
+    private void auditar(AuthenticationFlowContext context, Decisao decisao) {
+        if (auditLog == null) {
+            return;
+        }
+        auditLog.registrar(new LevelAuditRecord(
+                System.currentTimeMillis(),
+                context.getRealm().getId(),
+                context.getAuthenticationSession().getClient().getClientId(),
+                context.getUser() != null ? context.getUser().getId() : null,
+                decisao.outcome(),
+                decisao.level(),
+                decisao.niveisAceitos().texto(),
+                decisao.fromCache()));
+    }
+
+    /**
+     * Registra o login no trace de capacidade, se a captura estiver habilitada
+     */
+    private void capturarTrace(AuthenticationFlowContext context, Decisao decisao) {
+        if (traceRecorder == null) {
+            return;
+        }
+        traceRecorder.registrar(
+                context.getRealm().getId(),
+                context.getUser() != null ? context.getUser().getId() : null,
+                decisao.outcome(),
+                decisao.level(),
+                String.join(",", decisao.niveisAceitos().nomes()),
+                decisao.upstreamMillis(),
+                decisao.fromCache());
+    }
+
+    private Decisao validar(AuthenticationFlowContext context) {
 
         logger.info("=== Iniciando validação Gov.br ===");
 
+        AcceptedLevels niveisAceitos = policyRegistry.getPadrao();
+        boolean admitida = false;
+
         try {
             // Verifica se deve validar o login
             if (!deveValidarLogin(context)) {
                 context.success();
-                return;
+                return Decisao.IGNORADA;
+            }
+
+            admitida = overloadDetector.entrar();
+            if (!admitida) {
+                descartarPorSobrecarga(context);
+                return Decisao.de(GovBrLevelConstants.OUTCOME_OVERLOADED, niveisAceitos);
             }
 
-            // Extrai o token de acesso
-            String accessToken = TokenExtractor.extrairTokenGovBr(context);
-            if (accessToken == null) {
-                logger.warn("Token Gov.br não encontrado na sessão");
-                exibirErroTokenInvalido(context);
-                return;
+            // Níveis aceitos pelo client que iniciou o login
+            niveisAceitos = policyRegistry.resolver(context.getRealm(),
+                    context.getAuthenticationSession().getClient());
+
+            // Nível já aprovado nesta sessão SSO; senão valida pelo cache e, em último caso, pela API
+            ValidationResult result = nivelDaSessaoSso(context, niveisAceitos);
+            if (result == null) {
+                result = validationService.validarNivelUsuario(
+                        context.getRealm().getId(),
+                        context.getUser().getId(),
+                        niveisAceitos,
+                        TokenExtractor.fonteToken(context, validationService.getApiClient()));
             }
 
-            // Valida o nível do usuário
-            ValidationResult result = validationService.validarNivelUsuario(accessToken);
+            registrarDetalhesEvento(context, result);
+            String outcome = result.outcomeCode();
+            GovBrTracing.atributo(GovBrLevelConstants.EVENT_DETAIL_OUTCOME, result.outcomeCode());
 
             if (result.isValid()) {
                 logger.infof("✅ Login aprovado - Usuário: %s - Nível: %s",
                         context.getUser().getUsername(), result.userLevel());
+                registrarNotasSessao(context, result);
                 context.success();
+            } else if (GovBrLevelConstants.OUTCOME_SERVICE_UNAVAILABLE.equals(result.outcomeCode())
+                    && overloadDetector.sobrecarregado(context.getRealm().getId())) {
+                descartarPorSobrecarga(context);
+                outcome = GovBrLevelConstants.OUTCOME_OVERLOADED;
             } else {
                 logger.warnf("❌ Login rejeitado - Usuário: %s - Erro: %s",
                         context.getUser().getUsername(), result.errorMessage());
-                exibirErroBaseadoNoResultado(context, result);
+                exibirErroBaseadoNoResultado(context, result, niveisAceitos);
             }
+            return new Decisao(outcome, result.userLevel(), niveisAceitos,
+                    result.fromCache(), result.upstreamLatencyMillis());
 
         } catch (Exception e) {
             logger.errorf("Erro inesperado na validação Gov.br: %s", e.getMessage());
-            exibirErroServicoIndisponivel(context);
+            if (overloadDetector.sobrecarregado(context.getRealm().getId())) {
+                descartarPorSobrecarga(context);
+                return Decisao.de(GovBrLevelConstants.OUTCOME_OVERLOADED, niveisAceitos);
+            }
+            context.getEvent().detail(GovBrLevelConstants.EVENT_DETAIL_OUTCOME,
+                    GovBrLevelConstants.OUTCOME_SERVICE_UNAVAILABLE);
+            exibirErroServicoIndisponivel(context, niveisAceitos);
+            return Decisao.de(GovBrLevelConstants.OUTCOME_SERVICE_UNAVAILABLE, niveisAceitos);
+        } finally {
+            if (admitida) {
+                overloadDetector.sair();
+            }
         }
     }
 
+    /**
+     * Sob sobrecarga responde com a página 503 pré-montada, sem limpar sessões nem renderizar o tema
+     */
+    private void descartarPorSobrecarga(AuthenticationFlowContext context) {
+        overloadDetector.registrarDescarte();
+        context.getEvent().detail(GovBrLevelConstants.EVENT_DETAIL_OUTCOME, GovBrLevelConstants.OUTCOME_OVERLOADED);
+        GovBrTracing.atributo(GovBrLevelConstants.EVENT_DETAIL_OUTCOME, GovBrLevelConstants.OUTCOME_OVERLOADED);
+        context.failure(AuthenticationFlowError.GENERIC_AUTHENTICATION_ERROR,
+                GovBrOverloadResponse.criar(retryAfterSegundos));
+    }
+
     private boolean deveValidarLogin(AuthenticationFlowContext context) {
         UserModel user = context.getUser();
         if (user == null) {
@@ -71,9 +229,10 @@ public class GovBrLevelAuthenticator implements Authenticator {
             return false;
         }
 
-        boolean isGovBrLogin = context.getSession().users()
-                .getFederatedIdentitiesStream(context.getRealm(), user)
-                .anyMatch(fed -> GovBrConfig.PROVIDER_ALIAS.equals(fed.getIdentityProvider()));
+        boolean isGovBrLogin = GovBrTracing.rastrear("govbr.identidade_federada", () ->
+                context.getSession().users()
+                        .getFederatedIdentitiesStream(context.getRealm(), user)
+                        .anyMatch(fed -> GovBrConfig.PROVIDER_ALIAS.equals(fed.getIdentityProvider())));
 
         if (isGovBrLogin) {
             logger.infof("Login Gov.br detectado para usuário: %s", user.getUsername());
@@ -84,38 +243,90 @@ public class GovBrLevelAuthenticator implements Authenticator {
         return isGovBrLogin;
     }
 
-    private void exibirErroBaseadoNoResultado(AuthenticationFlowContext context,
-                                              ValidationResult result) {
-        // Limpa sessões antes de exibir erro
-        GovBrSessionCleaner.limparSessoesUsuario(context);
-        Response errorResponse;
-
-        if (result.errorMessage().contains("Token")) {
-            errorResponse = GovBrThemeErrorHandler.erroTokenInvalido(context);
-        } else if (result.errorMessage().contains("insuficiente")) {
-            errorResponse = GovBrThemeErrorHandler.erroNivelInsuficiente(
-                    context, result.userLevel());
-        } else if (result.errorMessage().contains("indisponível")) {
-            errorResponse = GovBrThemeErrorHandler.erroServicoIndisponivel(context);
-        } else {
-            errorResponse = GovBrThemeErrorHandler.erroGenerico(
-                    context, result.errorMessage());
+    /**
+     * Nível gravado na sessão SSO por um login anterior, se verificado dentro da janela e aceito
+     * pelo client atual. Níveis não aceitos seguem a validação normal, pois podem ter sido elevados.
+     */
+    private ValidationResult nivelDaSessaoSso(AuthenticationFlowContext context, AcceptedLevels niveisAceitos) {
+        if (janelaSessaoSsoMillis <= 0) {
+            return null;
         }
 
-        context.failure(AuthenticationFlowError.INVALID_CREDENTIALS, errorResponse);
+        // A sessão do usuário tem o mesmo id da sessão de autenticação raiz do navegador
+        UserSessionModel userSession = context.getSession().sessions().getUserSession(
+                context.getRealm(), context.getAuthenticationSession().getParentSession().getId());
+        if (userSession == null
+                || userSession.getState() != UserSessionModel.State.LOGGED_IN
+                || !context.getUser().getId().equals(userSession.getUser().getId())) {
+            return null;
+        }
+
+        String nivel = userSession.getNote(GovBrLevelConstants.SESSION_NOTE_LEVEL);
+        String verificadoEm = userSession.getNote(GovBrLevelConstants.SESSION_NOTE_VERIFIED_AT);
+        if (nivel == null || verificadoEm == null || !niveisAceitos.aceita(nivel)) {
+            return null;
+        }
+
+        long verificadoEmMillis;
+        try {
+            verificadoEmMillis = Long.parseLong(verificadoEm) * 1000;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (System.currentTimeMillis() - verificadoEmMillis > janelaSessaoSsoMillis) {
+            return null;
+        }
+
+        logger.debugf("Nível %s aprovado na sessão SSO %s", nivel, userSession.getId());
+        // Mantém o instante original: a janela não é estendida por novos logins na mesma sessão
+        return ValidationResult.success(nivel).comOrigem(true, 0).verificadoEm(verificadoEmMillis);
+    }
+
+    /**
+     * Anexa o resultado ao evento LOGIN / LOGIN_ERROR emitido pelo fluxo
+     */
+    private void registrarDetalhesEvento(AuthenticationFlowContext context, ValidationResult result) {
+        context.getEvent()
+                .detail(GovBrLevelConstants.EVENT_DETAIL_LEVEL, result.userLevel())
+                .detail(GovBrLevelConstants.EVENT_DETAIL_OUTCOME, result.outcomeCode())
+                .detail(GovBrLevelConstants.EVENT_DETAIL_UPSTREAM_MS, String.valueOf(result.upstreamLatencyMillis()))
+                .detail(GovBrLevelConstants.EVENT_DETAIL_FROM_CACHE, String.valueOf(result.fromCache()));
+    }
+
+    /**
+     * Copiadas para a sessão do usuário ao final do fluxo; publicadas nos tokens pelo GovBrLevelProtocolMapper
+     */
+    private void registrarNotasSessao(AuthenticationFlowContext context, ValidationResult result) {
+        var authSession = context.getAuthenticationSession();
+        authSession.setUserSessionNote(GovBrLevelConstants.SESSION_NOTE_LEVEL, result.userLevel());
+        authSession.setUserSessionNote(GovBrLevelConstants.SESSION_NOTE_VERIFIED_AT,
+                String.valueOf(result.verifiedAt() / 1000));
     }
 
-    private void exibirErroTokenInvalido(AuthenticationFlowContext context) {
+    private void exibirErroBaseadoNoResultado(AuthenticationFlowContext context,
+                                              ValidationResult result,
+                                              AcceptedLevels niveisAceitos) {
         // Limpa sessões antes de exibir erro
         GovBrSessionCleaner.limparSessoesUsuario(context);
-        Response errorResponse = GovBrThemeErrorHandler.erroTokenInvalido(context);
+
+        Response errorResponse = switch (result.outcomeCode()) {
+            case GovBrLevelConstants.OUTCOME_INVALID_TOKEN ->
+                    GovBrThemeErrorHandler.erroTokenInvalido(context, niveisAceitos);
+            case GovBrLevelConstants.OUTCOME_INSUFFICIENT_LEVEL ->
+                    GovBrThemeErrorHandler.erroNivelInsuficiente(context, result.userLevel(), niveisAceitos);
+            case GovBrLevelConstants.OUTCOME_SERVICE_UNAVAILABLE ->
+                    GovBrThemeErrorHandler.erroServicoIndisponivel(context, niveisAceitos);
+            default -> GovBrThemeErrorHandler.erroGenerico(context, result.errorMessage(), niveisAceitos);
+        };
+
         context.failure(AuthenticationFlowError.INVALID_CREDENTIALS, errorResponse);
     }
 
-    private void exibirErroServicoIndisponivel(AuthenticationFlowContext context) {
+    private void exibirErroServicoIndisponivel(AuthenticationFlowContext context,
+                                               AcceptedLevels niveisAceitos) {
         // Limpa sessões antes de exibir erro
         GovBrSessionCleaner.limparSessoesUsuario(context);
-        Response errorResponse = GovBrThemeErrorHandler.erroServicoIndisponivel(context);
+        Response errorResponse = GovBrThemeErrorHandler.erroServicoIndisponivel(context, niveisAceitos);
         context.failure(AuthenticationFlowError.GENERIC_AUTHENTICATION_ERROR, errorResponse);
     }
 
@@ -1,23 +1,60 @@
 package br.com.spi.govbr.authenticator;
 
+import br.com.spi.govbr.audit.LevelAuditLog;
+import br.com.spi.govbr.cache.LevelCacheInvalidator;
+import br.com.spi.govbr.cache.LevelCacheSnapshot;
 import br.com.spi.govbr.config.GovBrConfig;
+import br.com.spi.govbr.config.GovBrSettings;
+import br.com.spi.govbr.policy.LevelPolicyRegistry;
+import br.com.spi.govbr.service.GovBrOverloadDetector;
+import br.com.spi.govbr.service.GovBrTokenClaimsVerifier;
+import br.com.spi.govbr.service.LevelRefreshAheadTask;
+import br.com.spi.govbr.service.LevelValidationService;
+import br.com.spi.govbr.trace.LoginTraceRecorder;
+import org.jboss.logging.Logger;
 import org.keycloak.Config;
 import org.keycloak.authentication.Authenticator;
 import org.keycloak.authentication.AuthenticatorFactory;
 import org.keycloak.models.AuthenticationExecutionModel;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.utils.KeycloakModelUtils;
 import org.keycloak.provider.ProviderConfigProperty;
+import org.keycloak.provider.ProviderEventListener;
+import org.keycloak.timer.TimerProvider;
+import java.time.Duration;
 import java.util.List;
 
 public class GovBrLevelAuthenticatorFactory implements AuthenticatorFactory {
 
+    private static final Logger logger = Logger.getLogger(GovBrLevelAuthenticatorFactory.class);
+
     public static final AuthenticationExecutionModel.Requirement[] REQUIREMENT_CHOICES = {
             AuthenticationExecutionModel.Requirement.REQUIRED,
             AuthenticationExecutionModel.Requirement.ALTERNATIVE,
             AuthenticationExecutionModel.Requirement.DISABLED
     };
 
+    // Compartilhado entre sessões para que cache e circuit breaker sejam únicos por nó
+    private LevelValidationService validationService;
+    private LevelRefreshAheadTask refreshAheadTask;
+    private LevelCacheInvalidator cacheInvalidator;
+    private LevelPolicyRegistry policyRegistry;
+    private LevelCacheSnapshot cacheSnapshot;
+    private GovBrOverloadDetector overloadDetector;
+    private LevelAuditLog auditLog;
+    private LoginTraceRecorder traceRecorder;
+    private GovBrSettings settings;
+    private KeycloakSessionFactory sessionFactory;
+
+    // Realms criados após a inicialização recebem o peso configurado pelo nome
+    private final ProviderEventListener realmCriado = event -> {
+        if (event instanceof RealmModel.RealmPostCreateEvent criado) {
+            settings.realmWeights().resolver(criado.getCreatedRealm());
+        }
+    };
+
     @Override
     public String getDisplayType() {
         return GovBrConfig.AUTHENTICATOR_NAME;
@@ -53,28 +90,141 @@ public class GovBrLevelAuthenticatorFactory implements AuthenticatorFactory {
         return List.of();
     }
 
+    @Override
+    public List<ProviderConfigProperty> getConfigMetadata() {
+        return GovBrSettings.metadados();
+    }
+
     @Override
     public Authenticator create(KeycloakSession session) {
-        return new GovBrLevelAuthenticator();
+        return new GovBrLevelAuthenticator(validationService, policyRegistry, overloadDetector, auditLog, traceRecorder,
+                Duration.ofSeconds(settings.ssoSessionFreshnessSeconds()).toMillis(),
+                settings.overloadRetryAfterSeconds());
     }
 
     @Override
     public void init(Config.Scope config) {
-        // Não implementado
+        this.settings = GovBrSettings.carregar(config);
+        this.validationService = new LevelValidationService(settings);
+        this.refreshAheadTask = new LevelRefreshAheadTask(validationService,
+                Duration.ofSeconds(settings.refreshAheadWindowSeconds()).toMillis(),
+                settings.refreshAheadBatchSize());
+        this.cacheInvalidator = new LevelCacheInvalidator(validationService.getLevelCache());
+        this.policyRegistry = new LevelPolicyRegistry(
+                Duration.ofSeconds(settings.policyRefreshSeconds()).toMillis(), settings.acceptedLevels());
+        this.overloadDetector = new GovBrOverloadDetector(settings.overloadMaxInflightValidations(),
+                validationService.getApiClient());
+        this.cacheSnapshot = settings.snapshotIntervalSeconds() > 0
+                ? new LevelCacheSnapshot(settings.snapshotPath())
+                : null;
+        this.auditLog = settings.auditEnabled()
+                ? new LevelAuditLog(settings.auditDir(), settings.auditBufferSize(),
+                        settings.auditMaxFileMb() * 1024L * 1024L, settings.auditMaxFiles(),
+                        settings.auditOverflowPolicy())
+                : null;
+        this.traceRecorder = settings.traceCaptureEnabled()
+                ? new LoginTraceRecorder(settings.traceDir(), GovBrConfig.TRACE_QUEUE_SIZE)
+                : null;
     }
 
     @Override
     public void postInit(KeycloakSessionFactory factory) {
-        // Não implementado
+        this.sessionFactory = factory;
+        cacheInvalidator.registrar(factory);
+        factory.register(realmCriado);
+        if (auditLog != null) {
+            auditLog.iniciar();
+        }
+
+        // Reinício com cache aquecido: evita que todos os usuários ativos consultem a API ao mesmo tempo
+        if (cacheSnapshot != null) {
+            cacheSnapshot.carregar(validationService.getLevelCache());
+        }
+
+        // Cada nó renova e persiste o próprio cache, por isso as tarefas não são cluster-aware
+        KeycloakModelUtils.runJobInTransaction(factory, session -> {
+            // Pesos configurados pelo nome: associados ao id de cada realm existente
+            for (String chave : settings.realmWeights().resolver(session.realms().getRealmsStream())) {
+                logger.warnf("realm-weights: nenhum realm com nome ou id '%s'; o peso %s será ignorado",
+                        chave, settings.realmWeights().configurados().get(chave));
+            }
+
+            TimerProvider timer = session.getProvider(TimerProvider.class);
+            timer.scheduleTask(refreshAheadTask,
+                    Duration.ofSeconds(settings.refreshAheadIntervalSeconds()).toMillis(),
+                    GovBrConfig.REFRESH_AHEAD_TASK_NAME);
+            timer.scheduleTask(s -> validationService.getLevelCache().removerExpiradas(),
+                    Duration.ofSeconds(GovBrConfig.CACHE_SWEEP_INTERVAL_SECONDS).toMillis(),
+                    GovBrConfig.CACHE_SWEEP_TASK_NAME);
+            GovBrTokenClaimsVerifier claimsVerifier = validationService.getClaimsVerifier();
+            if (claimsVerifier != null) {
+                timer.scheduleTask(s -> claimsVerifier.atualizar(), claimsVerifier.intervaloAtualizacaoMillis(),
+                        GovBrConfig.JWKS_REFRESH_TASK_NAME);
+            }
+            if (cacheSnapshot != null) {
+                timer.scheduleTask(s -> cacheSnapshot.gravar(validationService.getLevelCache()),
+                        Duration.ofSeconds(settings.snapshotIntervalSeconds()).toMillis(),
+                        GovBrConfig.SNAPSHOT_TASK_NAME);
+            }
+        });
     }
 
     @Override
     public void close() {
-        // Não implementado
+        if (sessionFactory == null) {
+            return;
+        }
+        cacheInvalidator.desregistrar(sessionFactory);
+        sessionFactory.unregister(realmCriado);
+        try {
+            KeycloakModelUtils.runJobInTransaction(sessionFactory, session -> {
+                TimerProvider timer = session.getProvider(TimerProvider.class);
+                timer.cancelTask(GovBrConfig.REFRESH_AHEAD_TASK_NAME);
+                timer.cancelTask(GovBrConfig.SNAPSHOT_TASK_NAME);
+                timer.cancelTask(GovBrConfig.CACHE_SWEEP_TASK_NAME);
+                timer.cancelTask(GovBrConfig.JWKS_REFRESH_TASK_NAME);
+            });
+        } catch (Exception e) {
+            // Timer já finalizado durante o shutdown
+        }
+        if (cacheSnapshot != null) {
+            cacheSnapshot.gravar(validationService.getLevelCache());
+        }
+        validationService.getApiClient().close();
+        if (auditLog != null) {
+            auditLog.close();
+        }
+        if (traceRecorder != null) {
+            traceRecorder.close();
+        }
     }
 
     @Override
     public String getId() {
         return GovBrConfig.AUTHENTICATOR_ID;
     }
+
+    public LevelValidationService getValidationService() {
+        return validationService;
+    }
+
+    public LevelRefreshAheadTask getRefreshAheadTask() {
+        return refreshAheadTask;
+    }
+
+    public LevelCacheInvalidator getCacheInvalidator() {
+        return cacheInvalidator;
+    }
+
+    public GovBrOverloadDetector getOverloadDetector() {
+        return overloadDetector;
+    }
+
+    public LevelAuditLog getAuditLog() {
+        return auditLog;
+    }
+
+    public LoginTraceRecorder getTraceRecorder() {
+        return traceRecorder;
+    }
 }
\ No newline at end of file
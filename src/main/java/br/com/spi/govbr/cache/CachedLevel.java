@@ -0,0 +1,14 @@
+package br.com.spi.govbr.cache;
+
+/**
+ * Nível Gov.br armazenado em cache para um usuário
+ */
+public record CachedLevel(
+        String userLevel,
+        long verifiedAt,
+        long expiresAt
+) {
+    public boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+}
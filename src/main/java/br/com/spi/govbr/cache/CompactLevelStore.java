@@ -0,0 +1,511 @@
+package br.com.spi.govbr.cache;
+
+import br.com.spi.govbr.util.LevelCodec;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Armazenamento compacto dos níveis de um realm.
+ *
+ * Ids de usuário no formato UUID canônico do Keycloak são guardados como dois longs em tabelas de
+ * endereçamento aberto (sondagem linear), com o nível em 1 byte (NIVEL_*_CODE) e os tempos em int
+ * (segundos desde {@link #EPOCH_MILLIS}): cerca de 25 bytes por posição, contra centenas de bytes de
+ * um mapa de Strings. O id completo é mantido para que colisões de hash nunca troquem o nível de
+ * dois usuários. Ids em outro formato (ex.: federação LDAP), ou cujo nível não tem código, ficam em
+ * um mapa comum; gravar um id em um dos lugares o remove do outro.
+ *
+ * Quando o cache enche, {@link #despejar} remove, de uma amostra percorrida por um ponteiro circular
+ * em cada segmento, as entradas que expiram primeiro, sem percorrer a tabela inteira.
+ *
+ * As escritas são serializadas por segmento; as leituras são otimistas e só bloqueiam se
+ * concorrerem com uma escrita no mesmo segmento.
+ */
+final class CompactLevelStore {
+
+    // 2024-01-01T00:00:00Z; um int de segundos cobre até 2092
+    private static final long EPOCH_MILLIS = 1_704_067_200_000L;
+
+    private static final int SEGMENTOS = 16;
+    private static final int CAPACIDADE_INICIAL = 16;
+    private static final int BYTES_POR_POSICAO = Long.BYTES * 2 + Byte.BYTES + Integer.BYTES * 2;
+    private static final int BYTES_POR_ENTRADA_MAPA = 200;
+
+    // Entradas examinadas por entrada despejada
+    private static final int AMOSTRA_POR_DESPEJO = 4;
+
+    private final Segmento[] segmentos = new Segmento[SEGMENTOS];
+    private final ConcurrentHashMap<String, CachedLevel> outrosIds = new ConcurrentHashMap<>();
+
+    // Segmento por onde começa o próximo despejo; despejos são serializados pelo LevelCache
+    private int proximoSegmento;
+
+    CompactLevelStore() {
+        for (int i = 0; i < SEGMENTOS; i++) {
+            segmentos[i] = new Segmento();
+        }
+    }
+
+    CachedLevel get(String userId) {
+        if (!isUuidCanonico(userId)) {
+            return outrosIds.get(userId);
+        }
+        long msb = msb(userId);
+        long lsb = lsb(userId);
+        long hash = hash(msb, lsb);
+        CachedLevel cached = segmento(hash).get(msb, lsb, hash);
+        if (cached == null && !outrosIds.isEmpty()) {
+            // UUIDs com nível sem código ficam no mapa comum
+            return outrosIds.get(userId);
+        }
+        return cached;
+    }
+
+    /**
+     * Grava a entrada; com {@code substituir} falso só grava se o usuário ainda não estiver presente
+     */
+    boolean put(String userId, CachedLevel cached, boolean substituir) {
+        if (!isUuidCanonico(userId)) {
+            if (substituir) {
+                outrosIds.put(userId, cached);
+                return true;
+            }
+            return outrosIds.putIfAbsent(userId, cached) == null;
+        }
+
+        long msb = msb(userId);
+        long lsb = lsb(userId);
+        long hash = hash(msb, lsb);
+        Segmento segmento = segmento(hash);
+        byte codigo = LevelCodec.codificar(cached.userLevel());
+
+        if (codigo == LevelCodec.DESCONHECIDO) {
+            if (!substituir) {
+                return segmento.get(msb, lsb, hash) == null && outrosIds.putIfAbsent(userId, cached) == null;
+            }
+            outrosIds.put(userId, cached);
+            segmento.remove(msb, lsb, hash);
+            return true;
+        }
+
+        if (!substituir && !outrosIds.isEmpty() && outrosIds.containsKey(userId)) {
+            return false;
+        }
+        boolean gravado = segmento.put(msb, lsb, hash, codigo,
+                segundos(cached.verifiedAt()), segundos(cached.expiresAt()), substituir);
+        if (gravado && !outrosIds.isEmpty()) {
+            outrosIds.remove(userId);
+        }
+        return gravado;
+    }
+
+    boolean remove(String userId) {
+        boolean removido = outrosIds.remove(userId) != null;
+        if (!isUuidCanonico(userId)) {
+            return removido;
+        }
+        long msb = msb(userId);
+        long lsb = lsb(userId);
+        long hash = hash(msb, lsb);
+        return segmento(hash).remove(msb, lsb, hash) || removido;
+    }
+
+    long size() {
+        long total = outrosIds.mappingCount();
+        for (Segmento segmento : segmentos) {
+            total += segmento.tamanho;
+        }
+        return total;
+    }
+
+    void forEach(BiConsumer<String, CachedLevel> consumer) {
+        for (Segmento segmento : segmentos) {
+            segmento.forEach(consumer);
+        }
+        outrosIds.forEach(consumer);
+    }
+
+    /**
+     * Remove as entradas já expiradas no instante informado
+     */
+    int removerExpiradas(long agoraMillis) {
+        int agora = segundos(agoraMillis);
+        int removidas = 0;
+        for (Segmento segmento : segmentos) {
+            removidas += segmento.removerExpiradas(agora);
+        }
+        if (!outrosIds.isEmpty()) {
+            var it = outrosIds.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().isExpired(agoraMillis)) {
+                    it.remove();
+                    removidas++;
+                }
+            }
+        }
+        return removidas;
+    }
+
+    /**
+     * Remove até {@code quantidade} entradas, preferindo as que expiram primeiro em cada amostra
+     */
+    int despejar(int quantidade) {
+        int removidas = 0;
+        int porSegmento = Math.max(1, (quantidade + SEGMENTOS - 1) / SEGMENTOS);
+        for (int i = 0; i < SEGMENTOS && removidas < quantidade; i++) {
+            Segmento segmento = segmentos[proximoSegmento];
+            proximoSegmento = (proximoSegmento + 1) & (SEGMENTOS - 1);
+            removidas += segmento.despejar(Math.min(porSegmento, quantidade - removidas));
+        }
+
+        // Segmentos com menos entradas que a parte deles: completa com os demais e com o mapa comum
+        for (int i = 0; i < SEGMENTOS && removidas < quantidade; i++) {
+            removidas += segmentos[i].despejar(quantidade - removidas);
+        }
+        var it = outrosIds.values().iterator();
+        while (removidas < quantidade && it.hasNext()) {
+            it.next();
+            it.remove();
+            removidas++;
+        }
+        return removidas;
+    }
+
+    long bytesEstimados() {
+        long total = outrosIds.mappingCount() * BYTES_POR_ENTRADA_MAPA;
+        for (Segmento segmento : segmentos) {
+            total += (long) segmento.tabela.capacidade() * BYTES_POR_POSICAO;
+        }
+        return total;
+    }
+
+    private Segmento segmento(long hash) {
+        return segmentos[(int) (hash >>> 60) & (SEGMENTOS - 1)];
+    }
+
+    private static final class Segmento {
+
+        private final StampedLock lock = new StampedLock();
+        private volatile Tabela tabela = new Tabela(CAPACIDADE_INICIAL);
+        private volatile int tamanho;
+
+        // Posição onde começa a próxima amostra de despejo
+        private int ponteiro;
+
+        CachedLevel get(long msb, long lsb, long hash) {
+            long stamp = lock.tryOptimisticRead();
+            CachedLevel cached = tabela.ler(msb, lsb, hash);
+            if (lock.validate(stamp)) {
+                return cached;
+            }
+            stamp = lock.readLock();
+            try {
+                return tabela.ler(msb, lsb, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        boolean put(long msb, long lsb, long hash, byte codigo, int verificado, int expira, boolean substituir) {
+            long stamp = lock.writeLock();
+            try {
+                Tabela atual = tabela;
+                int posicao = atual.localizar(msb, lsb, hash);
+                boolean nova = atual.nivel[posicao] == LevelCodec.DESCONHECIDO;
+                if (!nova && !substituir) {
+                    return false;
+                }
+
+                atual.gravar(posicao, msb, lsb, codigo, verificado, expira);
+                if (nova) {
+                    tamanho++;
+                    if (tamanho > atual.capacidade() * 3 / 4) {
+                        tabela = atual.redimensionar(atual.capacidade() * 2);
+                    }
+                }
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        boolean remove(long msb, long lsb, long hash) {
+            long stamp = lock.writeLock();
+            try {
+                Tabela atual = tabela;
+                int posicao = atual.localizar(msb, lsb, hash);
+                if (atual.nivel[posicao] == LevelCodec.DESCONHECIDO) {
+                    return false;
+                }
+                atual.remover(posicao);
+                tamanho--;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void forEach(BiConsumer<String, CachedLevel> consumer) {
+            long stamp = lock.readLock();
+            try {
+                Tabela atual = tabela;
+                for (int i = 0; i < atual.capacidade(); i++) {
+                    if (atual.nivel[i] != LevelCodec.DESCONHECIDO) {
+                        consumer.accept(new UUID(atual.msb[i], atual.lsb[i]).toString(), atual.entrada(i));
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Remove no lugar, sem reconstruir a tabela. A varredura começa em uma posição livre: o
+         * deslocamento para trás só move para a posição atual entradas do mesmo agrupamento ainda
+         * não visitadas, e a posição é examinada de novo após cada remoção.
+         */
+        int removerExpiradas(int agora) {
+            long stamp = lock.writeLock();
+            try {
+                if (tamanho == 0) {
+                    return 0;
+                }
+                Tabela atual = tabela;
+                int posicao = 0;
+                while (atual.nivel[posicao] != LevelCodec.DESCONHECIDO) {
+                    posicao++;
+                }
+
+                int removidas = 0;
+                for (int visitadas = 0; visitadas < atual.capacidade(); ) {
+                    if (atual.nivel[posicao] != LevelCodec.DESCONHECIDO && atual.expira[posicao] <= agora) {
+                        atual.remover(posicao);
+                        removidas++;
+                    } else {
+                        posicao = (posicao + 1) & atual.mascara;
+                        visitadas++;
+                    }
+                }
+                tamanho -= removidas;
+                return removidas;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Examina até {@code quantidade × AMOSTRA_POR_DESPEJO} entradas a partir do ponteiro e remove
+         * as {@code quantidade} que expiram primeiro
+         */
+        int despejar(int quantidade) {
+            long stamp = lock.writeLock();
+            try {
+                if (tamanho == 0 || quantidade <= 0) {
+                    return 0;
+                }
+                Tabela atual = tabela;
+                int amostra = (int) Math.min((long) quantidade * AMOSTRA_POR_DESPEJO, tamanho);
+
+                // Expiração nos 32 bits altos e posição nos baixos: ordenar os longs ordena por expiração
+                long[] candidatos = new long[amostra];
+                int encontrados = 0;
+                int posicao = ponteiro & atual.mascara;
+                for (int visitadas = 0; visitadas < atual.capacidade() && encontrados < amostra; visitadas++) {
+                    if (atual.nivel[posicao] != LevelCodec.DESCONHECIDO) {
+                        candidatos[encontrados++] = ((long) atual.expira[posicao] << 32) | posicao;
+                    }
+                    posicao = (posicao + 1) & atual.mascara;
+                }
+                ponteiro = posicao;
+                Arrays.sort(candidatos, 0, encontrados);
+
+                // A remoção desloca entradas: as chaves são lidas antes de remover qualquer uma
+                int removidas = Math.min(quantidade, encontrados);
+                long[] chaves = new long[removidas * 2];
+                for (int i = 0; i < removidas; i++) {
+                    int escolhida = (int) candidatos[i];
+                    chaves[2 * i] = atual.msb[escolhida];
+                    chaves[2 * i + 1] = atual.lsb[escolhida];
+                }
+                for (int i = 0; i < removidas; i++) {
+                    long chaveMsb = chaves[2 * i];
+                    long chaveLsb = chaves[2 * i + 1];
+                    atual.remover(atual.localizar(chaveMsb, chaveLsb, hash(chaveMsb, chaveLsb)));
+                }
+                tamanho -= removidas;
+                return removidas;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Arrays paralelos de uma geração da tabela; substituídos por inteiro ao redimensionar
+     */
+    private static final class Tabela {
+
+        final long[] msb;
+        final long[] lsb;
+        final byte[] nivel;
+        final int[] verificado;
+        final int[] expira;
+        final int mascara;
+
+        Tabela(int capacidade) {
+            msb = new long[capacidade];
+            lsb = new long[capacidade];
+            nivel = new byte[capacidade];
+            verificado = new int[capacidade];
+            expira = new int[capacidade];
+            mascara = capacidade - 1;
+        }
+
+        int capacidade() {
+            return mascara + 1;
+        }
+
+        /**
+         * Posição da chave ou, se ausente, a posição livre onde ela seria inserida
+         */
+        int localizar(long chaveMsb, long chaveLsb, long hash) {
+            int posicao = (int) hash & mascara;
+            for (int i = 0; i <= mascara; i++) {
+                if (nivel[posicao] == LevelCodec.DESCONHECIDO
+                        || (msb[posicao] == chaveMsb && lsb[posicao] == chaveLsb)) {
+                    return posicao;
+                }
+                posicao = (posicao + 1) & mascara;
+            }
+            return posicao;
+        }
+
+        /**
+         * Pode ler um estado intermediário durante leitura otimista; o chamador valida o stamp
+         */
+        CachedLevel ler(long chaveMsb, long chaveLsb, long hash) {
+            int posicao = localizar(chaveMsb, chaveLsb, hash);
+            if (nivel[posicao] == LevelCodec.DESCONHECIDO
+                    || msb[posicao] != chaveMsb || lsb[posicao] != chaveLsb) {
+                return null;
+            }
+            return entrada(posicao);
+        }
+
+        CachedLevel entrada(int posicao) {
+            String nomeNivel = LevelCodec.decodificar(nivel[posicao]);
+            return nomeNivel == null ? null
+                    : new CachedLevel(nomeNivel, millis(verificado[posicao]), millis(expira[posicao]));
+        }
+
+        void gravar(int posicao, long chaveMsb, long chaveLsb, byte codigo, int verificadoEm, int expiraEm) {
+            msb[posicao] = chaveMsb;
+            lsb[posicao] = chaveLsb;
+            verificado[posicao] = verificadoEm;
+            expira[posicao] = expiraEm;
+            nivel[posicao] = codigo;
+        }
+
+        /**
+         * Remoção por deslocamento para trás, sem marcadores de posição apagada
+         */
+        void remover(int posicao) {
+            int livre = posicao;
+            int atual = posicao;
+            while (true) {
+                atual = (atual + 1) & mascara;
+                if (nivel[atual] == LevelCodec.DESCONHECIDO) {
+                    break;
+                }
+                int ideal = (int) hash(msb[atual], lsb[atual]) & mascara;
+                boolean podeMover = livre <= atual
+                        ? ideal <= livre || ideal > atual
+                        : ideal <= livre && ideal > atual;
+                if (podeMover) {
+                    gravar(livre, msb[atual], lsb[atual], nivel[atual], verificado[atual], expira[atual]);
+                    livre = atual;
+                }
+            }
+            nivel[livre] = LevelCodec.DESCONHECIDO;
+        }
+
+        /**
+         * Copia as entradas para uma nova tabela com a capacidade informada
+         */
+        Tabela redimensionar(int capacidade) {
+            Tabela nova = new Tabela(capacidade);
+            for (int i = 0; i <= mascara; i++) {
+                if (nivel[i] == LevelCodec.DESCONHECIDO) {
+                    continue;
+                }
+                int posicao = nova.localizar(msb[i], lsb[i], hash(msb[i], lsb[i]));
+                nova.gravar(posicao, msb[i], lsb[i], nivel[i], verificado[i], expira[i]);
+            }
+            return nova;
+        }
+    }
+
+    /**
+     * Aceita apenas a forma canônica (minúscula, com hífens) para que a conversão seja reversível
+     */
+    static boolean isUuidCanonico(String id) {
+        if (id == null || id.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = id.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long msb(String uuid) {
+        return hex(uuid, 0, 18);
+    }
+
+    private static long lsb(String uuid) {
+        return hex(uuid, 19, 36);
+    }
+
+    private static long hex(String uuid, int inicio, int fim) {
+        long valor = 0;
+        for (int i = inicio; i < fim; i++) {
+            char c = uuid.charAt(i);
+            if (c != '-') {
+                valor = (valor << 4) | Character.digit(c, 16);
+            }
+        }
+        return valor;
+    }
+
+    /**
+     * Mistura final do MurmurHash3 sobre as duas metades do UUID
+     */
+    static long hash(long msb, long lsb) {
+        long h = msb ^ Long.rotateLeft(lsb, 32);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static int segundos(long millis) {
+        long segundos = (millis - EPOCH_MILLIS) / 1000;
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, segundos));
+    }
+
+    private static long millis(int segundos) {
+        return EPOCH_MILLIS + segundos * 1000L;
+    }
+}
@@ -0,0 +1,374 @@
+package br.com.spi.govbr.cache;
+
+import br.com.spi.govbr.jfr.GovBrCacheLookupEvent;
+import org.jboss.logging.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Cache em memória dos níveis Gov.br, particionado por realm em {@link CompactLevelStore}s.
+ *
+ * Para que usuários validados no mesmo pico não expirem juntos, o TTL de cada entrada é
+ * sorteado entre {@code ttl × (1 − jitter)} e {@code ttl}. Perto da expiração, a consulta
+ * pode ainda tratar a entrada como expirada de forma probabilística (XFetch): a chance
+ * cresce conforme {@code exp(−restante / (custo × beta))}, em que custo é o tempo médio
+ * de uma consulta à API, de modo que poucas requisições renovam a entrada antes do prazo.
+ * Se essa renovação falhar, a entrada ainda está dentro do TTL e continua valendo
+ * ({@link #reaproveitarAposFalha}).
+ *
+ * Entradas expiradas são removidas por {@link #removerExpiradas}, executada periodicamente fora do
+ * login. Com o cache cheio, um único put por vez despeja um lote de entradas de uma vez
+ * (1/64 da capacidade), e não uma entrada a cada put.
+ */
+public class LevelCache {
+
+    private static final Logger logger = Logger.getLogger(LevelCache.class);
+
+    private static final int FRACAO_LOTE_DESPEJO = 64;
+
+    private final ConcurrentHashMap<String, CompactLevelStore> realms = new ConcurrentHashMap<>();
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final int jitterPercent;
+    private final double betaRenovacao;
+    private final ToIntFunction<String> pesoRealm;
+    private final int loteDespejo;
+    private final AtomicBoolean despejando = new AtomicBoolean();
+    private final LongSupplier relogio;
+
+    // Média móvel do tempo de uma consulta à API (ms), usada pelo XFetch
+    private volatile double custoRecalculoMillis;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expiradasRemovidas = new LongAdder();
+    private final LongAdder renovacoesAntecipadas = new LongAdder();
+    private final LongAdder renovacoesFalhas = new LongAdder();
+
+    public LevelCache(long ttlMillis, int maxEntries) {
+        this(ttlMillis, maxEntries, 0, 0, realmId -> 1);
+    }
+
+    /**
+     * @param jitterPercent redução aleatória máxima do TTL, em % (0 desabilita)
+     * @param betaRenovacao agressividade da renovação antecipada (0 desabilita)
+     * @param pesoRealm peso de cada realm na divisão das entradas quando o cache está cheio
+     */
+    public LevelCache(long ttlMillis, int maxEntries, int jitterPercent, double betaRenovacao,
+                      ToIntFunction<String> pesoRealm) {
+        this(ttlMillis, maxEntries, jitterPercent, betaRenovacao, pesoRealm, System::currentTimeMillis);
+    }
+
+    /**
+     * @param relogio fonte do instante atual (epoch millis), substituída em testes e simulações
+     */
+    LevelCache(long ttlMillis, int maxEntries, int jitterPercent, double betaRenovacao,
+               ToIntFunction<String> pesoRealm, LongSupplier relogio) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.jitterPercent = jitterPercent;
+        this.betaRenovacao = betaRenovacao;
+        this.pesoRealm = pesoRealm;
+        this.loteDespejo = Math.max(1, maxEntries / FRACAO_LOTE_DESPEJO);
+        this.relogio = relogio;
+    }
+
+    /**
+     * Retorna o nível em cache ou null se ausente/expirado
+     */
+    public CachedLevel get(String realmId, String userId) {
+        GovBrCacheLookupEvent evento = new GovBrCacheLookupEvent();
+        evento.begin();
+
+        CompactLevelStore partition = realms.get(realmId);
+        CachedLevel cached = partition != null ? partition.get(userId) : null;
+
+        if (cached == null) {
+            misses.increment();
+            registrarConsulta(evento, realmId, "MISS");
+            return null;
+        }
+
+        long now = relogio.getAsLong();
+        if (cached.isExpired(now)) {
+            // Expirada: fica para ser sobrescrita pelo próximo put ou removida pela limpeza periódica
+            misses.increment();
+            registrarConsulta(evento, realmId, "EXPIRED");
+            return null;
+        }
+
+        if (renovarAntes(cached, now)) {
+            renovacoesAntecipadas.increment();
+            misses.increment();
+            registrarConsulta(evento, realmId, "EARLY_REFRESH");
+            return null;
+        }
+
+        hits.increment();
+        registrarConsulta(evento, realmId, "HIT");
+        return cached;
+    }
+
+    /**
+     * Nível ainda dentro do TTL, para quando a consulta à API que o renovaria falha: se o
+     * {@link #get} antecipou a renovação, a entrada continua válida e é usada no lugar do erro
+     */
+    public CachedLevel reaproveitarAposFalha(String realmId, String userId) {
+        CompactLevelStore partition = realms.get(realmId);
+        CachedLevel cached = partition != null ? partition.get(userId) : null;
+        if (cached == null || cached.isExpired(relogio.getAsLong())) {
+            return null;
+        }
+        renovacoesFalhas.increment();
+        return cached;
+    }
+
+    private static void registrarConsulta(GovBrCacheLookupEvent evento, String realmId, String resultado) {
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.realmId = realmId;
+            evento.result = resultado;
+            evento.commit();
+        }
+    }
+
+    /**
+     * XFetch: {@code now − custo × beta × ln(U) ≥ expiração}, com U uniforme em (0, 1]
+     */
+    private boolean renovarAntes(CachedLevel cached, long now) {
+        double custo = custoRecalculoMillis;
+        if (betaRenovacao <= 0 || custo <= 0) {
+            return false;
+        }
+        double u = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return now - custo * betaRenovacao * Math.log(u) >= cached.expiresAt();
+    }
+
+    public void put(String realmId, String userId, String userLevel) {
+        put(realmId, userId, userLevel, -1);
+    }
+
+    /**
+     * Armazena o nível informando quanto tempo a consulta à API levou (negativo se desconhecido)
+     */
+    public void put(String realmId, String userId, String userLevel, long custoMillis) {
+        if (custoMillis >= 0) {
+            double atual = custoRecalculoMillis;
+            custoRecalculoMillis = atual == 0 ? custoMillis : atual + 0.05 * (custoMillis - atual);
+        }
+
+        // Enquanto uma thread despeja, as demais gravam sem esperar: o lote cobre o excedente
+        if (tamanho() >= maxEntries && despejando.compareAndSet(false, true)) {
+            try {
+                liberarEspaco(realmId);
+            } finally {
+                despejando.set(false);
+            }
+        }
+
+        long now = relogio.getAsLong();
+        realms.computeIfAbsent(realmId, id -> new CompactLevelStore())
+                .put(userId, new CachedLevel(userLevel, now, now + ttlComJitter()), true);
+    }
+
+    private long ttlComJitter() {
+        if (jitterPercent <= 0) {
+            return ttlMillis;
+        }
+        long reducaoMaxima = ttlMillis * jitterPercent / 100;
+        return ttlMillis - ThreadLocalRandom.current().nextLong(reducaoMaxima + 1);
+    }
+
+    /**
+     * Restaura uma entrada preservando seus tempos originais (carga de snapshot)
+     */
+    public boolean restaurar(String realmId, String userId, CachedLevel cached) {
+        if (cached.isExpired(relogio.getAsLong()) || tamanho() >= maxEntries) {
+            return false;
+        }
+        return realms.computeIfAbsent(realmId, id -> new CompactLevelStore())
+                .put(userId, cached, false);
+    }
+
+    public void paraCadaEntrada(BiConsumer<LevelCacheKey, CachedLevel> consumer) {
+        realms.forEach((realmId, partition) ->
+                partition.forEach((userId, cached) -> consumer.accept(new LevelCacheKey(realmId, userId), cached)));
+    }
+
+    public boolean invalidar(String realmId, String userId) {
+        CompactLevelStore partition = realms.get(realmId);
+        return partition != null && partition.remove(userId);
+    }
+
+    public int invalidarRealm(String realmId) {
+        CompactLevelStore partition = realms.remove(realmId);
+        int removidos = partition != null ? (int) partition.size() : 0;
+        logger.infof("Cache de níveis invalidado para realm %s (%d entradas)", realmId, removidos);
+        return removidos;
+    }
+
+    /**
+     * Lista as entradas ainda válidas que expiram dentro da janela informada, das mais próximas às
+     * mais distantes, exceto as recusadas por {@code ignorar}. Entradas já expiradas ficam de fora:
+     * serão renovadas pelo próximo login ou descartadas pela limpeza.
+     */
+    public List<LevelCacheKey> proximosDeExpirar(long janelaMillis, int limite, Predicate<LevelCacheKey> ignorar) {
+        if (limite <= 0) {
+            return List.of();
+        }
+        long now = relogio.getAsLong();
+        long limiteExpiracao = now + janelaMillis;
+
+        // Heap dos "limite" candidatos mais próximos, com o mais distante no topo
+        PriorityQueue<Map.Entry<LevelCacheKey, Long>> candidatos = new PriorityQueue<>(limite + 1,
+                Map.Entry.<LevelCacheKey, Long>comparingByValue().reversed());
+
+        realms.forEach((realmId, partition) -> partition.forEach((userId, cached) -> {
+            long expiresAt = cached.expiresAt();
+            if (expiresAt <= now || expiresAt > limiteExpiracao) {
+                return;
+            }
+            if (candidatos.size() == limite && expiresAt >= candidatos.peek().getValue()) {
+                return;
+            }
+            LevelCacheKey chave = new LevelCacheKey(realmId, userId);
+            if (ignorar.test(chave)) {
+                return;
+            }
+            candidatos.add(Map.entry(chave, expiresAt));
+            if (candidatos.size() > limite) {
+                candidatos.poll();
+            }
+        }));
+
+        return candidatos.stream()
+                .sorted(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    /**
+     * Remove as entradas expiradas de todos os realms
+     */
+    public int removerExpiradas() {
+        long now = relogio.getAsLong();
+        int removidas = 0;
+        for (CompactLevelStore partition : realms.values()) {
+            removidas += partition.removerExpiradas(now);
+        }
+        expiradasRemovidas.add(removidas);
+        return removidas;
+    }
+
+    public long tamanho() {
+        long total = 0;
+        for (CompactLevelStore partition : realms.values()) {
+            total += partition.size();
+        }
+        return total;
+    }
+
+    public long bytesEstimados() {
+        long total = 0;
+        for (CompactLevelStore partition : realms.values()) {
+            total += partition.bytesEstimados();
+        }
+        return total;
+    }
+
+    private double somaPesos(String realmInserindo) {
+        double soma = realms.containsKey(realmInserindo) ? 0 : pesoRealm.applyAsInt(realmInserindo);
+        for (Map.Entry<String, CompactLevelStore> realm : realms.entrySet()) {
+            if (realm.getValue().size() > 0 || realm.getKey().equals(realmInserindo)) {
+                soma += pesoRealm.applyAsInt(realm.getKey());
+            }
+        }
+        return soma;
+    }
+
+    private double cota(String realmId, double somaPesos) {
+        return somaPesos == 0 ? maxEntries : (double) maxEntries * pesoRealm.applyAsInt(realmId) / somaPesos;
+    }
+
+    /**
+     * Entradas e cota atual do realm no cache
+     */
+    public Map<String, Object> estatisticasRealm(String realmId) {
+        CompactLevelStore partition = realms.get(realmId);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("realmId", realmId);
+        stats.put("weight", pesoRealm.applyAsInt(realmId));
+        stats.put("size", partition != null ? partition.size() : 0);
+        stats.put("share", Math.round(cota(realmId, somaPesos(realmId))));
+        return stats;
+    }
+
+    public Map<String, Object> estatisticas() {
+        long h = hits.sum();
+        long m = misses.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", tamanho());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlSeconds", ttlMillis / 1000);
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("hitRate", h + m == 0 ? 0.0 : (double) h / (h + m));
+        stats.put("evictions", evictions.sum());
+        stats.put("expiredRemoved", expiradasRemovidas.sum());
+        stats.put("ttlJitterPercent", jitterPercent);
+        stats.put("earlyRefreshBeta", betaRenovacao);
+        stats.put("earlyRefreshes", renovacoesAntecipadas.sum());
+        stats.put("earlyRefreshFallbacks", renovacoesFalhas.sum());
+        stats.put("refreshCostMillis", Math.round(custoRecalculoMillis));
+        stats.put("estimatedBytes", bytesEstimados());
+        return stats;
+    }
+
+    /**
+     * Despeja um lote de entradas do realm mais acima da sua cota (entradas × peso / soma dos pesos
+     * dos realms em cache), para que um realm não expulse os demais do cache
+     */
+    private void liberarEspaco(String realmInserindo) {
+        long excedenteTotal = tamanho() - maxEntries + loteDespejo;
+        if (excedenteTotal <= 0) {
+            return;
+        }
+        CompactLevelStore maisAcimaDaCota = null;
+        double maiorExcesso = Double.NEGATIVE_INFINITY;
+        double somaPesos = somaPesos(realmInserindo);
+        for (Map.Entry<String, CompactLevelStore> realm : realms.entrySet()) {
+            double excesso = realm.getValue().size() - cota(realm.getKey(), somaPesos);
+            if (excesso > maiorExcesso) {
+                maiorExcesso = excesso;
+                maisAcimaDaCota = realm.getValue();
+            }
+        }
+        long despejadas = 0;
+        if (maisAcimaDaCota != null) {
+            despejadas = maisAcimaDaCota.despejar((int) Math.min(excedenteTotal, Integer.MAX_VALUE));
+        }
+
+        // O realm escolhido pode não ter entradas suficientes: completa com os demais
+        for (CompactLevelStore partition : realms.values()) {
+            if (despejadas >= excedenteTotal) {
+                break;
+            }
+            despejadas += partition.despejar((int) Math.min(excedenteTotal - despejadas, Integer.MAX_VALUE));
+        }
+        evictions.add(despejadas);
+    }
+}
@@ -0,0 +1,31 @@
+package br.com.spi.govbr.cache;
+
+import org.keycloak.cluster.ClusterEvent;
+
+/**
+ * Evento de cluster para invalidar o cache de níveis nos demais nós.
+ * Sem userId, invalida todo o realm.
+ */
+public class LevelCacheInvalidationEvent implements ClusterEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    private String realmId;
+    private String userId;
+
+    public LevelCacheInvalidationEvent() {
+    }
+
+    public LevelCacheInvalidationEvent(String realmId, String userId) {
+        this.realmId = realmId;
+        this.userId = userId;
+    }
+
+    public String getRealmId() {
+        return realmId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+}
@@ -0,0 +1,109 @@
+package br.com.spi.govbr.cache;
+
+import br.com.spi.govbr.config.GovBrConfig;
+import org.jboss.logging.Logger;
+import org.keycloak.cluster.ClusterEvent;
+import org.keycloak.cluster.ClusterProvider;
+import org.keycloak.models.FederatedIdentityModel;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.provider.ProviderEvent;
+import org.keycloak.provider.ProviderEventListener;
+
+/**
+ * Invalida o cache de níveis em todos os nós quando o vínculo Gov.br muda,
+ * o usuário é removido ou o realm/identity provider deixa de existir.
+ */
+public class LevelCacheInvalidator implements ProviderEventListener {
+
+    private static final Logger logger = Logger.getLogger(LevelCacheInvalidator.class);
+
+    private final LevelCache levelCache;
+
+    public LevelCacheInvalidator(LevelCache levelCache) {
+        this.levelCache = levelCache;
+    }
+
+    /**
+     * Registra os listeners de eventos do modelo e do cluster
+     */
+    // ClusterProvider é deprecated no Keycloak 24, mas não há outra API para notificar os demais nós
+    @SuppressWarnings("deprecation")
+    public void registrar(KeycloakSessionFactory factory) {
+        factory.register(this);
+
+        KeycloakModelUtils.runJobInTransaction(factory, session -> {
+            ClusterProvider cluster = session.getProvider(ClusterProvider.class);
+            if (cluster != null) {
+                cluster.registerListener(GovBrConfig.CACHE_INVALIDATION_CLUSTER_KEY, this::aplicar);
+            }
+        });
+    }
+
+    public void desregistrar(KeycloakSessionFactory factory) {
+        factory.unregister(this);
+    }
+
+    @Override
+    public void onEvent(ProviderEvent event) {
+        if (event instanceof FederatedIdentityModel.FederatedIdentityCreatedEvent created) {
+            if (isGovBr(created.getFederatedIdentity())) {
+                invalidarUsuario(created.getKeycloakSession(), created.getRealm().getId(), created.getUser().getId());
+            }
+        } else if (event instanceof FederatedIdentityModel.FederatedIdentityRemovedEvent removed) {
+            if (isGovBr(removed.getFederatedIdentity())) {
+                invalidarUsuario(removed.getKeycloakSession(), removed.getRealm().getId(), removed.getUser().getId());
+            }
+        } else if (event instanceof UserModel.UserRemovedEvent userRemoved) {
+            invalidarUsuario(userRemoved.getKeycloakSession(), userRemoved.getRealm().getId(), userRemoved.getUser().getId());
+        } else if (event instanceof RealmModel.IdentityProviderRemovedEvent idpRemoved) {
+            if (GovBrConfig.PROVIDER_ALIAS.equals(idpRemoved.getRemovedIdentityProvider().getAlias())) {
+                invalidarRealm(idpRemoved.getKeycloakSession(), idpRemoved.getRealm().getId());
+            }
+        } else if (event instanceof RealmModel.RealmRemovedEvent realmRemoved) {
+            invalidarRealm(realmRemoved.getKeycloakSession(), realmRemoved.getRealm().getId());
+        }
+    }
+
+    public void invalidarUsuario(KeycloakSession session, String realmId, String userId) {
+        levelCache.invalidar(realmId, userId);
+        notificarCluster(session, new LevelCacheInvalidationEvent(realmId, userId));
+    }
+
+    public int invalidarRealm(KeycloakSession session, String realmId) {
+        int removidos = levelCache.invalidarRealm(realmId);
+        notificarCluster(session, new LevelCacheInvalidationEvent(realmId, null));
+        return removidos;
+    }
+
+    // ClusterProvider é deprecated no Keycloak 24, mas não há outra API para notificar os demais nós
+    @SuppressWarnings("deprecation")
+    private void notificarCluster(KeycloakSession session, LevelCacheInvalidationEvent event) {
+        ClusterProvider cluster = session.getProvider(ClusterProvider.class);
+        if (cluster != null) {
+            cluster.notify(GovBrConfig.CACHE_INVALIDATION_CLUSTER_KEY, event, true,
+                    ClusterProvider.DCNotify.ALL_DCS);
+        }
+    }
+
+    private void aplicar(ClusterEvent clusterEvent) {
+        if (!(clusterEvent instanceof LevelCacheInvalidationEvent event)) {
+            return;
+        }
+
+        if (event.getUserId() == null) {
+            levelCache.invalidarRealm(event.getRealmId());
+        } else {
+            levelCache.invalidar(event.getRealmId(), event.getUserId());
+            logger.debugf("Cache de nível invalidado via cluster para usuário %s", event.getUserId());
+        }
+    }
+
+    private boolean isGovBr(FederatedIdentityModel federatedIdentity) {
+        return federatedIdentity != null
+                && GovBrConfig.PROVIDER_ALIAS.equals(federatedIdentity.getIdentityProvider());
+    }
+}
@@ -0,0 +1,10 @@
+package br.com.spi.govbr.cache;
+
+/**
+ * Identifica uma entrada do cache de níveis
+ */
+public record LevelCacheKey(
+        String realmId,
+        String userId
+) {
+}
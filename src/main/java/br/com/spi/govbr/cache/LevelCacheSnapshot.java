@@ -0,0 +1,200 @@
+package br.com.spi.govbr.cache;
+
+import br.com.spi.govbr.util.LevelCodec;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot do cache de níveis em arquivo binário, gravado e lido sequencialmente pelo
+ * {@link FileChannel}. Sem mmap: um mapeamento vivo impede o move do temporário sobre o arquivo no
+ * Windows e, nas demais plataformas, só é liberado pelo GC.
+ *
+ * Formato: magic (int), versão (short), criado em (long), quantidade (int), entradas
+ * [realmId, userId (short + UTF-8), código do nível (byte), verificado em (long), expira em (long)]
+ * e CRC32 (long) de todo o conteúdo anterior. Arquivos corrompidos ou de outra versão são descartados.
+ */
+public class LevelCacheSnapshot {
+
+    private static final Logger logger = Logger.getLogger(LevelCacheSnapshot.class);
+
+    private static final int MAGIC = 0x47424C43; // "GBLC"
+    private static final short VERSAO = 1;
+    private static final int CABECALHO = Integer.BYTES + Short.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+
+    private final Path arquivo;
+
+    public LevelCacheSnapshot(Path arquivo) {
+        this.arquivo = arquivo;
+    }
+
+    /**
+     * Grava o cache em um arquivo temporário e o move atomicamente para o destino
+     */
+    public int gravar(LevelCache cache) {
+        long agora = System.currentTimeMillis();
+        List<byte[]> realms = new ArrayList<>();
+        List<byte[]> users = new ArrayList<>();
+        List<CachedLevel> niveis = new ArrayList<>();
+
+        cache.paraCadaEntrada((chave, cached) -> {
+            if (!cached.isExpired(agora) && LevelCodec.codificar(cached.userLevel()) != LevelCodec.DESCONHECIDO) {
+                realms.add(chave.realmId().getBytes(StandardCharsets.UTF_8));
+                users.add(chave.userId().getBytes(StandardCharsets.UTF_8));
+                niveis.add(cached);
+            }
+        });
+
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(arquivo.toAbsolutePath().getParent());
+            Files.deleteIfExists(temporario);
+
+            try (FileChannel channel = FileChannel.open(temporario, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_BUFFER);
+                CRC32 crc = new CRC32();
+
+                buffer.putInt(MAGIC).putShort(VERSAO).putLong(agora).putInt(niveis.size());
+                for (int i = 0; i < niveis.size(); i++) {
+                    CachedLevel cached = niveis.get(i);
+                    int tamanhoEntrada = Short.BYTES + realms.get(i).length + Short.BYTES + users.get(i).length
+                            + Byte.BYTES + Long.BYTES + Long.BYTES;
+                    if (buffer.remaining() < tamanhoEntrada) {
+                        descarregar(channel, buffer, crc);
+                    }
+                    escreverTexto(buffer, realms.get(i));
+                    escreverTexto(buffer, users.get(i));
+                    buffer.put(LevelCodec.codificar(cached.userLevel()));
+                    buffer.putLong(cached.verifiedAt());
+                    buffer.putLong(cached.expiresAt());
+                }
+
+                descarregar(channel, buffer, crc);
+                buffer.putLong(crc.getValue());
+                descarregar(channel, buffer, null);
+                channel.force(true);
+            }
+
+            Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debugf("Snapshot do cache Gov.br gravado: %d entradas em %s", niveis.size(), arquivo);
+            return niveis.size();
+
+        } catch (Exception e) {
+            logger.warnf("Falha ao gravar snapshot do cache Gov.br em %s: %s", arquivo, e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Carrega as entradas ainda válidas do snapshot; em caso de corrupção o arquivo é descartado
+     */
+    public int carregar(LevelCache cache) {
+        if (!Files.isRegularFile(arquivo)) {
+            return 0;
+        }
+
+        try (FileChannel channel = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = channel.size();
+            if (tamanho < CABECALHO + Long.BYTES || tamanho > Integer.MAX_VALUE) {
+                throw new IllegalStateException("tamanho inválido");
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) tamanho);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IllegalStateException("arquivo truncado");
+                }
+            }
+            buffer.flip();
+
+            long crcEsperado = buffer.getLong((int) tamanho - Long.BYTES);
+            if (crc(buffer, (int) tamanho - Long.BYTES) != crcEsperado) {
+                throw new IllegalStateException("CRC inválido");
+            }
+
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSAO) {
+                throw new IllegalStateException("formato desconhecido");
+            }
+            buffer.getLong(); // criado em
+            int quantidade = buffer.getInt();
+
+            int restaurados = 0;
+            for (int i = 0; i < quantidade; i++) {
+                String realmId = lerTexto(buffer);
+                String userId = lerTexto(buffer);
+                String nivel = LevelCodec.decodificar(buffer.get());
+                long verifiedAt = buffer.getLong();
+                long expiresAt = buffer.getLong();
+
+                if (nivel != null && cache.restaurar(realmId, userId, new CachedLevel(nivel, verifiedAt, expiresAt))) {
+                    restaurados++;
+                }
+            }
+
+            logger.infof("Snapshot do cache Gov.br carregado: %d de %d entradas ainda válidas",
+                    restaurados, quantidade);
+            return restaurados;
+
+        } catch (IllegalStateException | BufferUnderflowException | IllegalArgumentException e) {
+            logger.warnf("Snapshot do cache Gov.br descartado (%s): %s", e.getMessage(), arquivo);
+            descartar();
+            return 0;
+        } catch (Exception e) {
+            logger.warnf("Falha ao carregar snapshot do cache Gov.br: %s", e.getMessage());
+            return 0;
+        }
+    }
+
+    private void descartar() {
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (Exception e) {
+            logger.debugf("Não foi possível remover snapshot corrompido: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Grava o conteúdo do buffer no canal, acumulando-o no CRC se informado, e o esvazia
+     */
+    private static void descarregar(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        buffer.flip();
+        if (crc != null) {
+            crc.update(buffer.duplicate());
+        }
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void escreverTexto(ByteBuffer buffer, byte[] texto) {
+        buffer.putShort((short) texto.length);
+        buffer.put(texto);
+    }
+
+    private static String lerTexto(ByteBuffer buffer) {
+        int tamanho = Short.toUnsignedInt(buffer.getShort());
+        byte[] texto = new byte[tamanho];
+        buffer.get(texto);
+        return new String(texto, StandardCharsets.UTF_8);
+    }
+
+    private static long crc(ByteBuffer buffer, int limite) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(0).limit(limite));
+        return crc.getValue();
+    }
+}
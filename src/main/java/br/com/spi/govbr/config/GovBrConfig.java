@@ -15,8 +15,108 @@ public class GovBrConfig {
     public static final int REQUEST_TIMEOUT = 30;
     public static final int CONNECT_TIMEOUT = 10;
 
+    // Por quanto tempo um token renovado é reaproveitado por requisições que receberam o mesmo token rejeitado
+    public static final int TOKEN_REFRESH_REUSE_SECONDS = 30;
+
+    // Cliente HTTP: versão preferida e threads do executor (0 = padrão do JDK)
+    public static final String HTTP_VERSION = "HTTP_2";
+    public static final int HTTP_EXECUTOR_THREADS = 0;
+
+    // Limite adaptativo de consultas simultâneas por nó: parte do inicial e se ajusta entre mínimo e máximo
+    public static final int MIN_CONCURRENT_REQUESTS = 4;
+    public static final int INITIAL_CONCURRENT_REQUESTS = 16;
+    public static final int MAX_CONCURRENT_REQUESTS = 64;
+
+    // Peso de realms fora de realm-weights na divisão da concorrência e do cache entre realms
+    public static final int REALM_DEFAULT_WEIGHT = 1;
+
+    // Timeout adaptativo da API de nível: percentil observado × multiplicador, dentro dos limites
+    public static final int ADAPTIVE_TIMEOUT_MIN_MILLIS = 1_000;
+    public static final int ADAPTIVE_TIMEOUT_MAX_MILLIS = 5_000;
+    public static final double ADAPTIVE_TIMEOUT_PERCENTILE = 0.99;
+    public static final int ADAPTIVE_TIMEOUT_MULTIPLIER = 3;
+    public static final int LATENCY_WINDOW_SECONDS = 60;
+    public static final int LATENCY_MIN_SAMPLES = 50;
+
+    // Sobrecarga: validações simultâneas por nó (0 desabilita) e Retry-After da resposta 503
+    public static final int OVERLOAD_MAX_INFLIGHT_VALIDATIONS = 256;
+    public static final int OVERLOAD_RETRY_AFTER_SECONDS = 5;
+
+    // Prazo total de uma validação (consulta, renovação de token e nova tentativa)
+    public static final int LOGIN_DEADLINE_MILLIS = 10_000;
+
+    // Nível derivado localmente da claim do access token, verificado contra o JWKS (desabilitado sem jwks-url)
+    public static final String LEVEL_CLAIM = "nivel";
+    public static final int JWKS_REFRESH_SECONDS = 3600;
+    public static final int JWKS_MIN_REFRESH_SECONDS = 30;
+    public static final String JWKS_REFRESH_TASK_NAME = "govbr-jwks-refresh";
+
+    // Cache de níveis
+    public static final int CACHE_TTL_SECONDS = 300;
+    public static final int CACHE_MAX_ENTRIES = 100_000;
+
+    // Remoção periódica das entradas expiradas, fora do caminho do login
+    public static final int CACHE_SWEEP_INTERVAL_SECONDS = 60;
+    public static final String CACHE_SWEEP_TASK_NAME = "govbr-level-cache-sweep";
+
+    // Expiração espalhada: redução aleatória do TTL (%) e beta da renovação antecipada XFetch (0 desabilita)
+    public static final int CACHE_TTL_JITTER_PERCENT = 10;
+    public static final double CACHE_EARLY_REFRESH_BETA = 1.0;
+
+    // Nível aprovado na sessão SSO reaproveitado em logins em outros clients (0 desabilita)
+    public static final int SSO_SESSION_FRESHNESS_SECONDS = 300;
+
+    // Snapshot do cache em disco para reinícios com cache aquecido
+    public static final String SNAPSHOT_FILE = "govbr-level-cache.snapshot";
+    public static final int SNAPSHOT_INTERVAL_SECONDS = 300;
+    public static final String SNAPSHOT_TASK_NAME = "govbr-level-cache-snapshot";
+
+    // Auditoria das decisões de nível em arquivos JSONL rotacionados (gravação assíncrona, desabilitada por padrão)
+    public static final boolean AUDIT_ENABLED = false;
+    public static final String AUDIT_DIR = "govbr-audit";
+    public static final int AUDIT_BUFFER_SIZE = 8192;
+    public static final int AUDIT_MAX_FILE_MB = 64;
+    // 0: nenhum arquivo é apagado; a trilha de auditoria fica completa e a retenção, com a infraestrutura
+    public static final int AUDIT_MAX_FILES = 0;
+    public static final String AUDIT_OVERFLOW_POLICY = "DROP";
+
+    // Captura de traces anonimizados de login para testes de capacidade (LoginTraceReplay)
+    public static final boolean TRACE_CAPTURE_ENABLED = false;
+    public static final String TRACE_DIR = "govbr-traces";
+    public static final int TRACE_QUEUE_SIZE = 4096;
+
+    // Invalidação do cache replicada no cluster
+    public static final String CACHE_INVALIDATION_CLUSTER_KEY = "govbr-level-cache-invalidation";
+
+    // Atualização antecipada (refresh-ahead) de níveis de usuários com sessão ativa
+    public static final int REFRESH_AHEAD_INTERVAL_SECONDS = 30;
+    public static final int REFRESH_AHEAD_WINDOW_SECONDS = 60;
+    public static final int REFRESH_AHEAD_BATCH_SIZE = 50;
+    public static final String REFRESH_AHEAD_TASK_NAME = "govbr-level-refresh-ahead";
+
+    // Circuit breaker da API de nível
+    public static final int BREAKER_FAILURE_THRESHOLD = 5;
+    public static final int BREAKER_OPEN_SECONDS = 30;
+
+    // Encaminhamento assíncrono de eventos
+    public static final String EVENT_LISTENER_ID = "govbr-level-events";
+    public static final int EVENT_QUEUE_CAPACITY = 10_000;
+
+    // Administração
+    public static final String ADMIN_RESOURCE_ID = "govbr-level";
+    public static final int WARMUP_MAX_USERS = 500;
+
+    // Aquecimentos executados em segundo plano: consultas em paralelo, fila e aquecimentos consultáveis
+    public static final int WARMUP_THREADS = 4;
+    public static final int WARMUP_QUEUE_SIZE = WARMUP_MAX_USERS * 4;
+    public static final int WARMUP_JOB_HISTORY = 20;
+
     // Níveis aceitos (apenas Ouro)
     public static final String[] ACCEPTED_LEVELS = {"Ouro"};
 
+    // Política por realm/client (atributo com níveis separados por vírgula, ex: "Prata,Ouro")
+    public static final String POLICY_ATTRIBUTE = "govbr.accepted.levels";
+    public static final int POLICY_REFRESH_SECONDS = 60;
+
     private GovBrConfig() {}
 }
\ No newline at end of file
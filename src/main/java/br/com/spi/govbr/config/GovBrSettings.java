@@ -0,0 +1,503 @@
+package br.com.spi.govbr.config;
+
+import br.com.spi.govbr.audit.LevelAuditLog;
+import br.com.spi.govbr.policy.AcceptedLevels;
+import org.keycloak.Config;
+import org.keycloak.provider.ProviderConfigProperty;
+import org.keycloak.provider.ProviderConfigurationBuilder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ajustes de desempenho lidos da configuração SPI do authenticator, com os valores de
+ * {@link GovBrConfig} como padrão. Cada opção pode ser informada como
+ * {@code --spi-authenticator-govbr-level-validator-<opção>} ou pela variável de ambiente
+ * {@code KC_SPI_AUTHENTICATOR_GOVBR_LEVEL_VALIDATOR_<OPÇÃO>}.
+ */
+public record GovBrSettings(
+        URI nivelApiUrl,
+        int connectTimeoutSeconds,
+        int tokenRequestTimeoutSeconds,
+        HttpClient.Version httpVersion,
+        int httpExecutorThreads,
+        int minConcurrentRequests,
+        int initialConcurrentRequests,
+        int maxConcurrentRequests,
+        RealmWeights realmWeights,
+        int overloadMaxInflightValidations,
+        int overloadRetryAfterSeconds,
+        int adaptiveTimeoutMinMillis,
+        int adaptiveTimeoutMaxMillis,
+        double adaptiveTimeoutPercentile,
+        int adaptiveTimeoutMultiplier,
+        int latencyWindowSeconds,
+        int latencyMinSamples,
+        int loginDeadlineMillis,
+        int cacheTtlSeconds,
+        int cacheMaxEntries,
+        int cacheTtlJitterPercent,
+        double cacheEarlyRefreshBeta,
+        int ssoSessionFreshnessSeconds,
+        int breakerFailureThreshold,
+        int breakerOpenSeconds,
+        int refreshAheadIntervalSeconds,
+        int refreshAheadWindowSeconds,
+        int refreshAheadBatchSize,
+        int policyRefreshSeconds,
+        Path snapshotPath,
+        int snapshotIntervalSeconds,
+        boolean auditEnabled,
+        Path auditDir,
+        int auditBufferSize,
+        int auditMaxFileMb,
+        int auditMaxFiles,
+        LevelAuditLog.Politica auditOverflowPolicy,
+        boolean traceCaptureEnabled,
+        Path traceDir,
+        AcceptedLevels acceptedLevels,
+        URI jwksUrl,
+        int jwksRefreshSeconds,
+        int jwksMinRefreshSeconds,
+        String levelClaim,
+        String tokenIssuer
+) {
+
+    public static final String NIVEL_API_URL = "nivel-api-url";
+    public static final String CONNECT_TIMEOUT = "connect-timeout-seconds";
+    public static final String TOKEN_REQUEST_TIMEOUT = "token-request-timeout-seconds";
+    public static final String HTTP_VERSION = "http-version";
+    public static final String HTTP_EXECUTOR_THREADS = "http-executor-threads";
+    public static final String MIN_CONCURRENT_REQUESTS = "min-concurrent-requests";
+    public static final String INITIAL_CONCURRENT_REQUESTS = "initial-concurrent-requests";
+    public static final String MAX_CONCURRENT_REQUESTS = "max-concurrent-requests";
+    public static final String REALM_WEIGHTS = "realm-weights";
+    public static final String OVERLOAD_MAX_INFLIGHT = "overload-max-inflight-validations";
+    public static final String OVERLOAD_RETRY_AFTER = "overload-retry-after-seconds";
+    public static final String ADAPTIVE_TIMEOUT_MIN = "adaptive-timeout-min-millis";
+    public static final String ADAPTIVE_TIMEOUT_MAX = "adaptive-timeout-max-millis";
+    public static final String ADAPTIVE_TIMEOUT_PERCENTILE = "adaptive-timeout-percentile";
+    public static final String ADAPTIVE_TIMEOUT_MULTIPLIER = "adaptive-timeout-multiplier";
+    public static final String LATENCY_WINDOW = "latency-window-seconds";
+    public static final String LATENCY_MIN_SAMPLES = "latency-min-samples";
+    public static final String LOGIN_DEADLINE = "login-deadline-millis";
+    public static final String CACHE_TTL = "cache-ttl-seconds";
+    public static final String CACHE_MAX_ENTRIES = "cache-max-entries";
+    public static final String CACHE_TTL_JITTER = "cache-ttl-jitter-percent";
+    public static final String CACHE_EARLY_REFRESH_BETA = "cache-early-refresh-beta";
+    public static final String SSO_SESSION_FRESHNESS = "sso-session-freshness-seconds";
+    public static final String BREAKER_FAILURE_THRESHOLD = "breaker-failure-threshold";
+    public static final String BREAKER_OPEN = "breaker-open-seconds";
+    public static final String REFRESH_AHEAD_INTERVAL = "refresh-ahead-interval-seconds";
+    public static final String REFRESH_AHEAD_WINDOW = "refresh-ahead-window-seconds";
+    public static final String REFRESH_AHEAD_BATCH_SIZE = "refresh-ahead-batch-size";
+    public static final String POLICY_REFRESH = "policy-refresh-seconds";
+    public static final String SNAPSHOT_PATH = "snapshot-path";
+    public static final String SNAPSHOT_INTERVAL = "snapshot-interval-seconds";
+    public static final String AUDIT_ENABLED = "audit-enabled";
+    public static final String AUDIT_DIR = "audit-dir";
+    public static final String AUDIT_BUFFER_SIZE = "audit-buffer-size";
+    public static final String AUDIT_MAX_FILE_MB = "audit-max-file-mb";
+    public static final String AUDIT_MAX_FILES = "audit-max-files";
+    public static final String AUDIT_OVERFLOW_POLICY = "audit-overflow-policy";
+    public static final String TRACE_CAPTURE_ENABLED = "trace-capture-enabled";
+    public static final String TRACE_DIR = "trace-dir";
+    public static final String ACCEPTED_LEVELS = "accepted-levels";
+    public static final String JWKS_URL = "jwks-url";
+    public static final String JWKS_REFRESH = "jwks-refresh-seconds";
+    public static final String JWKS_MIN_REFRESH = "jwks-min-refresh-seconds";
+    public static final String LEVEL_CLAIM = "level-claim";
+    public static final String TOKEN_ISSUER = "token-issuer";
+
+    /**
+     * Peso do realm na divisão da concorrência e do cache ({@link GovBrConfig#REALM_DEFAULT_WEIGHT} se ausente)
+     */
+    public int pesoRealm(String realmId) {
+        return realmWeights.peso(realmId);
+    }
+
+    /**
+     * Valores compilados em {@link GovBrConfig}
+     */
+    public static GovBrSettings padrao() {
+        return carregar(null);
+    }
+
+    /**
+     * Lê e valida a configuração; opções inválidas impedem a inicialização do provider
+     */
+    public static GovBrSettings carregar(Config.Scope config) {
+        Leitor leitor = new Leitor(config);
+
+        GovBrSettings settings = new GovBrSettings(
+                leitor.url(NIVEL_API_URL, GovBrConfig.NIVEL_API_URL),
+                leitor.inteiro(CONNECT_TIMEOUT, GovBrConfig.CONNECT_TIMEOUT, 1),
+                leitor.inteiro(TOKEN_REQUEST_TIMEOUT, GovBrConfig.REQUEST_TIMEOUT, 1),
+                leitor.versaoHttp(HTTP_VERSION, GovBrConfig.HTTP_VERSION),
+                leitor.inteiro(HTTP_EXECUTOR_THREADS, GovBrConfig.HTTP_EXECUTOR_THREADS, 0),
+                leitor.inteiro(MIN_CONCURRENT_REQUESTS, GovBrConfig.MIN_CONCURRENT_REQUESTS, 1),
+                leitor.inteiro(INITIAL_CONCURRENT_REQUESTS, GovBrConfig.INITIAL_CONCURRENT_REQUESTS, 1),
+                leitor.inteiro(MAX_CONCURRENT_REQUESTS, GovBrConfig.MAX_CONCURRENT_REQUESTS, 1),
+                new RealmWeights(leitor.pesos(REALM_WEIGHTS)),
+                leitor.inteiro(OVERLOAD_MAX_INFLIGHT, GovBrConfig.OVERLOAD_MAX_INFLIGHT_VALIDATIONS, 0),
+                leitor.inteiro(OVERLOAD_RETRY_AFTER, GovBrConfig.OVERLOAD_RETRY_AFTER_SECONDS, 1),
+                leitor.inteiro(ADAPTIVE_TIMEOUT_MIN, GovBrConfig.ADAPTIVE_TIMEOUT_MIN_MILLIS, 1),
+                leitor.inteiro(ADAPTIVE_TIMEOUT_MAX, GovBrConfig.ADAPTIVE_TIMEOUT_MAX_MILLIS, 1),
+                leitor.percentil(ADAPTIVE_TIMEOUT_PERCENTILE, GovBrConfig.ADAPTIVE_TIMEOUT_PERCENTILE),
+                leitor.inteiro(ADAPTIVE_TIMEOUT_MULTIPLIER, GovBrConfig.ADAPTIVE_TIMEOUT_MULTIPLIER, 1),
+                leitor.inteiro(LATENCY_WINDOW, GovBrConfig.LATENCY_WINDOW_SECONDS, 1),
+                leitor.inteiro(LATENCY_MIN_SAMPLES, GovBrConfig.LATENCY_MIN_SAMPLES, 1),
+                leitor.inteiro(LOGIN_DEADLINE, GovBrConfig.LOGIN_DEADLINE_MILLIS, 1),
+                leitor.inteiro(CACHE_TTL, GovBrConfig.CACHE_TTL_SECONDS, 1),
+                leitor.inteiro(CACHE_MAX_ENTRIES, GovBrConfig.CACHE_MAX_ENTRIES, 1),
+                leitor.inteiro(CACHE_TTL_JITTER, GovBrConfig.CACHE_TTL_JITTER_PERCENT, 0),
+                leitor.decimal(CACHE_EARLY_REFRESH_BETA, GovBrConfig.CACHE_EARLY_REFRESH_BETA),
+                leitor.inteiro(SSO_SESSION_FRESHNESS, GovBrConfig.SSO_SESSION_FRESHNESS_SECONDS, 0),
+                leitor.inteiro(BREAKER_FAILURE_THRESHOLD, GovBrConfig.BREAKER_FAILURE_THRESHOLD, 1),
+                leitor.inteiro(BREAKER_OPEN, GovBrConfig.BREAKER_OPEN_SECONDS, 1),
+                leitor.inteiro(REFRESH_AHEAD_INTERVAL, GovBrConfig.REFRESH_AHEAD_INTERVAL_SECONDS, 1),
+                leitor.inteiro(REFRESH_AHEAD_WINDOW, GovBrConfig.REFRESH_AHEAD_WINDOW_SECONDS, 0),
+                leitor.inteiro(REFRESH_AHEAD_BATCH_SIZE, GovBrConfig.REFRESH_AHEAD_BATCH_SIZE, 0),
+                leitor.inteiro(POLICY_REFRESH, GovBrConfig.POLICY_REFRESH_SECONDS, 0),
+                leitor.caminho(SNAPSHOT_PATH, Path.of(System.getProperty("kc.home.dir", "."), "data",
+                        GovBrConfig.SNAPSHOT_FILE).toString()),
+                leitor.inteiro(SNAPSHOT_INTERVAL, GovBrConfig.SNAPSHOT_INTERVAL_SECONDS, 0),
+                leitor.booleano(AUDIT_ENABLED, GovBrConfig.AUDIT_ENABLED),
+                leitor.caminho(AUDIT_DIR, Path.of(System.getProperty("kc.home.dir", "."), "data",
+                        GovBrConfig.AUDIT_DIR).toString()),
+                leitor.inteiro(AUDIT_BUFFER_SIZE, GovBrConfig.AUDIT_BUFFER_SIZE, 2),
+                leitor.inteiro(AUDIT_MAX_FILE_MB, GovBrConfig.AUDIT_MAX_FILE_MB, 1),
+                leitor.inteiro(AUDIT_MAX_FILES, GovBrConfig.AUDIT_MAX_FILES, 0),
+                leitor.politicaAuditoria(AUDIT_OVERFLOW_POLICY, GovBrConfig.AUDIT_OVERFLOW_POLICY),
+                leitor.booleano(TRACE_CAPTURE_ENABLED, GovBrConfig.TRACE_CAPTURE_ENABLED),
+                leitor.caminho(TRACE_DIR, Path.of(System.getProperty("kc.home.dir", "."), "data",
+                        GovBrConfig.TRACE_DIR).toString()),
+                leitor.niveis(ACCEPTED_LEVELS, String.join(",", GovBrConfig.ACCEPTED_LEVELS)),
+                leitor.jwks(JWKS_URL),
+                leitor.inteiro(JWKS_REFRESH, GovBrConfig.JWKS_REFRESH_SECONDS, 1),
+                leitor.inteiro(JWKS_MIN_REFRESH, GovBrConfig.JWKS_MIN_REFRESH_SECONDS, 0),
+                leitor.texto(LEVEL_CLAIM, GovBrConfig.LEVEL_CLAIM),
+                leitor.texto(TOKEN_ISSUER, null));
+
+        if (settings.cacheTtlJitterPercent > 50) {
+            leitor.erros.add(CACHE_TTL_JITTER + " deve ser menor ou igual a 50");
+        }
+        if (settings.minConcurrentRequests > settings.maxConcurrentRequests) {
+            leitor.erros.add(MIN_CONCURRENT_REQUESTS + " deve ser menor ou igual a " + MAX_CONCURRENT_REQUESTS);
+        }
+        if (settings.adaptiveTimeoutMinMillis > settings.adaptiveTimeoutMaxMillis) {
+            leitor.erros.add(ADAPTIVE_TIMEOUT_MIN + " deve ser menor ou igual a " + ADAPTIVE_TIMEOUT_MAX);
+        }
+        if (settings.loginDeadlineMillis < settings.adaptiveTimeoutMinMillis) {
+            leitor.erros.add(LOGIN_DEADLINE + " deve ser maior ou igual a " + ADAPTIVE_TIMEOUT_MIN);
+        }
+
+        if (!leitor.erros.isEmpty()) {
+            throw new IllegalArgumentException("Configuração inválida do " + GovBrConfig.AUTHENTICATOR_ID
+                    + ": " + String.join("; ", leitor.erros));
+        }
+        return settings;
+    }
+
+    /**
+     * Metadados exibidos em {@code kc.sh show-config} e na documentação das opções SPI
+     */
+    public static List<ProviderConfigProperty> metadados() {
+        return ProviderConfigurationBuilder.create()
+                .property().name(NIVEL_API_URL).type(ProviderConfigProperty.STRING_TYPE)
+                .defaultValue(GovBrConfig.NIVEL_API_URL).helpText("URL da API de níveis Gov.br").add()
+                .property().name(CONNECT_TIMEOUT).type("int")
+                .defaultValue(GovBrConfig.CONNECT_TIMEOUT).helpText("Timeout de conexão (s)").add()
+                .property().name(TOKEN_REQUEST_TIMEOUT).type("int")
+                .defaultValue(GovBrConfig.REQUEST_TIMEOUT).helpText("Timeout do endpoint de token (s)").add()
+                .property().name(HTTP_VERSION).type(ProviderConfigProperty.LIST_TYPE)
+                .options(HttpClient.Version.HTTP_2.name(), HttpClient.Version.HTTP_1_1.name())
+                .defaultValue(GovBrConfig.HTTP_VERSION).helpText("Versão HTTP preferida").add()
+                .property().name(HTTP_EXECUTOR_THREADS).type("int")
+                .defaultValue(GovBrConfig.HTTP_EXECUTOR_THREADS)
+                .helpText("Threads do executor do cliente HTTP (0 = executor padrão)").add()
+                .property().name(MIN_CONCURRENT_REQUESTS).type("int")
+                .defaultValue(GovBrConfig.MIN_CONCURRENT_REQUESTS)
+                .helpText("Piso do limite adaptativo de consultas simultâneas por nó").add()
+                .property().name(INITIAL_CONCURRENT_REQUESTS).type("int")
+                .defaultValue(GovBrConfig.INITIAL_CONCURRENT_REQUESTS)
+                .helpText("Limite de consultas simultâneas na inicialização, antes das primeiras medições").add()
+                .property().name(MAX_CONCURRENT_REQUESTS).type("int")
+                .defaultValue(GovBrConfig.MAX_CONCURRENT_REQUESTS)
+                .helpText("Teto do limite adaptativo de consultas simultâneas por nó").add()
+                .property().name(REALM_WEIGHTS).type(ProviderConfigProperty.STRING_TYPE)
+                .helpText("Pesos por nome de realm (o id também é aceito) na divisão da concorrência e do cache, "
+                        + "ex: portal=3,interno=1 (demais realms: " + GovBrConfig.REALM_DEFAULT_WEIGHT + ")").add()
+                .property().name(OVERLOAD_MAX_INFLIGHT).type("int")
+                .defaultValue(GovBrConfig.OVERLOAD_MAX_INFLIGHT_VALIDATIONS)
+                .helpText("Validações simultâneas por nó antes de responder 503 (0 desabilita)").add()
+                .property().name(OVERLOAD_RETRY_AFTER).type("int")
+                .defaultValue(GovBrConfig.OVERLOAD_RETRY_AFTER_SECONDS)
+                .helpText("Retry-After da resposta 503 de sobrecarga (s)").add()
+                .property().name(ADAPTIVE_TIMEOUT_MIN).type("int")
+                .defaultValue(GovBrConfig.ADAPTIVE_TIMEOUT_MIN_MILLIS).helpText("Timeout adaptativo mínimo (ms)").add()
+                .property().name(ADAPTIVE_TIMEOUT_MAX).type("int")
+                .defaultValue(GovBrConfig.ADAPTIVE_TIMEOUT_MAX_MILLIS).helpText("Timeout adaptativo máximo (ms)").add()
+                .property().name(ADAPTIVE_TIMEOUT_PERCENTILE).type(ProviderConfigProperty.STRING_TYPE)
+                .defaultValue(GovBrConfig.ADAPTIVE_TIMEOUT_PERCENTILE)
+                .helpText("Percentil de latência usado no timeout adaptativo (0 a 1)").add()
+                .property().name(ADAPTIVE_TIMEOUT_MULTIPLIER).type("int")
+                .defaultValue(GovBrConfig.ADAPTIVE_TIMEOUT_MULTIPLIER).helpText("Multiplicador do percentil").add()
+                .property().name(LATENCY_WINDOW).type("int")
+                .defaultValue(GovBrConfig.LATENCY_WINDOW_SECONDS).helpText("Janela de latência observada (s)").add()
+                .property().name(LATENCY_MIN_SAMPLES).type("int")
+                .defaultValue(GovBrConfig.LATENCY_MIN_SAMPLES).helpText("Amostras mínimas para o percentil").add()
+                .property().name(LOGIN_DEADLINE).type("int")
+                .defaultValue(GovBrConfig.LOGIN_DEADLINE_MILLIS).helpText("Prazo total de uma validação (ms)").add()
+                .property().name(CACHE_TTL).type("int")
+                .defaultValue(GovBrConfig.CACHE_TTL_SECONDS).helpText("TTL do cache de níveis (s)").add()
+                .property().name(CACHE_MAX_ENTRIES).type("int")
+                .defaultValue(GovBrConfig.CACHE_MAX_ENTRIES).helpText("Entradas máximas do cache de níveis").add()
+                .property().name(CACHE_TTL_JITTER).type("int")
+                .defaultValue(GovBrConfig.CACHE_TTL_JITTER_PERCENT)
+                .helpText("Redução aleatória máxima do TTL de cada entrada (%, 0 a 50)").add()
+                .property().name(CACHE_EARLY_REFRESH_BETA).type(ProviderConfigProperty.STRING_TYPE)
+                .defaultValue(GovBrConfig.CACHE_EARLY_REFRESH_BETA)
+                .helpText("Agressividade da renovação antecipada probabilística (XFetch, 0 desabilita)").add()
+                .property().name(SSO_SESSION_FRESHNESS).type("int")
+                .defaultValue(GovBrConfig.SSO_SESSION_FRESHNESS_SECONDS)
+                .helpText("Validade do nível aprovado na sessão SSO para logins em outros clients (s, 0 desabilita)").add()
+                .property().name(BREAKER_FAILURE_THRESHOLD).type("int")
+                .defaultValue(GovBrConfig.BREAKER_FAILURE_THRESHOLD)
+                .helpText("Falhas consecutivas que abrem o circuit breaker").add()
+                .property().name(BREAKER_OPEN).type("int")
+                .defaultValue(GovBrConfig.BREAKER_OPEN_SECONDS).helpText("Tempo do circuit breaker aberto (s)").add()
+                .property().name(REFRESH_AHEAD_INTERVAL).type("int")
+                .defaultValue(GovBrConfig.REFRESH_AHEAD_INTERVAL_SECONDS).helpText("Intervalo do refresh-ahead (s)").add()
+                .property().name(REFRESH_AHEAD_WINDOW).type("int")
+                .defaultValue(GovBrConfig.REFRESH_AHEAD_WINDOW_SECONDS)
+                .helpText("Antecedência do refresh-ahead em relação à expiração (s)").add()
+                .property().name(REFRESH_AHEAD_BATCH_SIZE).type("int")
+                .defaultValue(GovBrConfig.REFRESH_AHEAD_BATCH_SIZE)
+                .helpText("Usuários renovados por execução (0 desabilita)").add()
+                .property().name(POLICY_REFRESH).type("int")
+                .defaultValue(GovBrConfig.POLICY_REFRESH_SECONDS)
+                .helpText("Intervalo de recompilação da política por realm/client (s)").add()
+                .property().name(SNAPSHOT_PATH).type(ProviderConfigProperty.STRING_TYPE)
+                .helpText("Arquivo do snapshot do cache (padrão: data/" + GovBrConfig.SNAPSHOT_FILE + ")").add()
+                .property().name(SNAPSHOT_INTERVAL).type("int")
+                .defaultValue(GovBrConfig.SNAPSHOT_INTERVAL_SECONDS)
+                .helpText("Intervalo de gravação do snapshot (s, 0 desabilita o snapshot)").add()
+                .property().name(AUDIT_ENABLED).type(ProviderConfigProperty.BOOLEAN_TYPE)
+                .defaultValue(GovBrConfig.AUDIT_ENABLED).helpText("Grava as decisões de nível no log de auditoria").add()
+                .property().name(AUDIT_DIR).type(ProviderConfigProperty.STRING_TYPE)
+                .helpText("Diretório do log de auditoria (padrão: data/" + GovBrConfig.AUDIT_DIR + ")").add()
+                .property().name(AUDIT_BUFFER_SIZE).type("int")
+                .defaultValue(GovBrConfig.AUDIT_BUFFER_SIZE)
+                .helpText("Decisões aguardando gravação (arredondado para potência de 2)").add()
+                .property().name(AUDIT_MAX_FILE_MB).type("int")
+                .defaultValue(GovBrConfig.AUDIT_MAX_FILE_MB).helpText("Tamanho para rotação do arquivo (MB)").add()
+                .property().name(AUDIT_MAX_FILES).type("int")
+                .defaultValue(GovBrConfig.AUDIT_MAX_FILES)
+                .helpText("Arquivos mantidos (0 mantém todos, o padrão). Acima de 0, os mais antigos são"
+                        + " apagados na rotação e a trilha deixa de ter todas as decisões; use só se a"
+                        + " retenção exigida já estiver coberta por cópia externa").add()
+                .property().name(AUDIT_OVERFLOW_POLICY).type(ProviderConfigProperty.LIST_TYPE)
+                .options(LevelAuditLog.Politica.DROP.name(), LevelAuditLog.Politica.BLOCK.name())
+                .defaultValue(GovBrConfig.AUDIT_OVERFLOW_POLICY)
+                .helpText("Buffer cheio: DROP descarta a decisão, BLOCK aguarda o escritor").add()
+                .property().name(TRACE_CAPTURE_ENABLED).type(ProviderConfigProperty.BOOLEAN_TYPE)
+                .defaultValue(GovBrConfig.TRACE_CAPTURE_ENABLED)
+                .helpText("Captura traces anonimizados dos logins para reprodução com LoginTraceReplay").add()
+                .property().name(TRACE_DIR).type(ProviderConfigProperty.STRING_TYPE)
+                .helpText("Diretório dos traces de login (padrão: data/" + GovBrConfig.TRACE_DIR + ")").add()
+                .property().name(ACCEPTED_LEVELS).type(ProviderConfigProperty.STRING_TYPE)
+                .defaultValue(String.join(",", GovBrConfig.ACCEPTED_LEVELS))
+                .helpText("Níveis aceitos quando não há política no realm/client, ex: Prata,Ouro").add()
+                .property().name(JWKS_URL).type(ProviderConfigProperty.STRING_TYPE)
+                .helpText("JWKS do Gov.br (https: ou file:); habilita a derivação local do nível pelo token").add()
+                .property().name(JWKS_REFRESH).type("int")
+                .defaultValue(GovBrConfig.JWKS_REFRESH_SECONDS).helpText("Validade do JWKS em cache (s)").add()
+                .property().name(JWKS_MIN_REFRESH).type("int")
+                .defaultValue(GovBrConfig.JWKS_MIN_REFRESH_SECONDS)
+                .helpText("Intervalo mínimo entre recargas do JWKS por kid desconhecido (s)").add()
+                .property().name(LEVEL_CLAIM).type(ProviderConfigProperty.STRING_TYPE)
+                .defaultValue(GovBrConfig.LEVEL_CLAIM).helpText("Claim do access token com o nível (nome ou código)").add()
+                .property().name(TOKEN_ISSUER).type(ProviderConfigProperty.STRING_TYPE)
+                .helpText("Issuer esperado no access token (opcional)").add()
+                .build();
+    }
+
+    /**
+     * Acumula os erros de todas as opções para reportá-los de uma vez
+     */
+    private static final class Leitor {
+
+        private final Config.Scope config;
+        private final List<String> erros = new ArrayList<>();
+
+        private Leitor(Config.Scope config) {
+            this.config = config;
+        }
+
+        private String texto(String opcao, String padrao) {
+            String valor = config != null ? config.get(opcao) : null;
+            return valor == null || valor.isBlank() ? padrao : valor.trim();
+        }
+
+        URI jwks(String opcao) {
+            String valor = texto(opcao, null);
+            if (valor == null) {
+                return null;
+            }
+            try {
+                URI uri = URI.create(valor);
+                if (!"https".equals(uri.getScheme()) && !"http".equals(uri.getScheme())
+                        && !"file".equals(uri.getScheme())) {
+                    erros.add(opcao + " deve ser uma URL http(s) ou file: " + valor);
+                }
+                return uri;
+            } catch (IllegalArgumentException e) {
+                erros.add(opcao + " não é uma URL válida: " + valor);
+                return null;
+            }
+        }
+
+        int inteiro(String opcao, int padrao, int minimo) {
+            String valor = texto(opcao, null);
+            if (valor == null) {
+                return padrao;
+            }
+            try {
+                int numero = Integer.parseInt(valor.replace("_", ""));
+                if (numero < minimo) {
+                    erros.add(opcao + " deve ser maior ou igual a " + minimo);
+                    return padrao;
+                }
+                return numero;
+            } catch (NumberFormatException e) {
+                erros.add(opcao + " não é um número inteiro: " + valor);
+                return padrao;
+            }
+        }
+
+        double percentil(String opcao, double padrao) {
+            String valor = texto(opcao, null);
+            if (valor == null) {
+                return padrao;
+            }
+            try {
+                double numero = Double.parseDouble(valor);
+                if (numero <= 0 || numero >= 1) {
+                    erros.add(opcao + " deve estar entre 0 e 1 (exclusivo)");
+                    return padrao;
+                }
+                return numero;
+            } catch (NumberFormatException e) {
+                erros.add(opcao + " não é um número: " + valor);
+                return padrao;
+            }
+        }
+
+        double decimal(String opcao, double padrao) {
+            String valor = texto(opcao, null);
+            if (valor == null) {
+                return padrao;
+            }
+            try {
+                double numero = Double.parseDouble(valor);
+                if (numero < 0 || Double.isNaN(numero) || Double.isInfinite(numero)) {
+                    erros.add(opcao + " deve ser um número maior ou igual a 0");
+                    return padrao;
+                }
+                return numero;
+            } catch (NumberFormatException e) {
+                erros.add(opcao + " não é um número: " + valor);
+                return padrao;
+            }
+        }
+
+        URI url(String opcao, String padrao) {
+            String valor = texto(opcao, padrao);
+            try {
+                URI uri = URI.create(valor);
+                if (!"https".equals(uri.getScheme()) && !"http".equals(uri.getScheme())) {
+                    erros.add(opcao + " deve ser uma URL http(s): " + valor);
+                }
+                return uri;
+            } catch (IllegalArgumentException e) {
+                erros.add(opcao + " não é uma URL válida: " + valor);
+                return null;
+            }
+        }
+
+        HttpClient.Version versaoHttp(String opcao, String padrao) {
+            String valor = texto(opcao, padrao);
+            try {
+                return HttpClient.Version.valueOf(valor.toUpperCase().replace('.', '_'));
+            } catch (IllegalArgumentException e) {
+                erros.add(opcao + " deve ser HTTP_2 ou HTTP_1_1: " + valor);
+                return HttpClient.Version.HTTP_2;
+            }
+        }
+
+        Map<String, Integer> pesos(String opcao) {
+            Map<String, Integer> pesos = new LinkedHashMap<>();
+            String valor = texto(opcao, null);
+            if (valor == null) {
+                return pesos;
+            }
+            for (String item : valor.split(",")) {
+                String[] partes = item.split("=", 2);
+                try {
+                    int peso = Integer.parseInt(partes[1].trim());
+                    if (partes[0].isBlank() || peso < 1) {
+                        throw new NumberFormatException();
+                    }
+                    pesos.put(partes[0].trim(), peso);
+                } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                    erros.add(opcao + " deve ter o formato realm=peso (peso inteiro ≥ 1): " + item.trim());
+                }
+            }
+            return Map.copyOf(pesos);
+        }
+
+        boolean booleano(String opcao, boolean padrao) {
+            String valor = texto(opcao, null);
+            if (valor == null) {
+                return padrao;
+            }
+            if (!"true".equalsIgnoreCase(valor) && !"false".equalsIgnoreCase(valor)) {
+                erros.add(opcao + " deve ser true ou false: " + valor);
+                return padrao;
+            }
+            return Boolean.parseBoolean(valor);
+        }
+
+        LevelAuditLog.Politica politicaAuditoria(String opcao, String padrao) {
+            String valor = texto(opcao, padrao);
+            try {
+                return LevelAuditLog.Politica.valueOf(valor.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                erros.add(opcao + " deve ser DROP ou BLOCK: " + valor);
+                return LevelAuditLog.Politica.DROP;
+            }
+        }
+
+        Path caminho(String opcao, String padrao) {
+            return Path.of(texto(opcao, padrao));
+        }
+
+        AcceptedLevels niveis(String opcao, String padrao) {
+            String valor = texto(opcao, padrao);
+            AcceptedLevels niveis = AcceptedLevels.compilar(valor);
+            List<String> desconhecidos = AcceptedLevels.desconhecidos(valor);
+            if (!desconhecidos.isEmpty()) {
+                erros.add(opcao + " contém níveis desconhecidos " + desconhecidos + " (válidos: Bronze, Prata, Ouro)");
+            } else if (niveis.nomes().isEmpty() && texto(opcao, null) != null) {
+                erros.add(opcao + " não contém níveis conhecidos (Bronze, Prata, Ouro): " + valor);
+            }
+            return niveis;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package br.com.spi.govbr.config;
+
+import org.keycloak.models.RealmModel;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Pesos de {@code realm-weights}, configurados pelo nome do realm (ou pelo id). A divisão da
+ * concorrência e do cache consulta pelo id, que no Keycloak costuma ser um UUID: por isso os nomes
+ * são resolvidos com {@link #resolver} na inicialização e a cada realm criado. Realms fora da lista
+ * usam {@link GovBrConfig#REALM_DEFAULT_WEIGHT}.
+ */
+public final class RealmWeights {
+
+    private final Map<String, Integer> configurados;
+    private final Map<String, Integer> porId = new ConcurrentHashMap<>();
+
+    public RealmWeights(Map<String, Integer> configurados) {
+        this.configurados = Map.copyOf(configurados);
+    }
+
+    public int peso(String realmId) {
+        Integer peso = porId.get(realmId);
+        if (peso == null) {
+            peso = configurados.get(realmId);
+        }
+        return peso != null ? peso : GovBrConfig.REALM_DEFAULT_WEIGHT;
+    }
+
+    /**
+     * Associa o peso configurado pelo nome (ou id) ao id do realm
+     */
+    public void resolver(RealmModel realm) {
+        Integer peso = configurados.get(realm.getName());
+        if (peso == null) {
+            peso = configurados.get(realm.getId());
+        }
+        if (peso != null) {
+            porId.put(realm.getId(), peso);
+        } else {
+            porId.remove(realm.getId());
+        }
+    }
+
+    /**
+     * Resolve os realms informados e retorna as chaves configuradas que não correspondem a nenhum
+     */
+    public List<String> resolver(Stream<RealmModel> realms) {
+        Set<String> semRealm = new LinkedHashSet<>(configurados.keySet());
+        realms.forEach(realm -> {
+            resolver(realm);
+            semRealm.remove(realm.getName());
+            semRealm.remove(realm.getId());
+        });
+        return List.copyOf(semRealm);
+    }
+
+    public Map<String, Integer> configurados() {
+        return configurados;
+    }
+}
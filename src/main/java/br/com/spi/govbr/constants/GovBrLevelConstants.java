@@ -37,6 +37,24 @@ public class GovBrLevelConstants {
     public static final String LOG_LEVEL = "level";
     public static final String LOG_STATUS = "status";
 
+    // Códigos de resultado da validação
+    public static final String OUTCOME_APPROVED = "APPROVED";
+    public static final String OUTCOME_INSUFFICIENT_LEVEL = "INSUFFICIENT_LEVEL";
+    public static final String OUTCOME_INVALID_TOKEN = "INVALID_TOKEN";
+    public static final String OUTCOME_SERVICE_UNAVAILABLE = "SERVICE_UNAVAILABLE";
+    public static final String OUTCOME_GENERIC = "GENERIC";
+    public static final String OUTCOME_OVERLOADED = "OVERLOADED";
+
+    // Detalhes adicionados aos eventos Keycloak
+    public static final String EVENT_DETAIL_LEVEL = "govbr_level";
+    public static final String EVENT_DETAIL_OUTCOME = "govbr_outcome";
+    public static final String EVENT_DETAIL_UPSTREAM_MS = "govbr_upstream_ms";
+    public static final String EVENT_DETAIL_FROM_CACHE = "govbr_from_cache";
+
+    // Notas da sessão do usuário com o nível aprovado no login (lidas pelo protocol mapper)
+    public static final String SESSION_NOTE_LEVEL = "govbr.level";
+    public static final String SESSION_NOTE_VERIFIED_AT = "govbr.level.verified_at";
+
     private GovBrLevelConstants() {
         // Classe utilitária - construtor privado
     }
@@ -0,0 +1,67 @@
+package br.com.spi.govbr.dto;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Decodificador da resposta da API de nível ({@code [{"id": "3", "dataAtualizacao": "..."}, ...]})
+ * direto sobre o streaming parser do Jackson: sem introspecção do record, sem reflexão no
+ * Quarkus e sem materializar a lista, pois apenas o primeiro nível é usado.
+ */
+public final class GovBrLevelResponseDecoder {
+
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder().build();
+
+    private GovBrLevelResponseDecoder() {}
+
+    /**
+     * Primeiro elemento do array, ou null se o array estiver vazio
+     */
+    public static GovBrLevelResponse primeiro(byte[] json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Resposta de nível Gov.br não é um array");
+            }
+
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.END_ARRAY) {
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Elemento de nível Gov.br não é um objeto");
+            }
+
+            String id = null;
+            String dataAtualizacao = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String campo = parser.currentName();
+                JsonToken valor = parser.nextToken();
+                if ("id".equals(campo)) {
+                    id = escalar(parser, valor);
+                } else if ("dataAtualizacao".equals(campo)) {
+                    dataAtualizacao = escalar(parser, valor);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            return new GovBrLevelResponse(id, dataAtualizacao);
+        }
+    }
+
+    /**
+     * Texto de um valor escalar; objetos e arrays são pulados por inteiro e tratados como ausentes,
+     * para que campos aninhados não sejam lidos como se fossem do elemento
+     */
+    private static String escalar(JsonParser parser, JsonToken valor) throws IOException {
+        if (valor == JsonToken.START_OBJECT || valor == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        return valor == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+    }
+}
@@ -0,0 +1,47 @@
+package br.com.spi.govbr.dto;
+
+import jakarta.ws.rs.core.Response;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Resposta 503 usada sob sobrecarga: o HTML é montado uma única vez, sem FreeMarker,
+ * sem LoginFormsProvider e sem dados da sessão de autenticação.
+ */
+public final class GovBrOverloadResponse {
+
+    private static final byte[] PAGINA = """
+            <!DOCTYPE html>
+            <html lang="pt-BR">
+            <head>
+                <meta charset="UTF-8">
+                <meta name="viewport" content="width=device-width, initial-scale=1.0">
+                <title>Serviço temporariamente indisponível - Gov.br</title>
+                <style>
+                    body { font-family: 'Segoe UI', Tahoma, sans-serif; background: #1e3c72; color: #333;
+                           display: flex; align-items: center; justify-content: center; min-height: 100vh; margin: 0; }
+                    div { background: white; border-radius: 12px; padding: 40px; max-width: 460px; text-align: center; }
+                    h1 { color: #1e3c72; font-size: 1.4em; }
+                </style>
+            </head>
+            <body>
+                <div>
+                    <h1>Serviço temporariamente indisponível</h1>
+                    <p>Muitos acessos estão sendo validados neste momento.</p>
+                    <p>Aguarde alguns instantes e tente entrar novamente.</p>
+                </div>
+            </body>
+            </html>
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private GovBrOverloadResponse() {}
+
+    public static Response criar(int retryAfterSeconds) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity(PAGINA)
+                .type("text/html; charset=UTF-8")
+                .header("Retry-After", retryAfterSeconds)
+                .header("Cache-Control", "no-cache, no-store, must-revalidate")
+                .build();
+    }
+}
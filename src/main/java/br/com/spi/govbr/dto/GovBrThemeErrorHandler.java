@@ -6,9 +6,9 @@ import jakarta.ws.rs.core.Response;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import org.jboss.logging.Logger;
+import br.com.spi.govbr.policy.AcceptedLevels;
+import br.com.spi.govbr.util.GovBrTracing;
 import static br.com.spi.govbr.config.GovBrConfig.LOGOUT_URL;
-import static br.com.spi.govbr.config.GovBrConfig.ACCEPTED_LEVELS;
-import java.util.Arrays;
 
 public class GovBrThemeErrorHandler {
 
@@ -23,19 +23,23 @@ public class GovBrThemeErrorHandler {
      * @param errorType Tipo do erro (INSUFFICIENT_LEVEL, INVALID_TOKEN, etc.)
      * @param userLevel Nível atual do usuário (Bronze, Prata, Ouro)
      * @param customMessage Mensagem personalizada (opcional)
+     * @param niveisAceitos Níveis aceitos pelo client atual
      * @return Response com página de erro
      */
     public static Response criarErroComTema(AuthenticationFlowContext context,
                                            String errorType,
                                            String userLevel,
-                                           String customMessage) {
-            return criarErroUsandoTema(context, errorType, userLevel, customMessage);
+                                           String customMessage,
+                                           AcceptedLevels niveisAceitos) {
+            return GovBrTracing.rastrear("govbr.renderizacao_erro",
+                    () -> criarErroUsandoTema(context, errorType, userLevel, customMessage, niveisAceitos));
     }
 
     private static Response criarErroUsandoTema(AuthenticationFlowContext context,
                                               String errorType,
                                               String userLevel,
-                                              String customMessage) {
+                                              String customMessage,
+                                              AcceptedLevels niveisAceitos) {
         
         // Obter LoginFormsProvider e configurar contexto
         LoginFormsProvider forms = context.getSession().getProvider(LoginFormsProvider.class);
@@ -49,9 +53,9 @@ public class GovBrThemeErrorHandler {
         forms.setAttribute("logoutGovBrUrl", construirUrlLogoutGovBr(context));
         
         // Informações dinâmicas sobre níveis aceitos
-        forms.setAttribute("acceptedLevels", Arrays.asList(ACCEPTED_LEVELS));
-        forms.setAttribute("acceptedLevelsText", gerarTextoNiveisAceitos());
-        forms.setAttribute("isLevelAccepted", isNivelAceito(userLevel));
+        forms.setAttribute("acceptedLevels", niveisAceitos.nomes());
+        forms.setAttribute("acceptedLevelsText", niveisAceitos.texto());
+        forms.setAttribute("isLevelAccepted", niveisAceitos.aceita(userLevel));
 
         // Renderiza o template govbr-error.ftl
         Response response = forms.createForm("govbr-error.ftl");
@@ -137,59 +141,22 @@ public class GovBrThemeErrorHandler {
 
     // ====== MÉTODOS DE CONVENIÊNCIA (TIPAGEM DE ERRO) ======
 
-    public static Response erroNivelInsuficiente(AuthenticationFlowContext context, String nivelAtual) {
-        return criarErroComTema(context, "INSUFFICIENT_LEVEL", nivelAtual, null);
+    public static Response erroNivelInsuficiente(AuthenticationFlowContext context, String nivelAtual,
+                                                 AcceptedLevels niveisAceitos) {
+        return criarErroComTema(context, "INSUFFICIENT_LEVEL", nivelAtual, null, niveisAceitos);
     }
 
-    public static Response erroTokenInvalido(AuthenticationFlowContext context) {
-        return criarErroComTema(context, "INVALID_TOKEN", null, null);
+    public static Response erroTokenInvalido(AuthenticationFlowContext context, AcceptedLevels niveisAceitos) {
+        return criarErroComTema(context, "INVALID_TOKEN", null, null, niveisAceitos);
     }
 
-    public static Response erroServicoIndisponivel(AuthenticationFlowContext context) {
-        return criarErroComTema(context, "SERVICE_UNAVAILABLE", null, null);
+    public static Response erroServicoIndisponivel(AuthenticationFlowContext context, AcceptedLevels niveisAceitos) {
+        return criarErroComTema(context, "SERVICE_UNAVAILABLE", null, null, niveisAceitos);
     }
 
-    public static Response erroGenerico(AuthenticationFlowContext context, String mensagem) {
-        return criarErroComTema(context, "GENERIC", null, mensagem);
+    public static Response erroGenerico(AuthenticationFlowContext context, String mensagem,
+                                        AcceptedLevels niveisAceitos) {
+        return criarErroComTema(context, "GENERIC", null, mensagem, niveisAceitos);
     }
 
-    // ====== MÉTODOS DINÂMICOS BASEADOS EM ACCEPTED_LEVELS ======
-
-    /**
-     * Verifica se o nível do usuário está na lista de níveis aceitos
-     */
-    private static boolean isNivelAceito(String userLevel) {
-        if (userLevel == null) return false;
-        return Arrays.stream(ACCEPTED_LEVELS)
-                .anyMatch(level -> level.equalsIgnoreCase(userLevel.trim()));
-    }
-
-    /**
-     * Gera texto descritivo dos níveis aceitos
-     */
-    private static String gerarTextoNiveisAceitos() {
-        if (ACCEPTED_LEVELS.length == 0) {
-            return "Nenhum nível configurado";
-        }
-        
-        if (ACCEPTED_LEVELS.length == 1) {
-            return "nível " + ACCEPTED_LEVELS[0];
-        }
-        
-        if (ACCEPTED_LEVELS.length == 2) {
-            return "níveis " + ACCEPTED_LEVELS[0] + " ou " + ACCEPTED_LEVELS[1];
-        }
-        
-        // 3 ou mais níveis
-        StringBuilder sb = new StringBuilder("níveis ");
-        for (int i = 0; i < ACCEPTED_LEVELS.length - 1; i++) {
-            sb.append(ACCEPTED_LEVELS[i]);
-            if (i < ACCEPTED_LEVELS.length - 2) {
-                sb.append(", ");
-            }
-        }
-        sb.append(" ou ").append(ACCEPTED_LEVELS[ACCEPTED_LEVELS.length - 1]);
-        return sb.toString();
-    }
-
-}
\ No newline at end of file
+}
@@ -1,19 +1,60 @@
 package br.com.spi.govbr.dto;
 
+import br.com.spi.govbr.constants.GovBrLevelConstants;
+
 public record ValidationResult(
         boolean isValid,
         String userLevel,
-        String errorMessage
+        String errorMessage,
+        boolean fromCache,
+        long upstreamLatencyMillis,
+        long verifiedAt
 ) {
     public static ValidationResult success(String userLevel) {
-        return new ValidationResult(true, userLevel, null);
+        return new ValidationResult(true, userLevel, null, false, 0, 0);
     }
 
     public static ValidationResult failure(String userLevel, String errorMessage) {
-        return new ValidationResult(false, userLevel, errorMessage);
+        return new ValidationResult(false, userLevel, errorMessage, false, 0, 0);
     }
 
     public static ValidationResult error(String errorMessage) {
-        return new ValidationResult(false, null, errorMessage);
+        return new ValidationResult(false, null, errorMessage, false, 0, 0);
+    }
+
+    /**
+     * Retorna uma cópia indicando a origem do nível e a latência da consulta à API
+     */
+    public ValidationResult comOrigem(boolean fromCache, long upstreamLatencyMillis) {
+        return new ValidationResult(isValid, userLevel, errorMessage, fromCache, upstreamLatencyMillis, verifiedAt);
+    }
+
+    /**
+     * Retorna uma cópia com o instante (epoch millis) em que o nível foi verificado no Gov.br
+     */
+    public ValidationResult verificadoEm(long verifiedAt) {
+        return new ValidationResult(isValid, userLevel, errorMessage, fromCache, upstreamLatencyMillis, verifiedAt);
+    }
+
+    /**
+     * Código do resultado usado em eventos e na escolha da página de erro
+     */
+    public String outcomeCode() {
+        if (isValid) {
+            return GovBrLevelConstants.OUTCOME_APPROVED;
+        }
+        if (errorMessage == null) {
+            return GovBrLevelConstants.OUTCOME_GENERIC;
+        }
+        if (errorMessage.contains("Token")) {
+            return GovBrLevelConstants.OUTCOME_INVALID_TOKEN;
+        }
+        if (errorMessage.contains("insuficiente")) {
+            return GovBrLevelConstants.OUTCOME_INSUFFICIENT_LEVEL;
+        }
+        if (errorMessage.contains("indisponível")) {
+            return GovBrLevelConstants.OUTCOME_SERVICE_UNAVAILABLE;
+        }
+        return GovBrLevelConstants.OUTCOME_GENERIC;
     }
-}
\ No newline at end of file
+}
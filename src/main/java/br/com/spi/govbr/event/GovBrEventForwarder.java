@@ -0,0 +1,83 @@
+package br.com.spi.govbr.event;
+
+import br.com.spi.govbr.constants.GovBrLevelConstants;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jboss.logging.Logger;
+import org.keycloak.events.Event;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Encaminha eventos de validação Gov.br em uma thread dedicada, como linhas JSON
+ * na categoria de log "br.com.spi.govbr.events" (consumida pelo SIEM).
+ * A fila é limitada: se estiver cheia o evento é descartado, nunca atrasando o login.
+ */
+public class GovBrEventForwarder {
+
+    private static final Logger logger = Logger.getLogger(GovBrEventForwarder.class);
+    private static final Logger eventLogger = Logger.getLogger("br.com.spi.govbr.events");
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ThreadPoolExecutor executor;
+    private final LongAdder descartados = new LongAdder();
+
+    public GovBrEventForwarder(int capacidadeFila) {
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadeFila),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "govbr-event-forwarder");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> descartados.increment());
+    }
+
+    public void enviar(Event event) {
+        executor.execute(() -> escrever(event));
+    }
+
+    private void escrever(Event event) {
+        try {
+            Map<String, String> details = event.getDetails();
+
+            Map<String, Object> registro = new LinkedHashMap<>();
+            registro.put("time", event.getTime());
+            registro.put("type", event.getType().name());
+            registro.put("realmId", event.getRealmId());
+            registro.put("clientId", event.getClientId());
+            registro.put("userId", event.getUserId());
+            registro.put("ipAddress", event.getIpAddress());
+            registro.put("error", event.getError());
+            registro.put("level", details.get(GovBrLevelConstants.EVENT_DETAIL_LEVEL));
+            registro.put("outcome", details.get(GovBrLevelConstants.EVENT_DETAIL_OUTCOME));
+            registro.put("upstreamMs", details.get(GovBrLevelConstants.EVENT_DETAIL_UPSTREAM_MS));
+            registro.put("fromCache", details.get(GovBrLevelConstants.EVENT_DETAIL_FROM_CACHE));
+
+            eventLogger.info(objectMapper.writeValueAsString(registro));
+
+        } catch (Exception e) {
+            logger.warnf("Falha ao encaminhar evento Gov.br: %s", e.getMessage());
+        }
+    }
+
+    public long getDescartados() {
+        return descartados.sum();
+    }
+
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (descartados.sum() > 0) {
+            logger.warnf("%d eventos Gov.br descartados por fila cheia", descartados.sum());
+        }
+    }
+}
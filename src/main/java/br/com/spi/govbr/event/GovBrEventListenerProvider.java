@@ -0,0 +1,69 @@
+package br.com.spi.govbr.event;
+
+import br.com.spi.govbr.authenticator.GovBrLevelAuthenticatorFactory;
+import br.com.spi.govbr.cache.LevelCacheInvalidator;
+import br.com.spi.govbr.config.GovBrConfig;
+import br.com.spi.govbr.constants.GovBrLevelConstants;
+import org.keycloak.authentication.Authenticator;
+import org.keycloak.events.Event;
+import org.keycloak.events.EventListenerProvider;
+import org.keycloak.events.admin.AdminEvent;
+import org.keycloak.events.admin.OperationType;
+import org.keycloak.events.admin.ResourceType;
+import org.keycloak.models.KeycloakSession;
+
+public class GovBrEventListenerProvider implements EventListenerProvider {
+
+    private final KeycloakSession session;
+    private final GovBrEventForwarder forwarder;
+
+    public GovBrEventListenerProvider(KeycloakSession session, GovBrEventForwarder forwarder) {
+        this.session = session;
+        this.forwarder = forwarder;
+    }
+
+    @Override
+    public void onEvent(Event event) {
+        // Apenas eventos que passaram pelo validador Gov.br
+        if (event.getDetails() != null
+                && event.getDetails().containsKey(GovBrLevelConstants.EVENT_DETAIL_OUTCOME)) {
+            forwarder.enviar(event.clone());
+        }
+    }
+
+    @Override
+    public void onEvent(AdminEvent event, boolean includeRepresentation) {
+        if (event.getOperationType() != OperationType.ACTION || event.getResourcePath() == null) {
+            return;
+        }
+
+        String[] partes = event.getResourcePath().split("/");
+
+        // Sessões do usuário encerradas pelo administrador (users/{id}/logout)
+        if (event.getResourceType() == ResourceType.USER
+                && partes.length == 3 && "users".equals(partes[0]) && "logout".equals(partes[2])) {
+            cacheInvalidator().invalidarUsuario(session, event.getRealmId(), partes[1]);
+        }
+
+        // Todas as sessões do realm encerradas (logout-all)
+        if (event.getResourceType() == ResourceType.REALM && "logout-all".equals(partes[0])) {
+            cacheInvalidator().invalidarRealm(session, event.getRealmId());
+        }
+
+        // Uma única sessão encerrada (DELETE sessions/{id}, USER_SESSION) fica de fora: o evento traz só o
+        // id da sessão, já removida quando o listener é chamado, e não há como chegar ao usuário. O nível
+        // segue válido até o TTL; para forçar nova consulta, use users/{id}/logout ou a API de cache.
+    }
+
+    private LevelCacheInvalidator cacheInvalidator() {
+        GovBrLevelAuthenticatorFactory factory = (GovBrLevelAuthenticatorFactory) session
+                .getKeycloakSessionFactory()
+                .getProviderFactory(Authenticator.class, GovBrConfig.AUTHENTICATOR_ID);
+        return factory.getCacheInvalidator();
+    }
+
+    @Override
+    public void close() {
+        // Não utilizado
+    }
+}
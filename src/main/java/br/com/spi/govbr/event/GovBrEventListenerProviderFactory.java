@@ -0,0 +1,61 @@
+package br.com.spi.govbr.event;
+
+import br.com.spi.govbr.config.GovBrConfig;
+import org.keycloak.Config;
+import org.keycloak.events.EventListenerProvider;
+import org.keycloak.events.EventListenerProviderFactory;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.provider.ProviderConfigProperty;
+import org.keycloak.provider.ProviderConfigurationBuilder;
+
+import java.util.List;
+
+/**
+ * Listener "govbr-level-events": deve ser habilitado em Realm Settings → Events
+ */
+public class GovBrEventListenerProviderFactory implements EventListenerProviderFactory {
+
+    private GovBrEventForwarder forwarder;
+
+    @Override
+    public EventListenerProvider create(KeycloakSession session) {
+        return new GovBrEventListenerProvider(session, forwarder);
+    }
+
+    @Override
+    public void init(Config.Scope config) {
+        int capacidade = config.getInt("queue-capacity", GovBrConfig.EVENT_QUEUE_CAPACITY);
+        if (capacidade < 1) {
+            throw new IllegalArgumentException("queue-capacity do " + GovBrConfig.EVENT_LISTENER_ID
+                    + " deve ser maior ou igual a 1");
+        }
+        this.forwarder = new GovBrEventForwarder(capacidade);
+    }
+
+    @Override
+    public List<ProviderConfigProperty> getConfigMetadata() {
+        return ProviderConfigurationBuilder.create()
+                .property().name("queue-capacity").type("int")
+                .defaultValue(GovBrConfig.EVENT_QUEUE_CAPACITY)
+                .helpText("Eventos pendentes antes de descartar novos eventos").add()
+                .build();
+    }
+
+    @Override
+    public void postInit(KeycloakSessionFactory factory) {
+        // Não implementado
+    }
+
+    @Override
+    public void close() {
+        if (forwarder != null) {
+            forwarder.close();
+        }
+    }
+
+    @Override
+    public String getId() {
+        return GovBrConfig.EVENT_LISTENER_ID;
+    }
+}
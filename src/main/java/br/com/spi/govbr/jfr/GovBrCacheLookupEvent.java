@@ -0,0 +1,27 @@
+package br.com.spi.govbr.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Consulta ao cache de níveis; com o limiar padrão só aparecem consultas lentas (contenção)
+ */
+@Name("br.com.spi.govbr.CacheLookup")
+@Label("Gov.br Level Cache Lookup")
+@Category({"Keycloak", "Gov.br"})
+@Description("Consulta ao cache de níveis Gov.br")
+@StackTrace(false)
+@Threshold("1 ms")
+public class GovBrCacheLookupEvent extends Event {
+
+    @Label("Realm")
+    public String realmId;
+
+    @Label("Result")
+    public String result;
+}
@@ -0,0 +1,30 @@
+package br.com.spi.govbr.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Execução do GovBrSessionCleaner após um login rejeitado
+ */
+@Name("br.com.spi.govbr.SessionCleanup")
+@Label("Gov.br Session Cleanup")
+@Category({"Keycloak", "Gov.br"})
+@Description("Remoção das sessões do usuário após login Gov.br rejeitado")
+@StackTrace(false)
+@Threshold("0 ms")
+public class GovBrSessionCleanupEvent extends Event {
+
+    @Label("Realm")
+    public String realmId;
+
+    @Label("Sessions Removed")
+    public int sessionsRemoved;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,38 @@
+package br.com.spi.govbr.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Uma tentativa de consultarNivelUsuario, incluindo rejeições do limite de concorrência e do circuit breaker
+ */
+@Name("br.com.spi.govbr.UpstreamCall")
+@Label("Gov.br Level API Call")
+@Category({"Keycloak", "Gov.br"})
+@Description("Tentativa de consulta à API de nível Gov.br")
+@StackTrace(false)
+@Threshold("0 ms")
+public class GovBrUpstreamCallEvent extends Event {
+
+    @Label("Realm")
+    public String realmId;
+
+    @Label("Outcome")
+    public String outcome;
+
+    @Label("HTTP Status")
+    public int statusCode;
+
+    @Label("Timeout")
+    @Timespan(Timespan.MILLISECONDS)
+    public long timeoutMillis;
+
+    @Label("Circuit Breaker State")
+    public String breakerState;
+}
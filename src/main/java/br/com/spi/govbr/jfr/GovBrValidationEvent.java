@@ -0,0 +1,44 @@
+package br.com.spi.govbr.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Decisão do authenticator para um login (inclui cache, API e renderização do erro)
+ */
+@Name("br.com.spi.govbr.Validation")
+@Label("Gov.br Level Validation")
+@Category({"Keycloak", "Gov.br"})
+@Description("Decisão do govbr-level-validator para um login")
+@StackTrace(false)
+@Threshold("10 ms")
+public class GovBrValidationEvent extends Event {
+
+    @Label("Realm")
+    public String realmId;
+
+    @Label("User Id")
+    public String userId;
+
+    @Label("Outcome")
+    public String outcome;
+
+    @Label("Level")
+    public String level;
+
+    @Label("Accepted Levels")
+    public String acceptedLevels;
+
+    @Label("From Cache")
+    public boolean fromCache;
+
+    @Label("Upstream Latency")
+    @Timespan(Timespan.MILLISECONDS)
+    public long upstreamMillis;
+}
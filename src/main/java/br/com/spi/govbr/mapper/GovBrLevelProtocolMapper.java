@@ -0,0 +1,100 @@
+package br.com.spi.govbr.mapper;
+
+import br.com.spi.govbr.constants.GovBrLevelConstants;
+import org.keycloak.models.ClientSessionContext;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.ProtocolMapperModel;
+import org.keycloak.models.UserSessionModel;
+import org.keycloak.protocol.oidc.mappers.AbstractOIDCProtocolMapper;
+import org.keycloak.protocol.oidc.mappers.OIDCAccessTokenMapper;
+import org.keycloak.protocol.oidc.mappers.OIDCAttributeMapperHelper;
+import org.keycloak.protocol.oidc.mappers.OIDCIDTokenMapper;
+import org.keycloak.protocol.oidc.mappers.TokenIntrospectionTokenMapper;
+import org.keycloak.protocol.oidc.mappers.UserInfoTokenMapper;
+import org.keycloak.provider.ProviderConfigProperty;
+import org.keycloak.representations.IDToken;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Publica nos tokens o nível Gov.br verificado no login e o instante da verificação,
+ * lidos das notas gravadas na sessão pelo GovBrLevelAuthenticator. Sessões sem validação
+ * Gov.br (outros provedores de identidade) não recebem as claims.
+ */
+public class GovBrLevelProtocolMapper extends AbstractOIDCProtocolMapper
+        implements OIDCAccessTokenMapper, OIDCIDTokenMapper, UserInfoTokenMapper, TokenIntrospectionTokenMapper {
+
+    public static final String PROVIDER_ID = "govbr-level-mapper";
+
+    public static final String VERIFIED_AT_CLAIM_NAME = "verified.at.claim.name";
+
+    private static final String DEFAULT_LEVEL_CLAIM = "govbr_level";
+    private static final String DEFAULT_VERIFIED_AT_CLAIM = "govbr_level_verified_at";
+
+    private static final List<ProviderConfigProperty> CONFIG_PROPERTIES = new ArrayList<>();
+
+    static {
+        OIDCAttributeMapperHelper.addTokenClaimNameConfig(CONFIG_PROPERTIES);
+        CONFIG_PROPERTIES.get(CONFIG_PROPERTIES.size() - 1).setDefaultValue(DEFAULT_LEVEL_CLAIM);
+
+        ProviderConfigProperty verifiedAt = new ProviderConfigProperty();
+        verifiedAt.setName(VERIFIED_AT_CLAIM_NAME);
+        verifiedAt.setLabel("Verified At Claim Name");
+        verifiedAt.setType(ProviderConfigProperty.STRING_TYPE);
+        verifiedAt.setDefaultValue(DEFAULT_VERIFIED_AT_CLAIM);
+        verifiedAt.setHelpText("Claim com o instante (epoch em segundos) em que o nível foi verificado. "
+                + "Deixe vazio para omitir.");
+        CONFIG_PROPERTIES.add(verifiedAt);
+
+        OIDCAttributeMapperHelper.addIncludeInTokensConfig(CONFIG_PROPERTIES, GovBrLevelProtocolMapper.class);
+    }
+
+    @Override
+    public String getId() {
+        return PROVIDER_ID;
+    }
+
+    @Override
+    public String getDisplayType() {
+        return "Gov.br Level";
+    }
+
+    @Override
+    public String getDisplayCategory() {
+        return TOKEN_MAPPER_CATEGORY;
+    }
+
+    @Override
+    public String getHelpText() {
+        return "Adiciona o nível Gov.br verificado no login (Bronze, Prata ou Ouro) e o instante da verificação.";
+    }
+
+    @Override
+    public List<ProviderConfigProperty> getConfigProperties() {
+        return CONFIG_PROPERTIES;
+    }
+
+    @Override
+    protected void setClaim(IDToken token, ProtocolMapperModel mappingModel, UserSessionModel userSession,
+                            KeycloakSession keycloakSession, ClientSessionContext clientSessionCtx) {
+        String nivel = userSession.getNote(GovBrLevelConstants.SESSION_NOTE_LEVEL);
+        if (nivel == null) {
+            return;
+        }
+        OIDCAttributeMapperHelper.mapClaim(token, mappingModel, nivel);
+
+        String claimVerificacao = mappingModel.getConfig().get(VERIFIED_AT_CLAIM_NAME);
+        String verificadoEm = userSession.getNote(GovBrLevelConstants.SESSION_NOTE_VERIFIED_AT);
+        if (claimVerificacao != null && !claimVerificacao.isBlank() && verificadoEm != null) {
+            token.getOtherClaims().put(claimVerificacao, Long.parseLong(verificadoEm));
+        }
+    }
+
+    public static ProtocolMapperModel create(String name, boolean accessToken, boolean idToken, boolean userInfo) {
+        ProtocolMapperModel mapper = OIDCAttributeMapperHelper.createClaimMapper(name, null,
+                DEFAULT_LEVEL_CLAIM, "String", accessToken, idToken, userInfo, PROVIDER_ID);
+        mapper.getConfig().put(VERIFIED_AT_CLAIM_NAME, DEFAULT_VERIFIED_AT_CLAIM);
+        return mapper;
+    }
+}
@@ -0,0 +1,115 @@
+package br.com.spi.govbr.policy;
+
+import br.com.spi.govbr.constants.GovBrLevelConstants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Conjunto de níveis aceitos compilado em máscara de bits.
+ * A verificação {@link #aceita(String)} não aloca e tem custo constante.
+ */
+public final class AcceptedLevels {
+
+    private static final String[] NIVEIS = {
+            GovBrLevelConstants.BRONZE,
+            GovBrLevelConstants.PRATA,
+            GovBrLevelConstants.OURO
+    };
+
+    private final int mascara;
+    private final List<String> nomes;
+    private final String texto;
+
+    private AcceptedLevels(int mascara) {
+        this.mascara = mascara;
+
+        List<String> aceitos = new ArrayList<>();
+        for (String nivel : NIVEIS) {
+            if ((mascara & bit(nivel)) != 0) {
+                aceitos.add(nivel);
+            }
+        }
+        this.nomes = List.copyOf(aceitos);
+        this.texto = gerarTexto(nomes);
+    }
+
+    public static AcceptedLevels compilar(String... niveis) {
+        int mascara = 0;
+        for (String nivel : niveis) {
+            mascara |= bit(normalizar(nivel));
+        }
+        return new AcceptedLevels(mascara);
+    }
+
+    /**
+     * Compila uma lista separada por vírgulas, ex: "Prata,Ouro"; nomes desconhecidos são ignorados
+     */
+    public static AcceptedLevels compilar(String configuracao) {
+        return compilar(configuracao.split(","));
+    }
+
+    /**
+     * Itens de uma lista separada por vírgulas que não são níveis conhecidos (ex: erros de digitação)
+     */
+    public static List<String> desconhecidos(String configuracao) {
+        List<String> desconhecidos = new ArrayList<>();
+        for (String nivel : configuracao.split(",")) {
+            if (!nivel.isBlank() && bit(normalizar(nivel)) == 0) {
+                desconhecidos.add(nivel.trim());
+            }
+        }
+        return desconhecidos;
+    }
+
+    public boolean aceita(String nivel) {
+        return nivel != null && (mascara & bit(nivel)) != 0;
+    }
+
+    public int mascara() {
+        return mascara;
+    }
+
+    public List<String> nomes() {
+        return nomes;
+    }
+
+    /**
+     * Texto descritivo, ex: "nível Ouro" ou "níveis Prata ou Ouro"
+     */
+    public String texto() {
+        return texto;
+    }
+
+    private static int bit(String nivel) {
+        return switch (nivel) {
+            case GovBrLevelConstants.BRONZE -> 1;
+            case GovBrLevelConstants.PRATA -> 1 << 1;
+            case GovBrLevelConstants.OURO -> 1 << 2;
+            default -> 0;
+        };
+    }
+
+    private static String normalizar(String nivel) {
+        String limpo = nivel.trim();
+        return Arrays.stream(NIVEIS)
+                .filter(n -> n.equalsIgnoreCase(limpo))
+                .findFirst()
+                .orElse(limpo);
+    }
+
+    private static String gerarTexto(List<String> niveis) {
+        if (niveis.isEmpty()) {
+            return "Nenhum nível configurado";
+        }
+
+        if (niveis.size() == 1) {
+            return "nível " + niveis.get(0);
+        }
+
+        // 2 ou mais níveis: "níveis Bronze, Prata ou Ouro"
+        return "níveis " + String.join(", ", niveis.subList(0, niveis.size() - 1))
+                + " ou " + niveis.get(niveis.size() - 1);
+    }
+}
@@ -0,0 +1,96 @@
+package br.com.spi.govbr.policy;
+
+import br.com.spi.govbr.config.GovBrConfig;
+import org.jboss.logging.Logger;
+import org.keycloak.models.ClientModel;
+import org.keycloak.models.RealmModel;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Política de níveis aceitos por realm e por client.
+ *
+ * O atributo {@link GovBrConfig#POLICY_ATTRIBUTE} do client tem precedência sobre o do realm,
+ * que por sua vez substitui os níveis padrão (opção SPI accepted-levels). Cada configuração é
+ * compilada uma única vez em {@link AcceptedLevels} e recompilada após o intervalo configurado.
+ * Nomes desconhecidos no atributo geram um aviso e são ignorados; se nenhum nível restar, vale a
+ * política de fora (realm ou padrão), para que um erro de digitação não bloqueie todos os logins.
+ */
+public class LevelPolicyRegistry {
+
+    private static final Logger logger = Logger.getLogger(LevelPolicyRegistry.class);
+
+    private final AcceptedLevels padrao;
+    private final ConcurrentHashMap<String, RealmPolicy> realms = new ConcurrentHashMap<>();
+    private final long refreshMillis;
+
+    public LevelPolicyRegistry(long refreshMillis) {
+        this(refreshMillis, AcceptedLevels.compilar(GovBrConfig.ACCEPTED_LEVELS));
+    }
+
+    public LevelPolicyRegistry(long refreshMillis, AcceptedLevels padrao) {
+        this.refreshMillis = refreshMillis;
+        this.padrao = padrao;
+    }
+
+    public AcceptedLevels resolver(RealmModel realm, ClientModel client) {
+        RealmPolicy policy = realms.get(realm.getId());
+        if (policy == null || System.currentTimeMillis() - policy.compiladaEm >= refreshMillis) {
+            policy = new RealmPolicy(compilar(realm.getAttribute(GovBrConfig.POLICY_ATTRIBUTE), padrao,
+                    "realm " + realm.getName()));
+            realms.put(realm.getId(), policy);
+        }
+
+        if (client == null) {
+            return policy.padraoRealm;
+        }
+
+        AcceptedLevels niveis = policy.clientes.get(client.getClientId());
+        if (niveis == null) {
+            niveis = compilar(client.getAttribute(GovBrConfig.POLICY_ATTRIBUTE), policy.padraoRealm,
+                    "client " + client.getClientId() + " do realm " + realm.getName());
+            policy.clientes.put(client.getClientId(), niveis);
+            logger.debugf("Política Gov.br compilada para client %s: %s", client.getClientId(), niveis.nomes());
+        }
+        return niveis;
+    }
+
+    public AcceptedLevels getPadrao() {
+        return padrao;
+    }
+
+    public void invalidar(String realmId) {
+        realms.remove(realmId);
+    }
+
+    static AcceptedLevels compilar(String configuracao, AcceptedLevels fallback, String origem) {
+        if (configuracao == null || configuracao.isBlank()) {
+            return fallback;
+        }
+
+        List<String> desconhecidos = AcceptedLevels.desconhecidos(configuracao);
+        if (!desconhecidos.isEmpty()) {
+            logger.warnf("Atributo %s do %s contém níveis desconhecidos %s (válidos: Bronze, Prata, Ouro); "
+                    + "ignorados", GovBrConfig.POLICY_ATTRIBUTE, origem, desconhecidos);
+        }
+
+        AcceptedLevels niveis = AcceptedLevels.compilar(configuracao);
+        if (niveis.nomes().isEmpty()) {
+            logger.warnf("Atributo %s do %s sem níveis conhecidos, usando %s",
+                    GovBrConfig.POLICY_ATTRIBUTE, origem, fallback.nomes());
+            return fallback;
+        }
+        return niveis;
+    }
+
+    private static final class RealmPolicy {
+        private final AcceptedLevels padraoRealm;
+        private final ConcurrentHashMap<String, AcceptedLevels> clientes = new ConcurrentHashMap<>();
+        private final long compiladaEm = System.currentTimeMillis();
+
+        private RealmPolicy(AcceptedLevels padraoRealm) {
+            this.padraoRealm = padraoRealm;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package br.com.spi.govbr.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limite de consultas simultâneas à API de nível ajustado pelo RTT observado (gradiente).
+ *
+ * Duas médias móveis do RTT são mantidas: uma curta, que reage à fila que se forma no
+ * gateway, e uma longa, que representa a latência sem carga. Enquanto as duas se mantêm
+ * próximas o limite cresce (margem de √limite); quando a curta sobe, o limite é reduzido
+ * na proporção do gradiente. Timeouts e respostas 429/5xx reduzem o limite de forma
+ * multiplicativa. Acima do limite a consulta é rejeitada de imediato, sem bloquear a thread.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    // Tolerância do gradiente: a curta pode chegar a 1,5× a longa sem reduzir o limite
+    private static final double TOLERANCIA_RTT = 1.5;
+    private static final double GRADIENTE_MINIMO = 0.5;
+    private static final double SUAVIZACAO = 0.2;
+    private static final double FATOR_SOBRECARGA = 0.9;
+    // Pesos das médias móveis: a curta segue as últimas ~5 amostras, a longa ~500
+    private static final double ALFA_CURTO = 0.2;
+    private static final double ALFA_LONGO = 0.002;
+
+    private final int limiteMinimo;
+    private final int limiteMaximo;
+
+    private final AtomicInteger emAndamento = new AtomicInteger();
+    private volatile double limite;
+    private double rttCurtoNanos;
+    private double rttLongoNanos;
+
+    private final LongAdder rejeitadas = new LongAdder();
+    private final LongAdder reducoes = new LongAdder();
+
+    public AdaptiveConcurrencyLimit(int limiteMinimo, int limiteInicial, int limiteMaximo) {
+        this.limiteMinimo = limiteMinimo;
+        this.limiteMaximo = limiteMaximo;
+        this.limite = Math.max(limiteMinimo, Math.min(limiteMaximo, limiteInicial));
+    }
+
+    /**
+     * Permissão para uma consulta, ou null se o limite atual foi atingido
+     */
+    public Permissao adquirir() {
+        while (true) {
+            int atual = emAndamento.get();
+            if (atual >= (int) limite) {
+                rejeitadas.increment();
+                return null;
+            }
+            if (emAndamento.compareAndSet(atual, atual + 1)) {
+                return new Permissao(atual + 1);
+            }
+        }
+    }
+
+    private synchronized void amostrar(long rttNanos, int emAndamentoNoInicio) {
+        if (rttCurtoNanos == 0) {
+            rttCurtoNanos = rttNanos;
+            rttLongoNanos = rttNanos;
+        } else {
+            rttCurtoNanos += ALFA_CURTO * (rttNanos - rttCurtoNanos);
+            rttLongoNanos += ALFA_LONGO * (rttNanos - rttLongoNanos);
+        }
+
+        // Após um pico prolongado a média longa fica inflada; recupera mais rápido que o EMA
+        if (rttLongoNanos > 2 * rttCurtoNanos) {
+            rttLongoNanos *= 0.95;
+        }
+
+        double gradiente = Math.max(GRADIENTE_MINIMO,
+                Math.min(1.0, TOLERANCIA_RTT * rttLongoNanos / rttCurtoNanos));
+
+        // Com pouca demanda o RTT não diz nada sobre a capacidade: só permite reduzir
+        if (gradiente >= 1.0 && emAndamentoNoInicio < limite / 2) {
+            return;
+        }
+
+        double novo = limite * gradiente + Math.sqrt(limite);
+        ajustar(limite * (1 - SUAVIZACAO) + novo * SUAVIZACAO);
+    }
+
+    private synchronized void sobrecarga() {
+        reducoes.increment();
+        ajustar(limite * FATOR_SOBRECARGA);
+    }
+
+    private void ajustar(double novo) {
+        limite = Math.max(limiteMinimo, Math.min(limiteMaximo, novo));
+    }
+
+    /**
+     * Indica se uma nova consulta seria rejeitada agora
+     */
+    public boolean saturado() {
+        return emAndamento.get() >= (int) limite;
+    }
+
+    public int getLimite() {
+        return (int) limite;
+    }
+
+    public Map<String, Object> estatisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        double rttCurto;
+        double rttLongo;
+        synchronized (this) {
+            rttCurto = rttCurtoNanos;
+            rttLongo = rttLongoNanos;
+        }
+        stats.put("limit", getLimite());
+        stats.put("minLimit", limiteMinimo);
+        stats.put("maxLimit", limiteMaximo);
+        stats.put("inFlight", emAndamento.get());
+        stats.put("rejected", rejeitadas.sum());
+        stats.put("overloadDecreases", reducoes.sum());
+        stats.put("shortRttMillis", Math.round(rttCurto / 1_000_000));
+        stats.put("longRttMillis", Math.round(rttLongo / 1_000_000));
+        return stats;
+    }
+
+    /**
+     * Uma consulta em andamento. Deve ser encerrada uma única vez; chamadas seguintes são ignoradas.
+     */
+    public final class Permissao {
+
+        private final long inicio = System.nanoTime();
+        private final int emAndamentoNoInicio;
+        private boolean encerrada;
+
+        private Permissao(int emAndamentoNoInicio) {
+            this.emAndamentoNoInicio = emAndamentoNoInicio;
+        }
+
+        /**
+         * A API respondeu normalmente; o RTT entra no cálculo do limite
+         */
+        public void sucesso() {
+            if (encerrar()) {
+                amostrar(System.nanoTime() - inicio, emAndamentoNoInicio);
+            }
+        }
+
+        /**
+         * Timeout, 429 ou 5xx: reduz o limite
+         */
+        public void sobrecarga() {
+            if (encerrar()) {
+                AdaptiveConcurrencyLimit.this.sobrecarga();
+            }
+        }
+
+        /**
+         * A consulta não chegou à API (circuit breaker, prazo esgotado); não altera o limite
+         */
+        public void ignorar() {
+            encerrar();
+        }
+
+        private boolean encerrar() {
+            if (encerrada) {
+                return false;
+            }
+            encerrada = true;
+            emAndamento.decrementAndGet();
+            return true;
+        }
+    }
+}
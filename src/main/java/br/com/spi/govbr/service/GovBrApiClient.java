@@ -1,61 +1,347 @@
 package br.com.spi.govbr.service;
 
-import br.com.spi.govbr.config.GovBrConfig;
+import br.com.spi.govbr.config.GovBrSettings;
 import br.com.spi.govbr.dto.GovBrLevelResponse;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import br.com.spi.govbr.dto.GovBrLevelResponseDecoder;
+import br.com.spi.govbr.exception.GovBrValidationException;
+import br.com.spi.govbr.jfr.GovBrUpstreamCallEvent;
+import br.com.spi.govbr.util.GovBrTracing;
 import org.jboss.logging.Logger;
 
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.List;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class GovBrApiClient {
 
     private static final Logger logger = Logger.getLogger(GovBrApiClient.class);
 
+    // Partição das consultas feitas fora de um realm (validarNivelUsuario(accessToken))
+    public static final String SEM_REALM = "-";
+
+    private final GovBrSettings settings;
+    private final ExecutorService executor;
     private final HttpClient httpClient;
-    private final ObjectMapper objectMapper;
+    private final LatencySketch latencySketch;
+
+    // Circuit breaker e cota de concorrência por realm, criados na primeira consulta do realm
+    private final ConcurrentHashMap<String, RealmPartition> particoes = new ConcurrentHashMap<>();
+
+    // Limita as consultas simultâneas para não esgotar threads de login quando a API degrada
+    private final AdaptiveConcurrencyLimit limiteConcorrencia;
 
     public GovBrApiClient() {
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(GovBrConfig.CONNECT_TIMEOUT))
-                .build();
-        this.objectMapper = new ObjectMapper();
+        this(GovBrSettings.padrao());
+    }
+
+    public GovBrApiClient(GovBrSettings settings) {
+        this.settings = settings;
+        this.executor = settings.httpExecutorThreads() > 0
+                ? Executors.newFixedThreadPool(settings.httpExecutorThreads(), r -> {
+                    Thread thread = new Thread(r, "govbr-http");
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(settings.httpVersion())
+                .connectTimeout(Duration.ofSeconds(settings.connectTimeoutSeconds()));
+        if (executor != null) {
+            builder.executor(executor);
+        }
+        this.httpClient = builder.build();
+        this.latencySketch = new LatencySketch(
+                Duration.ofSeconds(settings.latencyWindowSeconds()).toMillis(),
+                settings.latencyMinSamples());
+        this.limiteConcorrencia = new AdaptiveConcurrencyLimit(settings.minConcurrentRequests(),
+                settings.initialConcurrentRequests(), settings.maxConcurrentRequests());
     }
 
     public String consultarNivelUsuario(String accessToken) throws Exception {
+        return consultarNivelUsuario(SEM_REALM, accessToken,
+                System.nanoTime() + Duration.ofMillis(settings.loginDeadlineMillis()).toNanos());
+    }
+
+    /**
+     * Consulta o nível respeitando o prazo (System.nanoTime) da validação em curso
+     */
+    public String consultarNivelUsuario(String realmId, String accessToken, long prazoNanos) throws Exception {
+        RealmPartition particao = particao(realmId);
+        return GovBrTracing.rastrearChamadaExterna("govbr.api.nivel",
+                () -> consultar(particao, accessToken, prazoNanos));
+    }
+
+    /**
+     * Partição do realm, criada no primeiro uso com o peso configurado em realm-weights
+     */
+    public RealmPartition particao(String realmId) {
+        return particoes.computeIfAbsent(realmId != null ? realmId : SEM_REALM,
+                id -> new RealmPartition(id, settings.pesoRealm(id), new GovBrCircuitBreaker(
+                        settings.breakerFailureThreshold(),
+                        Duration.ofSeconds(settings.breakerOpenSeconds()).toMillis())));
+    }
+
+    /**
+     * Fatia do limite atual do nó para o realm: proporcional ao peso entre os realms com consultas
+     * em andamento. Sem disputa, um único realm pode usar o limite inteiro.
+     */
+    private int cota(RealmPartition particao) {
+        int somaPesos = particao.getPeso();
+        for (RealmPartition outra : particoes.values()) {
+            if (outra != particao && outra.emAndamento() > 0) {
+                somaPesos += outra.getPeso();
+            }
+        }
+        return Math.max(1, (int) Math.ceil((double) limiteConcorrencia.getLimite() * particao.getPeso() / somaPesos));
+    }
+
+    private String consultar(RealmPartition particao, String accessToken, long prazoNanos) throws Exception {
+        GovBrUpstreamCallEvent evento = new GovBrUpstreamCallEvent();
+        evento.begin();
+        String resultado = "ERROR";
+        try {
+            String nivel = consultarComLimite(particao, accessToken, prazoNanos, evento);
+            resultado = "OK";
+            return nivel;
+        } catch (GovBrValidationException e) {
+            resultado = e.getErrorCode();
+            throw e;
+        } catch (HttpTimeoutException e) {
+            resultado = "TIMEOUT";
+            throw e;
+        } finally {
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.outcome = evento.outcome != null ? evento.outcome : resultado;
+                evento.realmId = particao.getRealmId();
+                evento.breakerState = particao.getCircuitBreaker().getEstado().name();
+                evento.commit();
+            }
+        }
+    }
+
+    private String consultarComLimite(RealmPartition particao, String accessToken, long prazoNanos,
+                                      GovBrUpstreamCallEvent evento) throws Exception {
+        if (!particao.entrar(cota(particao))) {
+            evento.outcome = "REALM_SHARE_LIMITED";
+            throw new RuntimeException("API Gov.br indisponível (cota de consultas simultâneas do realm)");
+        }
+        try {
+            AdaptiveConcurrencyLimit.Permissao permissao = limiteConcorrencia.adquirir();
+            if (permissao == null) {
+                evento.outcome = "CONCURRENCY_LIMITED";
+                throw new RuntimeException("API Gov.br indisponível (limite de consultas simultâneas)");
+            }
+            try {
+                return consultarComPermissao(particao.getCircuitBreaker(), accessToken, prazoNanos, evento, permissao);
+            } finally {
+                permissao.ignorar();
+            }
+        } finally {
+            particao.sair();
+        }
+    }
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(GovBrConfig.NIVEL_API_URL))
+    private String consultarComPermissao(GovBrCircuitBreaker circuitBreaker, String accessToken, long prazoNanos,
+                                         GovBrUpstreamCallEvent evento,
+                                         AdaptiveConcurrencyLimit.Permissao permissao) throws Exception {
+
+        // Tudo que pode falhar antes do envio vem antes do breaker: no meio-aberto, a permissão é a
+        // única chamada de teste e precisa terminar em registrarSucesso ou registrarFalha
+        Duration timeout = calcularTimeout(prazoNanos);
+        evento.timeoutMillis = timeout.toMillis();
+
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
+                .uri(settings.nivelApiUrl())
                 .header("Authorization", "Bearer " + accessToken)
                 .header("Accept", "application/json")
-                .timeout(Duration.ofSeconds(GovBrConfig.REQUEST_TIMEOUT))
-                .GET()
-                .build();
+                .timeout(timeout)
+                .GET();
+        GovBrTracing.injetarContexto(requestBuilder);
+        HttpRequest request = requestBuilder.build();
+
+        if (!circuitBreaker.permitirRequisicao()) {
+            evento.outcome = "CIRCUIT_OPEN";
+            throw new RuntimeException("API Gov.br indisponível (circuit breaker aberto)");
+        }
 
-        HttpResponse<String> response = httpClient.send(request,
-                HttpResponse.BodyHandlers.ofString());
+        HttpResponse<byte[]> response;
+        long inicio = System.nanoTime();
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (Exception e) {
+            if (e instanceof HttpTimeoutException) {
+                // Sem a amostra, o percentil só veria as respostas rápidas e o timeout nunca subiria;
+                // o tempo até o timeout é um limite inferior da latência real
+                latencySketch.registrar((System.nanoTime() - inicio) / 1_000_000);
+            }
+            circuitBreaker.registrarFalha();
+            permissao.sobrecarga();
+            throw e;
+        }
+        if (response.statusCode() == 429 || response.statusCode() >= 500) {
+            permissao.sobrecarga();
+        } else {
+            permissao.sucesso();
+        }
+        latencySketch.registrar((System.nanoTime() - inicio) / 1_000_000);
+        evento.statusCode = response.statusCode();
 
         if (response.statusCode() == 401 || response.statusCode() == 403) {
-            throw new RuntimeException("Token inválido");
+            circuitBreaker.registrarSucesso();
+            throw GovBrValidationException.invalidToken();
         }
 
         if (response.statusCode() != 200) {
+            circuitBreaker.registrarFalha();
             throw new RuntimeException("API Gov.br indisponível");
         }
 
-        List<GovBrLevelResponse> responses = objectMapper.readValue(
-                response.body(), new TypeReference<>() {});
+        circuitBreaker.registrarSucesso();
 
-        if (responses == null || responses.isEmpty()) {
+        GovBrLevelResponse nivel = GovBrLevelResponseDecoder.primeiro(response.body());
+
+        if (nivel == null || !nivel.isValid()) {
             throw new RuntimeException("Nenhum nível encontrado");
         }
 
-        return converterCodigoParaNivel(responses.get(0).id());
+        return converterCodigoParaNivel(nivel.id());
+    }
+
+    /**
+     * Obtém novos tokens no endpoint de token do Gov.br (grant refresh_token).
+     * Retorna o corpo JSON da resposta.
+     */
+    public String renovarToken(String tokenUrl, String clientId, String clientSecret,
+                               boolean clientSecretBasic, String refreshToken) throws Exception {
+
+        StringBuilder form = new StringBuilder("grant_type=refresh_token&refresh_token=")
+                .append(URLEncoder.encode(refreshToken, StandardCharsets.UTF_8));
+
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
+                .uri(URI.create(tokenUrl))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .header("Accept", "application/json")
+                .timeout(Duration.ofSeconds(settings.tokenRequestTimeoutSeconds()));
+
+        if (clientSecretBasic && clientSecret != null) {
+            String credenciais = URLEncoder.encode(clientId, StandardCharsets.UTF_8) + ":"
+                    + URLEncoder.encode(clientSecret, StandardCharsets.UTF_8);
+            requestBuilder.header("Authorization", "Basic "
+                    + Base64.getEncoder().encodeToString(credenciais.getBytes(StandardCharsets.UTF_8)));
+        } else {
+            form.append("&client_id=").append(URLEncoder.encode(clientId, StandardCharsets.UTF_8));
+            if (clientSecret != null) {
+                form.append("&client_secret=").append(URLEncoder.encode(clientSecret, StandardCharsets.UTF_8));
+            }
+        }
+
+        HttpRequest request = requestBuilder
+                .POST(HttpRequest.BodyPublishers.ofString(form.toString()))
+                .build();
+
+        HttpResponse<String> response = GovBrTracing.rastrearChamadaExterna("govbr.api.token",
+                () -> httpClient.send(request, HttpResponse.BodyHandlers.ofString()));
+
+        if (response.statusCode() == 400 || response.statusCode() == 401) {
+            // Refresh token expirado ou revogado
+            throw GovBrValidationException.invalidToken();
+        }
+
+        if (response.statusCode() != 200) {
+            throw new RuntimeException("Endpoint de token Gov.br indisponível");
+        }
+
+        return response.body();
+    }
+
+    /**
+     * Timeout derivado das latências observadas, limitado pelo tempo restante da validação
+     */
+    private Duration calcularTimeout(long prazoNanos) {
+        long restanteMillis = (prazoNanos - System.nanoTime()) / 1_000_000;
+        if (restanteMillis <= 0) {
+            throw new RuntimeException("API Gov.br indisponível (prazo da validação esgotado)");
+        }
+        return Duration.ofMillis(Math.min(timeoutAdaptativoMillis(), restanteMillis));
+    }
+
+    public long timeoutAdaptativoMillis() {
+        long percentil = latencySketch.percentil(settings.adaptiveTimeoutPercentile());
+        if (percentil < 0) {
+            return settings.adaptiveTimeoutMaxMillis();
+        }
+        return Math.max(settings.adaptiveTimeoutMinMillis(),
+                Math.min(settings.adaptiveTimeoutMaxMillis(),
+                        percentil * settings.adaptiveTimeoutMultiplier()));
+    }
+
+    public Map<String, Object> estatisticasLatencia() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("p50Millis", latencySketch.percentil(0.50));
+        stats.put("p90Millis", latencySketch.percentil(0.90));
+        stats.put("p99Millis", latencySketch.percentil(0.99));
+        stats.put("timeoutMillis", timeoutAdaptativoMillis());
+        return stats;
+    }
+
+    public boolean concorrenciaSaturada() {
+        return limiteConcorrencia.saturado();
+    }
+
+    /**
+     * Indica se o realm já ocupa toda a sua cota no limite do nó
+     */
+    public boolean cotaRealmSaturada(String realmId) {
+        RealmPartition particao = particoes.get(realmId);
+        return particao != null && particao.emAndamento() >= cota(particao);
+    }
+
+    /**
+     * Estado do circuit breaker do realm; FECHADO se o realm ainda não consultou a API
+     */
+    public GovBrCircuitBreaker.Estado estadoBreaker(String realmId) {
+        RealmPartition particao = particoes.get(realmId);
+        return particao != null ? particao.getCircuitBreaker().getEstado() : GovBrCircuitBreaker.Estado.FECHADO;
+    }
+
+    /**
+     * Estatísticas da partição do realm (null se o realm ainda não consultou a API)
+     */
+    public Map<String, Object> estatisticasRealm(String realmId) {
+        RealmPartition particao = particoes.get(realmId);
+        if (particao == null) {
+            return null;
+        }
+        Map<String, Object> stats = particao.estatisticas();
+        stats.put("share", cota(particao));
+        return stats;
+    }
+
+    public Map<String, Object> estatisticasConcorrencia() {
+        return limiteConcorrencia.estatisticas();
+    }
+
+    public GovBrSettings getSettings() {
+        return settings;
+    }
+
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
     }
 
     private String converterCodigoParaNivel(String codigo) {
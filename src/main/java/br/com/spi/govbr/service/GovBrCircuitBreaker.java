@@ -0,0 +1,92 @@
+package br.com.spi.govbr.service;
+
+import org.jboss.logging.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit breaker para chamadas à API de nível Gov.br
+ */
+public class GovBrCircuitBreaker {
+
+    private static final Logger logger = Logger.getLogger(GovBrCircuitBreaker.class);
+
+    public enum Estado { FECHADO, ABERTO, MEIO_ABERTO }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private final AtomicReference<Estado> estado = new AtomicReference<>(Estado.FECHADO);
+    private final AtomicInteger falhasConsecutivas = new AtomicInteger();
+    private final AtomicLong abertoEm = new AtomicLong();
+
+    private final LongAdder rejeitadas = new LongAdder();
+    private final LongAdder aberturas = new LongAdder();
+
+    public GovBrCircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Indica se a chamada pode seguir para a API.
+     * Após o período aberto, apenas uma chamada de teste é liberada.
+     */
+    public boolean permitirRequisicao() {
+        Estado atual = estado.get();
+
+        if (atual == Estado.FECHADO) {
+            return true;
+        }
+
+        if (atual == Estado.ABERTO
+                && System.currentTimeMillis() - abertoEm.get() >= openMillis
+                && estado.compareAndSet(Estado.ABERTO, Estado.MEIO_ABERTO)) {
+            logger.info("Circuit breaker Gov.br meio-aberto, liberando chamada de teste");
+            return true;
+        }
+
+        rejeitadas.increment();
+        return false;
+    }
+
+    public void registrarSucesso() {
+        falhasConsecutivas.set(0);
+        if (estado.getAndSet(Estado.FECHADO) != Estado.FECHADO) {
+            logger.info("Circuit breaker Gov.br fechado");
+        }
+    }
+
+    public void registrarFalha() {
+        int falhas = falhasConsecutivas.incrementAndGet();
+        Estado atual = estado.get();
+
+        if (atual == Estado.MEIO_ABERTO || (atual == Estado.FECHADO && falhas >= failureThreshold)) {
+            if (estado.compareAndSet(atual, Estado.ABERTO)) {
+                abertoEm.set(System.currentTimeMillis());
+                aberturas.increment();
+                logger.warnf("Circuit breaker Gov.br aberto após %d falhas consecutivas", falhas);
+            }
+        }
+    }
+
+    public Estado getEstado() {
+        return estado.get();
+    }
+
+    public Map<String, Object> estatisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", estado.get().name());
+        stats.put("consecutiveFailures", falhasConsecutivas.get());
+        stats.put("failureThreshold", failureThreshold);
+        stats.put("openSeconds", openMillis / 1000);
+        stats.put("timesOpened", aberturas.sum());
+        stats.put("rejectedCalls", rejeitadas.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,74 @@
+package br.com.spi.govbr.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Detecta sobrecarga do nó para que o authenticator responda com a página 503 pré-montada,
+ * sem limpeza de sessões nem renderização de tema.
+ *
+ * Há sobrecarga quando as validações Gov.br em andamento atingem o limite configurado,
+ * quando o circuit breaker do realm está aberto ou quando o limite de consultas simultâneas
+ * à API (do nó ou a cota do realm) está saturado.
+ */
+public class GovBrOverloadDetector {
+
+    private final int maxValidacoesEmAndamento;
+    private final GovBrApiClient apiClient;
+
+    private final AtomicInteger emAndamento = new AtomicInteger();
+    private final LongAdder descartadas = new LongAdder();
+
+    /**
+     * @param maxValidacoesEmAndamento limite de validações simultâneas por nó (0 desabilita o limite)
+     */
+    public GovBrOverloadDetector(int maxValidacoesEmAndamento, GovBrApiClient apiClient) {
+        this.maxValidacoesEmAndamento = maxValidacoesEmAndamento;
+        this.apiClient = apiClient;
+    }
+
+    /**
+     * Registra o início de uma validação; false se o nó já está no limite (nada é registrado)
+     */
+    public boolean entrar() {
+        int atual = emAndamento.incrementAndGet();
+        if (maxValidacoesEmAndamento > 0 && atual > maxValidacoesEmAndamento) {
+            emAndamento.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public void sair() {
+        emAndamento.decrementAndGet();
+    }
+
+    /**
+     * Indica se uma falha por indisponibilidade no realm deve receber a resposta barata
+     */
+    public boolean sobrecarregado(String realmId) {
+        return sobrecarregado()
+                || apiClient.estadoBreaker(realmId) == GovBrCircuitBreaker.Estado.ABERTO
+                || apiClient.cotaRealmSaturada(realmId);
+    }
+
+    private boolean sobrecarregado() {
+        return (maxValidacoesEmAndamento > 0 && emAndamento.get() >= maxValidacoesEmAndamento)
+                || apiClient.concorrenciaSaturada();
+    }
+
+    public void registrarDescarte() {
+        descartadas.increment();
+    }
+
+    public Map<String, Object> estatisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("inFlightValidations", emAndamento.get());
+        stats.put("maxInFlightValidations", maxValidacoesEmAndamento);
+        stats.put("overloaded", sobrecarregado());
+        stats.put("shed", descartadas.sum());
+        return stats;
+    }
+}
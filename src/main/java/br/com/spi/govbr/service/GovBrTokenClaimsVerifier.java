@@ -0,0 +1,239 @@
+package br.com.spi.govbr.service;
+
+import br.com.spi.govbr.constants.GovBrLevelConstants;
+import br.com.spi.govbr.util.LevelCodec;
+import org.jboss.logging.Logger;
+import org.keycloak.TokenVerifier;
+import org.keycloak.crypto.AsymmetricSignatureVerifierContext;
+import org.keycloak.crypto.KeyWrapper;
+import org.keycloak.crypto.PublicKeysWrapper;
+import org.keycloak.jose.jwk.JSONWebKeySet;
+import org.keycloak.jose.jwk.JWK;
+import org.keycloak.jose.jws.JWSInput;
+import org.keycloak.representations.JsonWebToken;
+import org.keycloak.util.JWKSUtils;
+import org.keycloak.util.JsonSerialization;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Deriva o nível localmente a partir de uma claim do access token Gov.br, verificado contra o JWKS.
+ *
+ * O JWKS é recarregado por uma tarefa periódica ({@link #atualizar}) após {@code maxAgeMillis}, e o
+ * login usa sempre as chaves atuais. Só um kid desconhecido (primeiro uso ou rotação) leva o login a
+ * buscar o JWKS: uma requisição por vez, no máximo uma vez a cada {@code minRefreshMillis}; as demais
+ * seguem para a API de nível em vez de esperar. Se o JWKS não puder ser recarregado, as chaves
+ * anteriores continuam valendo. Quando a assinatura, a validade ou a
+ * claim não permitem decidir, retorna null e a consulta segue para a API de nível.
+ * Aceita URLs http(s) ou file: (JWKS local, útil em testes).
+ */
+public class GovBrTokenClaimsVerifier {
+
+    private static final Logger logger = Logger.getLogger(GovBrTokenClaimsVerifier.class);
+
+    private final URI jwksUri;
+    private final long maxAgeMillis;
+    private final long minRefreshMillis;
+    private final String levelClaim;
+    private final String issuer;
+    private final HttpClient httpClient;
+
+    private volatile PublicKeysWrapper chaves = PublicKeysWrapper.EMPTY;
+    private volatile long carregadoEm;
+    private volatile long ultimaTentativa;
+    private final ReentrantLock recarga = new ReentrantLock();
+
+    private final LongAdder derivados = new LongAdder();
+    private final LongAdder semClaim = new LongAdder();
+    private final LongAdder rejeitados = new LongAdder();
+    private final LongAdder recargas = new LongAdder();
+
+    public GovBrTokenClaimsVerifier(URI jwksUri, long maxAgeMillis, long minRefreshMillis,
+                                    String levelClaim, String issuer, Duration connectTimeout) {
+        this.jwksUri = jwksUri;
+        this.maxAgeMillis = maxAgeMillis;
+        this.minRefreshMillis = minRefreshMillis;
+        this.levelClaim = levelClaim;
+        this.issuer = issuer;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(connectTimeout).build();
+    }
+
+    /**
+     * Nível (Bronze/Prata/Ouro) declarado no token verificado, ou null se não for possível decidir
+     */
+    public String derivarNivel(String accessToken) {
+        try {
+            JWSInput jws = new JWSInput(accessToken);
+            String kid = jws.getHeader().getKeyId();
+            String alg = jws.getHeader().getRawAlgorithm();
+
+            KeyWrapper chave = chave(kid, alg);
+            if (chave == null) {
+                logger.debugf("Chave %s (%s) não encontrada no JWKS Gov.br", kid, alg);
+                rejeitados.increment();
+                return null;
+            }
+
+            TokenVerifier<JsonWebToken> verifier = TokenVerifier.create(accessToken, JsonWebToken.class)
+                    .verifierContext(new AsymmetricSignatureVerifierContext(chave))
+                    .withChecks(TokenVerifier.IS_ACTIVE);
+            if (issuer != null) {
+                verifier.withChecks(new TokenVerifier.RealmUrlCheck(issuer));
+            }
+            JsonWebToken token = verifier.verify().getToken();
+
+            String nivel = interpretar(token.getOtherClaims().get(levelClaim));
+            if (nivel == null) {
+                semClaim.increment();
+                return null;
+            }
+
+            derivados.increment();
+            return nivel;
+
+        } catch (Exception e) {
+            logger.debugf("Token Gov.br não verificado localmente: %s", e.getMessage());
+            rejeitados.increment();
+            return null;
+        }
+    }
+
+    private KeyWrapper chave(String kid, String alg) {
+        KeyWrapper chave = chaves.getKeyByKidAndAlg(kid, alg);
+        if (chave != null || System.currentTimeMillis() - ultimaTentativa < minRefreshMillis) {
+            return chave;
+        }
+
+        // kid novo: o Gov.br pode ter rotacionado as chaves. Quem não obtém o lock não espera
+        if (!recarga.tryLock()) {
+            return null;
+        }
+        try {
+            recarregar(System.currentTimeMillis());
+        } finally {
+            recarga.unlock();
+        }
+        return chaves.getKeyByKidAndAlg(kid, alg);
+    }
+
+    /**
+     * Recarrega o JWKS se as chaves tiverem mais de {@code maxAgeMillis}; chamada pela tarefa periódica
+     */
+    public void atualizar() {
+        recarga.lock();
+        try {
+            long agora = System.currentTimeMillis();
+            if (agora - carregadoEm >= maxAgeMillis) {
+                recarregar(agora);
+            }
+        } finally {
+            recarga.unlock();
+        }
+    }
+
+    /**
+     * Período da tarefa de atualização: uma recarga com falha é repetida após {@code minRefreshMillis}
+     */
+    public long intervaloAtualizacaoMillis() {
+        return Math.max(1000, Math.min(maxAgeMillis, minRefreshMillis));
+    }
+
+    /**
+     * Chamado com {@link #recarga} adquirido
+     */
+    private void recarregar(long agora) {
+        if (agora - ultimaTentativa < minRefreshMillis) {
+            return;
+        }
+        ultimaTentativa = agora;
+
+        try {
+            JSONWebKeySet jwks = JsonSerialization.readValue(lerJwks(), JSONWebKeySet.class);
+            chaves = JWKSUtils.getKeyWrappersForUse(jwks, JWK.Use.SIG);
+            carregadoEm = agora;
+            recargas.increment();
+            logger.debugf("JWKS Gov.br carregado: %s", chaves.getKids());
+        } catch (Exception e) {
+            logger.warnf("Falha ao carregar JWKS Gov.br de %s, mantendo chaves anteriores: %s",
+                    jwksUri, e.getMessage());
+        }
+    }
+
+    private String lerJwks() throws Exception {
+        if ("file".equals(jwksUri.getScheme())) {
+            return Files.readString(Path.of(jwksUri));
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(jwksUri)
+                .header("Accept", "application/json")
+                .timeout(Duration.ofSeconds(10))
+                .GET()
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("HTTP " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    /**
+     * Aceita o nome ou o código (NIVEL_*_CODE) do nível; listas só quando indicam um único nível
+     */
+    private static String interpretar(Object valor) {
+        if (valor instanceof Collection<?> valores) {
+            String nivel = null;
+            for (Object item : valores) {
+                String atual = interpretar(item);
+                if (atual == null || (nivel != null && !nivel.equals(atual))) {
+                    return null;
+                }
+                nivel = atual;
+            }
+            return nivel;
+        }
+        if (valor instanceof String || valor instanceof Number) {
+            String texto = valor.toString().trim();
+            String nivel = LevelCodec.decodificar(codigo(texto));
+            if (nivel != null) {
+                return nivel;
+            }
+            for (String nome : new String[]{GovBrLevelConstants.BRONZE, GovBrLevelConstants.PRATA,
+                    GovBrLevelConstants.OURO}) {
+                if (nome.equalsIgnoreCase(texto)) {
+                    return nome;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static byte codigo(String texto) {
+        try {
+            return Byte.parseByte(texto);
+        } catch (NumberFormatException e) {
+            return LevelCodec.DESCONHECIDO;
+        }
+    }
+
+    public Map<String, Object> estatisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("jwksUri", jwksUri.toString());
+        stats.put("keys", chaves.getKids());
+        stats.put("jwksReloads", recargas.sum());
+        stats.put("derived", derivados.sum());
+        stats.put("missingClaim", semClaim.sum());
+        stats.put("rejected", rejeitados.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,17 @@
+package br.com.spi.govbr.service;
+
+/**
+ * Fonte do access token Gov.br de um usuário
+ */
+public interface GovBrTokenSource {
+
+    /**
+     * Retorna o access token armazenado ou null se ausente
+     */
+    String obterAccessToken();
+
+    /**
+     * Renova o token rejeitado pela API, retornando o novo access token ou null se não for possível
+     */
+    String renovarAccessToken(String tokenRejeitado);
+}
@@ -0,0 +1,86 @@
+package br.com.spi.govbr.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma logarítmico de latências (4 sub-buckets por potência de 2, até ~65s).
+ * Mantém a janela atual e a anterior, de modo que amostras antigas saem do cálculo
+ * após duas janelas. Registro e consulta não alocam nem usam locks.
+ */
+public class LatencySketch {
+
+    private static final int BUCKETS = 64;
+
+    private final long janelaMillis;
+    private final int minimoAmostras;
+
+    private volatile AtomicLongArray atual = new AtomicLongArray(BUCKETS);
+    private volatile AtomicLongArray anterior = new AtomicLongArray(BUCKETS);
+    private final AtomicLong rotacionadoEm = new AtomicLong(System.currentTimeMillis());
+
+    public LatencySketch(long janelaMillis, int minimoAmostras) {
+        this.janelaMillis = janelaMillis;
+        this.minimoAmostras = minimoAmostras;
+    }
+
+    public void registrar(long latenciaMillis) {
+        rotacionarSeNecessario();
+        atual.incrementAndGet(bucket(latenciaMillis));
+    }
+
+    /**
+     * Limite superior (ms) do bucket que contém o percentil, ou -1 se não houver amostras suficientes
+     */
+    public long percentil(double quantil) {
+        rotacionarSeNecessario();
+        AtomicLongArray a = atual;
+        AtomicLongArray b = anterior;
+
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += a.get(i) + b.get(i);
+        }
+        if (total < minimoAmostras) {
+            return -1;
+        }
+
+        long alvo = (long) Math.ceil(total * quantil);
+        long acumulado = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            acumulado += a.get(i) + b.get(i);
+            if (acumulado >= alvo) {
+                return limiteSuperior(i);
+            }
+        }
+        return limiteSuperior(BUCKETS - 1);
+    }
+
+    private void rotacionarSeNecessario() {
+        long agora = System.currentTimeMillis();
+        long ultima = rotacionadoEm.get();
+        if (agora - ultima >= janelaMillis && rotacionadoEm.compareAndSet(ultima, agora)) {
+            anterior = atual;
+            atual = new AtomicLongArray(BUCKETS);
+        }
+    }
+
+    static int bucket(long millis) {
+        if (millis < 8) {
+            return (int) Math.max(millis, 0);
+        }
+        int expoente = 63 - Long.numberOfLeadingZeros(millis);
+        int sub = (int) ((millis >> (expoente - 2)) & 3);
+        return Math.min(4 * expoente + sub - 4, BUCKETS - 1);
+    }
+
+    static long limiteSuperior(int bucket) {
+        if (bucket < 8) {
+            return bucket;
+        }
+        int expoente = bucket / 4 + 1;
+        int sub = bucket % 4;
+        long inferior = (4L + sub) << (expoente - 2);
+        return inferior + (1L << (expoente - 2)) - 1;
+    }
+}
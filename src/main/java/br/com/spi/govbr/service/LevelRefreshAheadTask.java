@@ -0,0 +1,133 @@
+package br.com.spi.govbr.service;
+
+import br.com.spi.govbr.cache.LevelCacheKey;
+import br.com.spi.govbr.util.TokenExtractor;
+import org.jboss.logging.Logger;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+import org.keycloak.timer.ScheduledTask;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tarefa periódica que renova, em lotes limitados, os níveis prestes a expirar
+ * de usuários com sessão ativa, usando o token federado armazenado.
+ *
+ * Entradas de usuários sem sessão ou cuja renovação falhou não voltam aos lotes seguintes
+ * enquanto estiverem na janela; caso contrário, ocupariam todo o lote até expirar.
+ */
+public class LevelRefreshAheadTask implements ScheduledTask {
+
+    private static final Logger logger = Logger.getLogger(LevelRefreshAheadTask.class);
+
+    private final LevelValidationService validationService;
+    private final long janelaMillis;
+    private final int tamanhoLote;
+    private final FonteToken fonteToken;
+
+    private final LongAdder execucoes = new LongAdder();
+    private final LongAdder renovados = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+    private final LongAdder semSessao = new LongAdder();
+    private final LongAdder breakerAberto = new LongAdder();
+    private final AtomicLong ultimaDuracaoMillis = new AtomicLong();
+
+    // Entradas fora dos próximos lotes, com o instante em que podem voltar
+    private final Map<LevelCacheKey, Long> adiados = new ConcurrentHashMap<>();
+
+    /**
+     * Fonte do token federado de um usuário; substituída em testes
+     */
+    interface FonteToken {
+        GovBrTokenSource obter(KeycloakSession session, RealmModel realm, UserModel user);
+    }
+
+    public LevelRefreshAheadTask(LevelValidationService validationService, long janelaMillis, int tamanhoLote) {
+        this(validationService, janelaMillis, tamanhoLote, (session, realm, user) ->
+                TokenExtractor.fonteToken(session, realm, user, validationService.getApiClient()));
+    }
+
+    LevelRefreshAheadTask(LevelValidationService validationService, long janelaMillis, int tamanhoLote,
+                          FonteToken fonteToken) {
+        this.validationService = validationService;
+        this.janelaMillis = janelaMillis;
+        this.tamanhoLote = tamanhoLote;
+        this.fonteToken = fonteToken;
+    }
+
+    @Override
+    public void run(KeycloakSession session) {
+        execucoes.increment();
+
+        long inicio = System.currentTimeMillis();
+        adiados.values().removeIf(ate -> ate <= inicio);
+        List<LevelCacheKey> candidatos = validationService.getLevelCache()
+                .proximosDeExpirar(janelaMillis, tamanhoLote, adiados::containsKey);
+
+        int renovadosLote = 0;
+        for (LevelCacheKey chave : candidatos) {
+            // Realms com o circuit breaker aberto ou meio-aberto ficam para a próxima execução
+            if (validationService.getApiClient().estadoBreaker(chave.realmId()) != GovBrCircuitBreaker.Estado.FECHADO) {
+                breakerAberto.increment();
+                continue;
+            }
+            if (renovar(session, chave)) {
+                renovadosLote++;
+            } else {
+                // A entrada expira dentro da janela: até lá fica a cargo do próximo login
+                adiados.put(chave, inicio + janelaMillis);
+            }
+        }
+
+        ultimaDuracaoMillis.set(System.currentTimeMillis() - inicio);
+
+        if (!candidatos.isEmpty()) {
+            logger.debugf("Refresh-ahead Gov.br: %d candidatos, %d renovados em %d ms",
+                    candidatos.size(), renovadosLote, ultimaDuracaoMillis.get());
+        }
+    }
+
+    private boolean renovar(KeycloakSession session, LevelCacheKey chave) {
+        try {
+            RealmModel realm = session.realms().getRealm(chave.realmId());
+            UserModel user = realm != null ? session.users().getUserById(realm, chave.userId()) : null;
+
+            if (user == null || session.sessions().getUserSessionsStream(realm, user).findAny().isEmpty()) {
+                // Sem sessão ativa, deixa a entrada expirar naturalmente
+                semSessao.increment();
+                return false;
+            }
+
+            // A sessão do timer não tem realm no contexto; o vault precisa dele para o segredo do IdP
+            session.getContext().setRealm(realm);
+            validationService.aquecerNivel(chave.realmId(), chave.userId(), fonteToken.obter(session, realm, user));
+            renovados.increment();
+            return true;
+
+        } catch (Exception e) {
+            logger.debugf("Falha no refresh-ahead do usuário %s: %s", chave.userId(), e.getMessage());
+            falhas.increment();
+            return false;
+        }
+    }
+
+    public Map<String, Object> estatisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("runs", execucoes.sum());
+        stats.put("refreshed", renovados.sum());
+        stats.put("failed", falhas.sum());
+        stats.put("skippedNoSession", semSessao.sum());
+        stats.put("skippedBreakerOpen", breakerAberto.sum());
+        stats.put("deferred", adiados.size());
+        stats.put("batchSize", tamanhoLote);
+        stats.put("windowSeconds", janelaMillis / 1000);
+        stats.put("lastRunMillis", ultimaDuracaoMillis.get());
+        return stats;
+    }
+}
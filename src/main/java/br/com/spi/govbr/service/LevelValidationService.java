@@ -1,21 +1,50 @@
 package br.com.spi.govbr.service;
 
-import br.com.spi.govbr.config.GovBrConfig;
+import br.com.spi.govbr.cache.CachedLevel;
+import br.com.spi.govbr.cache.LevelCache;
+import br.com.spi.govbr.config.GovBrSettings;
 import br.com.spi.govbr.dto.ValidationResult;
+import br.com.spi.govbr.exception.GovBrValidationException;
+import br.com.spi.govbr.policy.AcceptedLevels;
 import org.jboss.logging.Logger;
 
-import java.util.Set;
+import java.time.Duration;
 
 public class LevelValidationService {
 
     private static final Logger logger = Logger.getLogger(LevelValidationService.class);
 
     private final GovBrApiClient apiClient;
-    private final Set<String> niveisAceitos;
+    private final LevelCache levelCache;
+    private final AcceptedLevels niveisPadrao;
+    private final GovBrTokenClaimsVerifier claimsVerifier;
 
     public LevelValidationService() {
-        this.apiClient = new GovBrApiClient();
-        this.niveisAceitos = Set.of(GovBrConfig.ACCEPTED_LEVELS);
+        this(GovBrSettings.padrao());
+    }
+
+    public LevelValidationService(GovBrSettings settings) {
+        this(new GovBrApiClient(settings), new LevelCache(
+                Duration.ofSeconds(settings.cacheTtlSeconds()).toMillis(),
+                settings.cacheMaxEntries(), settings.cacheTtlJitterPercent(), settings.cacheEarlyRefreshBeta(),
+                settings::pesoRealm),
+                settings.jwksUrl() == null ? null : new GovBrTokenClaimsVerifier(settings.jwksUrl(),
+                        Duration.ofSeconds(settings.jwksRefreshSeconds()).toMillis(),
+                        Duration.ofSeconds(settings.jwksMinRefreshSeconds()).toMillis(),
+                        settings.levelClaim(), settings.tokenIssuer(),
+                        Duration.ofSeconds(settings.connectTimeoutSeconds())));
+    }
+
+    public LevelValidationService(GovBrApiClient apiClient, LevelCache levelCache) {
+        this(apiClient, levelCache, null);
+    }
+
+    public LevelValidationService(GovBrApiClient apiClient, LevelCache levelCache,
+                                  GovBrTokenClaimsVerifier claimsVerifier) {
+        this.apiClient = apiClient;
+        this.levelCache = levelCache;
+        this.niveisPadrao = apiClient.getSettings().acceptedLevels();
+        this.claimsVerifier = claimsVerifier;
     }
 
     public ValidationResult validarNivelUsuario(String accessToken) {
@@ -29,23 +58,151 @@ public class LevelValidationService {
 
             logger.infof("Nível do usuário: %s", nivelUsuario);
 
-            if (niveisAceitos.contains(nivelUsuario)) {
-                logger.infof("✅ Login aprovado - Nível: %s", nivelUsuario);
-                return ValidationResult.success(nivelUsuario);
-            } else {
-                String mensagem = String.format("Nível %s insuficiente. É necessário nível Ouro.", nivelUsuario);
-                logger.warnf("❌ Login rejeitado - %s", mensagem);
-                return ValidationResult.failure(nivelUsuario, mensagem);
-            }
+            return avaliarNivel(nivelUsuario, niveisPadrao);
+
+        } catch (Exception e) {
+            return tratarErro(e);
+        }
+    }
+
+    /**
+     * Valida o nível consultando primeiro o cache; o token só é extraído em caso de miss
+     */
+    public ValidationResult validarNivelUsuario(String realmId, String userId,
+                                                AcceptedLevels niveisAceitos,
+                                                GovBrTokenSource tokenSource) {
+
+        CachedLevel cached = levelCache.get(realmId, userId);
+        if (cached != null) {
+            logger.debugf("Nível do usuário %s obtido do cache: %s", userId, cached.userLevel());
+            return avaliarNivel(cached.userLevel(), niveisAceitos)
+                    .comOrigem(true, 0)
+                    .verificadoEm(cached.verifiedAt());
+        }
+
+        String accessToken = tokenSource.obterAccessToken();
+        if (accessToken == null || accessToken.trim().isEmpty()) {
+            logger.warn("Token Gov.br não encontrado na sessão");
+            ValidationResult anterior = nivelAnterior(realmId, userId, niveisAceitos, 0);
+            return anterior != null ? anterior : ValidationResult.error("Token Gov.br não encontrado");
+        }
+
+        long inicio = System.nanoTime();
+        try {
+            String nivelUsuario = consultarComRenovacao(realmId, accessToken, tokenSource);
+            long latenciaMillis = (System.nanoTime() - inicio) / 1_000_000;
+
+            logger.infof("Nível do usuário: %s", nivelUsuario);
+            levelCache.put(realmId, userId, nivelUsuario, latenciaMillis);
+
+            return avaliarNivel(nivelUsuario, niveisAceitos)
+                    .comOrigem(false, latenciaMillis)
+                    .verificadoEm(System.currentTimeMillis());
 
         } catch (Exception e) {
-            logger.errorf("Erro na validação: %s", e.getMessage());
+            long latenciaMillis = (System.nanoTime() - inicio) / 1_000_000;
+            ValidationResult anterior = nivelAnterior(realmId, userId, niveisAceitos, latenciaMillis);
+            if (anterior != null) {
+                logger.warnf("Renovação antecipada do nível do usuário %s falhou (%s); usando o nível em cache",
+                        userId, e.getMessage());
+                return anterior;
+            }
+            return tratarErro(e).comOrigem(false, latenciaMillis);
+        }
+    }
+
+    /**
+     * Avalia o nível ainda válido em cache quando a renovação antecipada não pôde ser concluída;
+     * null se não houver entrada dentro do TTL
+     */
+    private ValidationResult nivelAnterior(String realmId, String userId, AcceptedLevels niveisAceitos,
+                                           long latenciaMillis) {
+        CachedLevel cached = levelCache.reaproveitarAposFalha(realmId, userId);
+        if (cached == null) {
+            return null;
+        }
+        return avaliarNivel(cached.userLevel(), niveisAceitos)
+                .comOrigem(true, latenciaMillis)
+                .verificadoEm(cached.verifiedAt());
+    }
+
+    /**
+     * Consulta a API e armazena o nível no cache (pré-carga administrativa)
+     */
+    public String aquecerNivel(String realmId, String userId, GovBrTokenSource tokenSource) throws Exception {
+        String accessToken = tokenSource.obterAccessToken();
+        if (accessToken == null) {
+            throw GovBrValidationException.invalidToken();
+        }
+
+        String nivelUsuario = consultarComRenovacao(realmId, accessToken, tokenSource);
+        levelCache.put(realmId, userId, nivelUsuario);
+        return nivelUsuario;
+    }
+
+    /**
+     * Usa o nível da claim do token quando verificável localmente; senão consulta a API e,
+     * se o token for rejeitado, renova-o uma única vez e repete a consulta
+     */
+    private String consultarComRenovacao(String realmId, String accessToken,
+                                         GovBrTokenSource tokenSource) throws Exception {
+        if (claimsVerifier != null) {
+            String nivelDoToken = claimsVerifier.derivarNivel(accessToken);
+            if (nivelDoToken != null) {
+                return nivelDoToken;
+            }
+        }
+
+        long prazoNanos = System.nanoTime()
+                + Duration.ofMillis(apiClient.getSettings().loginDeadlineMillis()).toNanos();
+        try {
+            return apiClient.consultarNivelUsuario(realmId, accessToken, prazoNanos);
+        } catch (GovBrValidationException e) {
+            if (!"INVALID_TOKEN".equals(e.getErrorCode())) {
+                throw e;
+            }
+
+            String novoToken = tokenSource.renovarAccessToken(accessToken);
+            if (novoToken == null) {
+                throw e;
+            }
+
+            logger.info("Token Gov.br renovado, repetindo consulta de nível");
+            return apiClient.consultarNivelUsuario(realmId, novoToken, prazoNanos);
+        }
+    }
 
-            String mensagem = e.getMessage().contains("Token") ?
-                    "Token Gov.br inválido ou expirado" :
-                    "Serviço Gov.br temporariamente indisponível";
+    public LevelCache getLevelCache() {
+        return levelCache;
+    }
+
+    public GovBrApiClient getApiClient() {
+        return apiClient;
+    }
 
-            return ValidationResult.error(mensagem);
+    public GovBrTokenClaimsVerifier getClaimsVerifier() {
+        return claimsVerifier;
+    }
+
+    private ValidationResult avaliarNivel(String nivelUsuario, AcceptedLevels niveisAceitos) {
+        if (niveisAceitos.aceita(nivelUsuario)) {
+            logger.infof("✅ Login aprovado - Nível: %s", nivelUsuario);
+            return ValidationResult.success(nivelUsuario);
+        } else {
+            String mensagem = String.format("Nível %s insuficiente. É necessário %s.",
+                    nivelUsuario, niveisAceitos.texto());
+            logger.warnf("❌ Login rejeitado - %s", mensagem);
+            return ValidationResult.failure(nivelUsuario, mensagem);
         }
     }
-}
\ No newline at end of file
+
+    private ValidationResult tratarErro(Exception e) {
+        logger.errorf("Erro na validação: %s", e.getMessage());
+
+        String mensagem = e.getMessage() != null && e.getMessage().contains("Token") ?
+                "Token Gov.br inválido ou expirado" :
+                "Serviço Gov.br temporariamente indisponível";
+
+        return ValidationResult.error(mensagem);
+    }
+}
@@ -0,0 +1,76 @@
+package br.com.spi.govbr.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estado isolado de um realm nas consultas à API de nível: circuit breaker próprio e
+ * consultas em andamento, limitadas à fatia do realm no limite de concorrência do nó.
+ * Criada na primeira consulta do realm.
+ */
+public class RealmPartition {
+
+    private final String realmId;
+    private final int peso;
+    private final GovBrCircuitBreaker circuitBreaker;
+
+    private final AtomicInteger emAndamento = new AtomicInteger();
+    private final LongAdder consultas = new LongAdder();
+    private final LongAdder rejeitadasCota = new LongAdder();
+
+    RealmPartition(String realmId, int peso, GovBrCircuitBreaker circuitBreaker) {
+        this.realmId = realmId;
+        this.peso = peso;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Registra uma consulta se o realm ainda não ocupa toda a sua cota; false caso contrário
+     */
+    boolean entrar(int cota) {
+        while (true) {
+            int atual = emAndamento.get();
+            if (atual >= cota) {
+                rejeitadasCota.increment();
+                return false;
+            }
+            if (emAndamento.compareAndSet(atual, atual + 1)) {
+                consultas.increment();
+                return true;
+            }
+        }
+    }
+
+    void sair() {
+        emAndamento.decrementAndGet();
+    }
+
+    int emAndamento() {
+        return emAndamento.get();
+    }
+
+    public String getRealmId() {
+        return realmId;
+    }
+
+    public int getPeso() {
+        return peso;
+    }
+
+    public GovBrCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public Map<String, Object> estatisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("realmId", realmId);
+        stats.put("weight", peso);
+        stats.put("inFlight", emAndamento.get());
+        stats.put("calls", consultas.sum());
+        stats.put("rejectedOverShare", rejeitadasCota.sum());
+        stats.put("circuitBreaker", circuitBreaker.estatisticas());
+        return stats;
+    }
+}
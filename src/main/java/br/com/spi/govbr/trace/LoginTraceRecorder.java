@@ -0,0 +1,180 @@
+package br.com.spi.govbr.trace;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.jboss.logging.Logger;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Captura opcional do padrão de logins para reprodução em laboratório ({@code LoginTraceReplay}, em
+ * {@code src/test/java}).
+ *
+ * Cada validação vira uma linha JSON com o instante relativo ao início da captura (µs), os ids
+ * de realm e usuário anonimizados por HMAC-SHA256 com uma chave aleatória que nunca sai da
+ * memória (o mesmo usuário tem o mesmo hash dentro do arquivo, mas não é identificável), o
+ * outcome, o nível, os níveis aceitos pelo client e a latência da API. A escrita é feita em uma thread dedicada com fila
+ * limitada: se a fila estiver cheia a linha é descartada, nunca atrasando o login.
+ */
+public class LoginTraceRecorder {
+
+    private static final Logger logger = Logger.getLogger(LoginTraceRecorder.class);
+
+    public static final String FORMATO = "govbr-login-trace";
+    public static final int VERSAO = 1;
+
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder().build();
+    private static final DateTimeFormatter FORMATO_ARQUIVO =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final Path arquivo;
+    private final long inicioNanos = System.nanoTime();
+    private final ThreadPoolExecutor executor;
+    private final LongAdder registrados = new LongAdder();
+    private final LongAdder descartados = new LongAdder();
+
+    // Somente a thread escritora
+    private final Mac hmac;
+    private JsonGenerator gerador;
+
+    public LoginTraceRecorder(Path diretorio, int capacidadeFila) {
+        this.arquivo = diretorio.resolve("govbr-login-trace-" + FORMATO_ARQUIVO.format(Instant.now()) + ".jsonl");
+        try {
+            byte[] chave = new byte[32];
+            new SecureRandom().nextBytes(chave);
+            this.hmac = Mac.getInstance("HmacSHA256");
+            this.hmac.init(new SecretKeySpec(chave, "HmacSHA256"));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 indisponível", e);
+        }
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadeFila),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "govbr-login-trace");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> descartados.increment());
+        logger.infof("Captura de trace de logins Gov.br habilitada em %s", arquivo);
+    }
+
+    public void registrar(String realmId, String userId, String outcome, String level, String acceptedLevels,
+                          long upstreamMillis, boolean fromCache) {
+        long instanteMicros = (System.nanoTime() - inicioNanos) / 1_000;
+        executor.execute(() -> escrever(instanteMicros, realmId, userId, outcome, level, acceptedLevels,
+                upstreamMillis, fromCache));
+    }
+
+    private void escrever(long instanteMicros, String realmId, String userId, String outcome, String level,
+                          String acceptedLevels, long upstreamMillis, boolean fromCache) {
+        try {
+            if (gerador == null) {
+                abrir();
+            }
+            gerador.writeStartObject();
+            gerador.writeNumberField("t", instanteMicros);
+            gerador.writeStringField("realm", anonimizar(realmId));
+            gerador.writeStringField("user", anonimizar(userId));
+            gerador.writeStringField("outcome", outcome);
+            gerador.writeStringField("level", level);
+            gerador.writeStringField("accepted", acceptedLevels);
+            gerador.writeNumberField("upstreamMs", upstreamMillis);
+            gerador.writeBooleanField("fromCache", fromCache);
+            gerador.writeEndObject();
+            gerador.writeRaw('\n');
+            registrados.increment();
+            if (executor.getQueue().isEmpty()) {
+                gerador.flush();
+            }
+        } catch (IOException e) {
+            descartados.increment();
+            logger.warnf("Falha ao gravar trace de login Gov.br: %s", e.getMessage());
+        }
+    }
+
+    private void abrir() throws IOException {
+        Files.createDirectories(arquivo.getParent());
+        gerador = JSON_FACTORY.createGenerator(Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8));
+        gerador.setRootValueSeparator(null);
+        gerador.writeStartObject();
+        gerador.writeStringField("format", FORMATO);
+        gerador.writeNumberField("version", VERSAO);
+        gerador.writeNumberField("startedAt", System.currentTimeMillis());
+        gerador.writeEndObject();
+        gerador.writeRaw('\n');
+    }
+
+    private String anonimizar(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        byte[] hash = hmac.doFinal(valor.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(hash, 0, 8);
+    }
+
+    public Path getArquivo() {
+        return arquivo;
+    }
+
+    public Map<String, Object> estatisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("file", arquivo.toString());
+        stats.put("pending", executor.getQueue().size());
+        stats.put("recorded", registrados.sum());
+        stats.put("dropped", descartados.sum());
+        return stats;
+    }
+
+    public void close() {
+        if (!encerrarEscritora()) {
+            // A escritora ainda usa o gerador: fechá-lo daqui corromperia a última linha
+            logger.warnf("Thread do trace de login Gov.br não terminou; %s não foi fechado", arquivo);
+            return;
+        }
+        try {
+            if (gerador != null) {
+                gerador.close();
+            }
+        } catch (IOException e) {
+            logger.warnf("Falha ao fechar trace de login %s: %s", arquivo, e.getMessage());
+        }
+        if (descartados.sum() > 0) {
+            logger.warnf("%d logins não capturados no trace Gov.br (fila cheia ou encerramento)", descartados.sum());
+        }
+    }
+
+    /**
+     * Aguarda a fila ser gravada; se demorar, descarta o restante e interrompe a escritora
+     */
+    private boolean encerrarEscritora() {
+        executor.shutdown();
+        try {
+            if (executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                return true;
+            }
+            descartados.add(executor.shutdownNow().size());
+            return executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            descartados.add(executor.shutdownNow().size());
+            Thread.currentThread().interrupt();
+            return executor.isTerminated();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package br.com.spi.govbr.util;
 
+import br.com.spi.govbr.jfr.GovBrSessionCleanupEvent;
 import org.jboss.logging.Logger;
 import org.keycloak.authentication.AuthenticationFlowContext;
 import org.keycloak.models.UserModel;
@@ -17,6 +18,15 @@ public class GovBrSessionCleaner {
      * Limpa todas as sessões do usuário e dados de autenticação
      */
     public static void limparSessoesUsuario(AuthenticationFlowContext context) {
+        GovBrTracing.rastrearAcao("govbr.limpeza_sessoes", () -> limpar(context));
+    }
+
+    private static void limpar(AuthenticationFlowContext context) {
+        GovBrSessionCleanupEvent evento = new GovBrSessionCleanupEvent();
+        evento.begin();
+        int[] removidas = {0};
+        boolean falhou = false;
+
         try {
             UserModel user = context.getUser();
             if (user != null) {
@@ -28,6 +38,7 @@ public class GovBrSessionCleaner {
                                     session.getId(), user.getUsername());
                             context.getSession().sessions()
                                     .removeUserSession(context.getRealm(), session);
+                            removidas[0]++;
                         });
 
                 logger.infof("Sessões do usuário %s removidas com sucesso", user.getUsername());
@@ -50,6 +61,15 @@ public class GovBrSessionCleaner {
 
         } catch (Exception e) {
             logger.errorf("Erro ao limpar sessões: %s", e.getMessage());
+            falhou = true;
+        } finally {
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.realmId = context.getRealm().getId();
+                evento.sessionsRemoved = removidas[0];
+                evento.failed = falhou;
+                evento.commit();
+            }
         }
     }
 
@@ -0,0 +1,150 @@
+package br.com.spi.govbr.util;
+
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import jakarta.enterprise.inject.Instance;
+import jakarta.enterprise.inject.spi.CDI;
+import org.jboss.logging.Logger;
+
+import java.net.http.HttpRequest;
+
+/**
+ * Spans OpenTelemetry para as etapas da validação Gov.br.
+ *
+ * Os spans só são criados quando já existe um trace ativo na requisição (tracing do
+ * Keycloak habilitado); caso contrário a etapa é executada diretamente, com custo de
+ * uma leitura de ThreadLocal. Sem a API OpenTelemetry no classpath, nada é rastreado.
+ */
+public final class GovBrTracing {
+
+    private static final Logger logger = Logger.getLogger(GovBrTracing.class);
+
+    private static final String INSTRUMENTATION = "br.com.spi.govbr";
+    private static final boolean DISPONIVEL = classeDisponivel("io.opentelemetry.api.trace.Span");
+
+    private GovBrTracing() {}
+
+    @FunctionalInterface
+    public interface Etapa<T, E extends Exception> {
+        T executar() throws E;
+    }
+
+    /**
+     * Executa uma etapa interna dentro de um span
+     */
+    public static <T, E extends Exception> T rastrear(String nome, Etapa<T, E> etapa) throws E {
+        if (!DISPONIVEL || !Otel.traceAtivo()) {
+            return etapa.executar();
+        }
+        return Otel.executar(nome, SpanKind.INTERNAL, etapa);
+    }
+
+    public static void rastrearAcao(String nome, Runnable acao) {
+        rastrear(nome, () -> {
+            acao.run();
+            return null;
+        });
+    }
+
+    /**
+     * Executa uma chamada de saída (span CLIENT)
+     */
+    public static <T, E extends Exception> T rastrearChamadaExterna(String nome, Etapa<T, E> etapa) throws E {
+        if (!DISPONIVEL || !Otel.traceAtivo()) {
+            return etapa.executar();
+        }
+        return Otel.executar(nome, SpanKind.CLIENT, etapa);
+    }
+
+    /**
+     * Propaga o contexto do trace atual (traceparent) na requisição HTTP
+     */
+    public static void injetarContexto(HttpRequest.Builder builder) {
+        if (DISPONIVEL && Otel.traceAtivo()) {
+            Otel.injetar(builder);
+        }
+    }
+
+    public static void atributo(String chave, String valor) {
+        if (DISPONIVEL && valor != null && Otel.traceAtivo()) {
+            Otel.atributo(chave, valor);
+        }
+    }
+
+    private static boolean classeDisponivel(String nome) {
+        try {
+            Class.forName(nome, false, GovBrTracing.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Isola as referências à API OpenTelemetry, carregada apenas quando disponível
+     */
+    private static final class Otel {
+
+        private static volatile OpenTelemetry openTelemetry;
+
+        static boolean traceAtivo() {
+            return Span.current().getSpanContext().isValid();
+        }
+
+        static <T, E extends Exception> T executar(String nome, SpanKind kind, Etapa<T, E> etapa) throws E {
+            Span span = tracer().spanBuilder(nome).setSpanKind(kind).startSpan();
+            try (Scope ignored = span.makeCurrent()) {
+                return etapa.executar();
+            } catch (Exception e) {
+                span.recordException(e);
+                span.setStatus(StatusCode.ERROR);
+                throw e;
+            } finally {
+                span.end();
+            }
+        }
+
+        static void atributo(String chave, String valor) {
+            Span.current().setAttribute(chave, valor);
+        }
+
+        static void injetar(HttpRequest.Builder builder) {
+            openTelemetry().getPropagators().getTextMapPropagator()
+                    .inject(Context.current(), builder, (carrier, chave, valor) -> carrier.header(chave, valor));
+        }
+
+        private static Tracer tracer() {
+            return openTelemetry().getTracer(INSTRUMENTATION);
+        }
+
+        private static OpenTelemetry openTelemetry() {
+            OpenTelemetry atual = openTelemetry;
+            if (atual == null) {
+                atual = resolver();
+                openTelemetry = atual;
+            }
+            return atual;
+        }
+
+        /**
+         * Prefere a instância gerenciada pelo Quarkus; senão usa a global
+         */
+        private static OpenTelemetry resolver() {
+            try {
+                Instance<OpenTelemetry> instance = CDI.current().select(OpenTelemetry.class);
+                if (instance.isResolvable()) {
+                    return instance.get();
+                }
+            } catch (Exception | LinkageError e) {
+                logger.debugf("OpenTelemetry via CDI indisponível: %s", e.getMessage());
+            }
+            return GlobalOpenTelemetry.get();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package br.com.spi.govbr.util;
+
+import br.com.spi.govbr.constants.GovBrLevelConstants;
+
+/**
+ * Conversão entre o nome do nível e o código de 1 byte (NIVEL_*_CODE) usado em formatos compactos
+ */
+public final class LevelCodec {
+
+    public static final byte DESCONHECIDO = 0;
+
+    private static final byte BRONZE = Byte.parseByte(GovBrLevelConstants.NIVEL_BRONZE_CODE);
+    private static final byte PRATA = Byte.parseByte(GovBrLevelConstants.NIVEL_PRATA_CODE);
+    private static final byte OURO = Byte.parseByte(GovBrLevelConstants.NIVEL_OURO_CODE);
+
+    private LevelCodec() {}
+
+    public static byte codificar(String nivel) {
+        if (nivel == null) {
+            return DESCONHECIDO;
+        }
+        return switch (nivel) {
+            case GovBrLevelConstants.BRONZE -> BRONZE;
+            case GovBrLevelConstants.PRATA -> PRATA;
+            case GovBrLevelConstants.OURO -> OURO;
+            default -> DESCONHECIDO;
+        };
+    }
+
+    public static String decodificar(byte codigo) {
+        if (codigo == BRONZE) {
+            return GovBrLevelConstants.BRONZE;
+        }
+        if (codigo == PRATA) {
+            return GovBrLevelConstants.PRATA;
+        }
+        if (codigo == OURO) {
+            return GovBrLevelConstants.OURO;
+        }
+        return null;
+    }
+}
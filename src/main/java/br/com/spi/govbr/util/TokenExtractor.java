@@ -1,32 +1,64 @@
 package br.com.spi.govbr.util;
 
 import br.com.spi.govbr.config.GovBrConfig;
+import br.com.spi.govbr.service.GovBrApiClient;
+import br.com.spi.govbr.service.GovBrTokenSource;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.jboss.logging.Logger;
 import org.keycloak.authentication.AuthenticationFlowContext;
+import org.keycloak.broker.oidc.OIDCIdentityProviderConfig;
 import org.keycloak.models.FederatedIdentityModel;
+import org.keycloak.models.IdentityProviderModel;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserModel;
+import org.keycloak.vault.VaultStringSecret;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class TokenExtractor {
 
     private static final Logger logger = Logger.getLogger(TokenExtractor.class);
 
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final long RETENCAO_RENOVACAO_MILLIS =
+            TimeUnit.SECONDS.toMillis(GovBrConfig.TOKEN_REFRESH_REUSE_SECONDS);
+
+    // Última renovação de cada usuário: requisições que receberam o mesmo token rejeitado aguardam
+    // e reaproveitam o resultado em vez de gastar o refresh token de novo. O novo token só fica
+    // visível no banco quando a transação do login que renovou termina, por isso o resultado é
+    // mantido por alguns segundos após a conclusão.
+    private static final ConcurrentHashMap<String, Renovacao> RENOVACOES = new ConcurrentHashMap<>();
+    private static final AtomicLong ultimaLimpeza = new AtomicLong();
+
+    private record Renovacao(String tokenRejeitado, CompletableFuture<String> resultado, long criadaEm) {
+
+        boolean reaproveitavel(String token, long agora) {
+            return Objects.equals(tokenRejeitado, token) && agora - criadaEm < RETENCAO_RENOVACAO_MILLIS;
+        }
+    }
+
     private TokenExtractor() {}
 
     public static String extrairTokenGovBr(AuthenticationFlowContext context) {
+        return extrairTokenGovBr(context.getSession(), context.getRealm(), context.getUser());
+    }
+
+    public static String extrairTokenGovBr(KeycloakSession session, RealmModel realm, UserModel user) {
         try {
-            UserModel user = context.getUser();
             if (user == null) {
                 return null;
             }
 
-            String tokenJson = context.getSession().users()
-                    .getFederatedIdentitiesStream(context.getRealm(), user)
-                    .filter(fed -> GovBrConfig.PROVIDER_ALIAS.equals(fed.getIdentityProvider()))
-                    .findFirst()
-                    .map(FederatedIdentityModel::getToken)
-                    .orElse(null);
-
-            return extrairAccessToken(tokenJson);
+            return extrairAccessToken(obterTokenJson(session, realm, user));
 
         } catch (Exception e) {
             logger.errorf("Erro ao extrair token Gov.br: %s", e.getMessage());
@@ -34,13 +66,176 @@ public class TokenExtractor {
         }
     }
 
+    /**
+     * Fonte de token que lê o vínculo federado e sabe renová-lo com o refresh token armazenado
+     */
+    public static GovBrTokenSource fonteToken(KeycloakSession session, RealmModel realm, UserModel user,
+                                              GovBrApiClient apiClient) {
+        return new GovBrTokenSource() {
+            @Override
+            public String obterAccessToken() {
+                return GovBrTracing.rastrear("govbr.token_federado",
+                        () -> extrairTokenGovBr(session, realm, user));
+            }
+
+            @Override
+            public String renovarAccessToken(String tokenRejeitado) {
+                return renovarTokenGovBr(session, realm, user, apiClient, tokenRejeitado);
+            }
+        };
+    }
+
+    public static GovBrTokenSource fonteToken(AuthenticationFlowContext context, GovBrApiClient apiClient) {
+        return fonteToken(context.getSession(), context.getRealm(), context.getUser(), apiClient);
+    }
+
+    /**
+     * Renova o access token usando o refresh token do vínculo federado e grava o resultado no vínculo.
+     * Uma única requisição por usuário e token rejeitado chama o endpoint de token; as demais aguardam
+     * o resultado dela sem manter lock durante a chamada HTTP.
+     */
+    public static String renovarTokenGovBr(KeycloakSession session, RealmModel realm, UserModel user,
+                                           GovBrApiClient apiClient, String tokenRejeitado) {
+        long agora = System.currentTimeMillis();
+        limparRenovacoes(agora);
+
+        Renovacao nova = new Renovacao(tokenRejeitado, new CompletableFuture<>(), agora);
+        Renovacao atual = RENOVACOES.compute(user.getId(),
+                (id, anterior) -> anterior != null && anterior.reaproveitavel(tokenRejeitado, agora) ? anterior : nova);
+
+        if (atual != nova) {
+            logger.debugf("Token Gov.br do usuário %s já em renovação por outra requisição", user.getUsername());
+            return aguardar(atual, user, apiClient);
+        }
+
+        String novoToken = null;
+        try {
+            novoToken = executarRenovacao(session, realm, user, apiClient, tokenRejeitado);
+        } finally {
+            nova.resultado().complete(novoToken);
+            if (novoToken == null) {
+                // Falhas não são reaproveitadas: a próxima requisição tenta de novo
+                RENOVACOES.remove(user.getId(), nova);
+            }
+        }
+        return novoToken;
+    }
+
+    private static String aguardar(Renovacao renovacao, UserModel user, GovBrApiClient apiClient) {
+        long prazoSegundos = apiClient.getSettings().connectTimeoutSeconds()
+                + apiClient.getSettings().tokenRequestTimeoutSeconds();
+        try {
+            return renovacao.resultado().get(prazoSegundos, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            logger.warnf("Renovação do token Gov.br do usuário %s não concluída a tempo", user.getUsername());
+            return null;
+        }
+    }
+
+    /**
+     * Descarta, no máximo uma vez por segundo, renovações concluídas fora do período de retenção
+     */
+    private static void limparRenovacoes(long agora) {
+        long anterior = ultimaLimpeza.get();
+        if (agora - anterior < 1000 || !ultimaLimpeza.compareAndSet(anterior, agora)) {
+            return;
+        }
+        RENOVACOES.values().removeIf(renovacao -> renovacao.resultado().isDone()
+                && agora - renovacao.criadaEm() >= RETENCAO_RENOVACAO_MILLIS);
+    }
+
+    private static String executarRenovacao(KeycloakSession session, RealmModel realm, UserModel user,
+                                            GovBrApiClient apiClient, String tokenRejeitado) {
+        try {
+            FederatedIdentityModel federatedIdentity = session.users()
+                    .getFederatedIdentity(realm, user, GovBrConfig.PROVIDER_ALIAS);
+            if (federatedIdentity == null) {
+                return null;
+            }
+
+            // Renovado por outro nó, ou em uma transação já confirmada antes desta sessão ler o vínculo
+            String tokenJson = federatedIdentity.getToken();
+            String accessTokenAtual = extrairAccessToken(tokenJson);
+            if (accessTokenAtual != null && !accessTokenAtual.equals(tokenRejeitado)) {
+                logger.debugf("Token Gov.br do usuário %s já renovado por outra requisição", user.getUsername());
+                return accessTokenAtual;
+            }
+
+            String refreshToken = extrairCampo(tokenJson, "refresh_token");
+            IdentityProviderModel idp = realm.getIdentityProviderByAlias(GovBrConfig.PROVIDER_ALIAS);
+            if (refreshToken == null || idp == null) {
+                return null;
+            }
+
+            OIDCIdentityProviderConfig config = new OIDCIdentityProviderConfig(idp);
+            String clientSecret = resolverSegredo(session, config.getClientSecret());
+
+            String novoTokenJson = apiClient.renovarToken(config.getTokenUrl(), config.getClientId(),
+                    clientSecret, "client_secret_basic".equals(config.getClientAuthMethod()), refreshToken);
+
+            String tokenMesclado = mesclarTokens(tokenJson, novoTokenJson);
+            session.users().updateFederatedIdentity(realm, user,
+                    new FederatedIdentityModel(federatedIdentity, tokenMesclado));
+
+            logger.infof("Token Gov.br renovado para usuário %s", user.getUsername());
+            return extrairAccessToken(tokenMesclado);
+
+        } catch (Exception e) {
+            logger.warnf("Não foi possível renovar o token Gov.br do usuário %s: %s",
+                    user.getUsername(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Resolve referências ${vault.*} do client secret do identity provider
+     */
+    private static String resolverSegredo(KeycloakSession session, String segredo) throws Exception {
+        if (segredo == null) {
+            return null;
+        }
+        try (VaultStringSecret vaultSecret = session.vault().getStringSecret(segredo)) {
+            return vaultSecret.get().orElse(segredo);
+        }
+    }
+
+    private static String obterTokenJson(KeycloakSession session, RealmModel realm, UserModel user) {
+        return session.users()
+                .getFederatedIdentitiesStream(realm, user)
+                .filter(fed -> GovBrConfig.PROVIDER_ALIAS.equals(fed.getIdentityProvider()))
+                .findFirst()
+                .map(FederatedIdentityModel::getToken)
+                .orElse(null);
+    }
+
+    /**
+     * Mantém o refresh token anterior caso o endpoint não devolva um novo
+     */
+    private static String mesclarTokens(String tokenAnteriorJson, String novoTokenJson) throws Exception {
+        ObjectNode novo = (ObjectNode) objectMapper.readTree(novoTokenJson);
+        if (!novo.hasNonNull("refresh_token")) {
+            String refreshAnterior = extrairCampo(tokenAnteriorJson, "refresh_token");
+            if (refreshAnterior != null) {
+                novo.put("refresh_token", refreshAnterior);
+            }
+        }
+        return objectMapper.writeValueAsString(novo);
+    }
+
     private static String extrairAccessToken(String tokenJson) {
+        return extrairCampo(tokenJson, "access_token");
+    }
+
+    private static String extrairCampo(String tokenJson, String campo) {
         if (tokenJson == null || tokenJson.trim().isEmpty()) {
             return null;
         }
 
         try {
-            String searchKey = "\"access_token\":\"";
+            String searchKey = "\"" + campo + "\":\"";
             int startIndex = tokenJson.indexOf(searchKey);
 
             if (startIndex == -1) {
@@ -61,4 +256,4 @@ public class TokenExtractor {
             return null;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,96 @@
+package br.com.spi.govbr.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditRingBufferTest {
+
+    @Test
+    void capacidadeEhArredondadaParaPotenciaDeDois() {
+        assertEquals(8, new AuditRingBuffer<>(5).capacidade());
+        assertEquals(8, new AuditRingBuffer<>(8).capacidade());
+        assertEquals(16, new AuditRingBuffer<>(9).capacidade());
+    }
+
+    @Test
+    void entregaEmOrdemERecusaQuandoCheio() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.oferecer(i));
+        }
+        assertFalse(buffer.oferecer(4));
+        assertEquals(4, buffer.pendentes());
+
+        assertEquals(0, buffer.retirar());
+        assertTrue(buffer.oferecer(4));
+
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, buffer.retirar());
+        }
+        assertNull(buffer.retirar());
+        assertEquals(0, buffer.pendentes());
+    }
+
+    @Test
+    void variosProdutoresEUmConsumidorNaoPerdemNemDuplicamItens() throws Exception {
+        int produtores = 4;
+        int porProdutor = 50_000;
+        // Buffer pequeno: os produtores encontram o buffer cheio e dão várias voltas
+        AuditRingBuffer<Long> buffer = new AuditRingBuffer<>(64);
+
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(produtores);
+        for (int p = 0; p < produtores; p++) {
+            long produtor = p;
+            executor.execute(() -> {
+                try {
+                    largada.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < porProdutor; i++) {
+                    Long item = (produtor << 32) | i;
+                    while (!buffer.oferecer(item)) {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+        largada.countDown();
+        executor.shutdown();
+
+        // Cada produtor publica em ordem: o consumidor deve ver a sequência de cada um sem falhas
+        int[] proximo = new int[produtores];
+        long consumidos = 0;
+        long prazo = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (consumidos < (long) produtores * porProdutor && System.nanoTime() < prazo) {
+            Long item = buffer.retirar();
+            if (item == null) {
+                Thread.yield();
+                continue;
+            }
+            int produtor = (int) (item >>> 32);
+            int sequencia = (int) (long) item;
+            assertEquals(proximo[produtor], sequencia, "item fora de ordem do produtor " + produtor);
+            proximo[produtor]++;
+            consumidos++;
+        }
+
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals((long) produtores * porProdutor, consumidos);
+        assertNull(buffer.retirar());
+        for (int p = 0; p < produtores; p++) {
+            assertEquals(porProdutor, proximo[p]);
+        }
+    }
+}
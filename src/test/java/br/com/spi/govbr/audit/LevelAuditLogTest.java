@@ -0,0 +1,80 @@
+package br.com.spi.govbr.audit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LevelAuditLogTest {
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    void gravaRegistrosAoEncerrar() throws Exception {
+        LevelAuditLog log = new LevelAuditLog(diretorio, 1024, 1024 * 1024, 0, LevelAuditLog.Politica.BLOCK);
+        log.iniciar();
+        for (int i = 0; i < 500; i++) {
+            log.registrar(registro(i));
+        }
+        log.close();
+
+        List<Path> arquivos = LevelAuditReader.arquivos(diretorio);
+        long linhas = 0;
+        for (Path arquivo : arquivos) {
+            linhas += Files.readAllLines(arquivo).size();
+        }
+        assertEquals(500, linhas);
+        assertEquals(500L, log.estatisticas().get("written"));
+    }
+
+    @Test
+    void escritorOciosoGravaRegistroIsoladoSemEsperarOEncerramento() throws Exception {
+        LevelAuditLog log = new LevelAuditLog(diretorio, 1024, 1024 * 1024, 0, LevelAuditLog.Politica.DROP);
+        log.iniciar();
+        try {
+            // Deixa o escritor dormir antes do registro
+            Thread.sleep(50);
+            log.registrar(registro(1));
+
+            long prazo = System.currentTimeMillis() + 500;
+            while ((long) log.estatisticas().get("written") < 1 && System.currentTimeMillis() < prazo) {
+                Thread.sleep(5);
+            }
+            assertEquals(1L, log.estatisticas().get("written"));
+        } finally {
+            log.close();
+        }
+    }
+
+    @Test
+    void rotacaoApagaArquivosAlemDoLimite() throws Exception {
+        // Arquivos de 1 byte: cada lote abre um arquivo novo
+        LevelAuditLog log = new LevelAuditLog(diretorio, 1024, 1, 3, LevelAuditLog.Politica.BLOCK);
+        log.iniciar();
+        for (int i = 0; i < 10; i++) {
+            log.registrar(registro(i));
+            long prazo = System.currentTimeMillis() + 1_000;
+            while ((long) log.estatisticas().get("written") <= i && System.currentTimeMillis() < prazo) {
+                Thread.sleep(1);
+            }
+        }
+        log.close();
+
+        List<Path> arquivos = LevelAuditReader.arquivos(diretorio);
+        assertEquals(3, arquivos.size());
+        assertTrue((long) log.estatisticas().get("filesDeleted") >= 7);
+        // Os mais recentes ficam: o último registro está no último arquivo
+        assertTrue(Files.readString(arquivos.get(2)).contains("\"userId\":\"usuario-9\""));
+    }
+
+    private static LevelAuditRecord registro(int i) {
+        return new LevelAuditRecord(System.currentTimeMillis(), "realm", "portal", "usuario-" + i,
+                "APPROVED", "Ouro", "Ouro", false);
+    }
+}
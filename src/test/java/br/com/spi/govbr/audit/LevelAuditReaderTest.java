@@ -0,0 +1,55 @@
+package br.com.spi.govbr.audit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LevelAuditReaderTest {
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    void arquivosRotacionadosNoMesmoInstanteVemDepoisDoArquivoBase() throws Exception {
+        // Criados fora de ordem; "-" vem antes de "." na ordem lexicográfica
+        criar("20250101T120000000Z-10", 4);
+        criar("20250101T120000000Z-2", 3);
+        criar("20250101T120000000Z", 1);
+        criar("20250101T115959999Z", 0);
+        criar("20250101T120000000Z-1", 2);
+        criar("20250101T120000001Z", 5);
+        Files.writeString(diretorio.resolve("outro.jsonl"), "");
+
+        List<String> nomes = LevelAuditReader.arquivos(diretorio).stream()
+                .map(p -> p.getFileName().toString())
+                .toList();
+        assertEquals(List.of(
+                nome("20250101T115959999Z"), nome("20250101T120000000Z"), nome("20250101T120000000Z-1"),
+                nome("20250101T120000000Z-2"), nome("20250101T120000000Z-10"), nome("20250101T120000001Z")), nomes);
+
+        List<String> decisoes = new ArrayList<>();
+        LevelAuditReader.buscarPorUsuario(diretorio, "usuario", null, decisoes::add);
+        assertEquals(6, decisoes.size());
+        for (int i = 0; i < decisoes.size(); i++) {
+            assertEquals(linha(i), decisoes.get(i));
+        }
+    }
+
+    private void criar(String instante, int ordem) throws Exception {
+        Files.writeString(diretorio.resolve(nome(instante)), linha(ordem) + "\n");
+    }
+
+    private static String nome(String instante) {
+        return LevelAuditLog.PREFIXO_ARQUIVO + instante + LevelAuditLog.SUFIXO_ARQUIVO;
+    }
+
+    private static String linha(int ordem) {
+        return "{\"ts\":" + ordem + ",\"realmId\":\"realm\",\"userId\":\"usuario\",\"outcome\":\"APPROVED\"}";
+    }
+}
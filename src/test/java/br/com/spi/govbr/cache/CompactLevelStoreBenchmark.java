@@ -0,0 +1,106 @@
+package br.com.spi.govbr.cache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ocupação de memória e custo de consulta do {@link CompactLevelStore} contra um
+ * {@code ConcurrentHashMap<String, CachedLevel>} com 1M e 10M usuários.
+ *
+ * A ocupação (heap retido por entrada, medido após GC antes e depois do preenchimento) é impressa
+ * no início de cada fork; o score é o tempo de uma consulta a um usuário presente.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class CompactLevelStoreBenchmark {
+
+    private static final int AMOSTRA_CONSULTAS = 1 << 16;
+
+    @Param({"1000000", "10000000"})
+    public int entradas;
+
+    @Param({"COMPACTO", "MAPA"})
+    public String estrutura;
+
+    private CompactLevelStore compacto;
+    private ConcurrentHashMap<String, CachedLevel> mapa;
+    private byte[][] consultas;
+
+    @Setup
+    public void preencher() {
+        long antes = heapUsadoAposGc();
+
+        long agora = System.currentTimeMillis();
+        CachedLevel nivel = new CachedLevel("Ouro", agora, agora + 300_000);
+        SplittableRandom random = new SplittableRandom(42);
+        consultas = new byte[AMOSTRA_CONSULTAS][];
+
+        if ("COMPACTO".equals(estrutura)) {
+            compacto = new CompactLevelStore();
+        } else {
+            mapa = new ConcurrentHashMap<>();
+        }
+        for (int i = 0; i < entradas; i++) {
+            String userId = new UUID(random.nextLong(), random.nextLong()).toString();
+            if (compacto != null) {
+                compacto.put(userId, nivel, true);
+            } else {
+                // Cada entrada com o seu CachedLevel, como no cache real
+                mapa.put(userId, new CachedLevel(nivel.userLevel(), agora, agora + 300_000 + i));
+            }
+            if (i < AMOSTRA_CONSULTAS) {
+                consultas[i] = userId.getBytes(StandardCharsets.ISO_8859_1);
+            }
+        }
+
+        long retido = heapUsadoAposGc() - antes;
+        System.out.printf("%n%s com %,d entradas: %,d bytes retidos (%.1f por entrada)%s%n",
+                estrutura, entradas, retido, (double) retido / entradas,
+                compacto != null ? String.format(", estimativa do store %,d bytes", compacto.bytesEstimados()) : "");
+    }
+
+    @TearDown
+    public void liberar() {
+        compacto = null;
+        mapa = null;
+    }
+
+    /**
+     * Cada consulta recebe uma String nova, como o id vindo do UserModel: o hash não está em cache
+     */
+    @Benchmark
+    public CachedLevel consultar() {
+        String userId = new String(consultas[ThreadLocalRandom.current().nextInt(AMOSTRA_CONSULTAS)],
+                StandardCharsets.ISO_8859_1);
+        return compacto != null ? compacto.get(userId) : mapa.get(userId);
+    }
+
+    private static long heapUsadoAposGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
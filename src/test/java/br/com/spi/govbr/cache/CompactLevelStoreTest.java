@@ -0,0 +1,260 @@
+package br.com.spi.govbr.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactLevelStoreTest {
+
+    private static final long AGORA = System.currentTimeMillis() / 1000 * 1000;
+
+    @Test
+    void gravaELeUuidsEOutrosIds() {
+        CompactLevelStore store = new CompactLevelStore();
+        String uuid = UUID.randomUUID().toString();
+
+        assertTrue(store.put(uuid, nivel("Prata", 60), true));
+        assertTrue(store.put("ldap:joao", nivel("Ouro", 60), true));
+
+        assertEquals(nivel("Prata", 60), store.get(uuid));
+        assertEquals(nivel("Ouro", 60), store.get("ldap:joao"));
+        assertNull(store.get(UUID.randomUUID().toString()));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void uuidForaDaFormaCanonicaNaoEhConvertido() {
+        CompactLevelStore store = new CompactLevelStore();
+        String maiusculo = UUID.randomUUID().toString().toUpperCase();
+
+        store.put(maiusculo, nivel("Ouro", 60), true);
+
+        assertEquals(nivel("Ouro", 60), store.get(maiusculo));
+        assertNull(store.get(maiusculo.toLowerCase()));
+    }
+
+    @Test
+    void semSubstituirPreservaEntradaExistente() {
+        CompactLevelStore store = new CompactLevelStore();
+        String uuid = UUID.randomUUID().toString();
+        store.put(uuid, nivel("Prata", 60), true);
+
+        assertFalse(store.put(uuid, nivel("Ouro", 120), false));
+        assertEquals(nivel("Prata", 60), store.get(uuid));
+
+        assertTrue(store.put(uuid, nivel("Ouro", 120), true));
+        assertEquals(nivel("Ouro", 120), store.get(uuid));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void nivelSemCodigoEmUuidFicaNoMapaComumEContinuaConsultavel() {
+        CompactLevelStore store = new CompactLevelStore();
+        String uuid = UUID.randomUUID().toString();
+
+        store.put(uuid, nivel("Prata", 60), true);
+        store.put(uuid, nivel("Diamante", 60), true);
+        assertEquals(nivel("Diamante", 60), store.get(uuid));
+        assertEquals(1, store.size());
+
+        // Sem substituir, a entrada no mapa comum conta como presente
+        assertFalse(store.put(uuid, nivel("Ouro", 60), false));
+        assertEquals(nivel("Diamante", 60), store.get(uuid));
+
+        // Um nível com código volta para a tabela e sai do mapa comum
+        store.put(uuid, nivel("Ouro", 60), true);
+        assertEquals(nivel("Ouro", 60), store.get(uuid));
+        assertEquals(1, store.size());
+
+        store.put(uuid, nivel("Diamante", 60), true);
+        assertTrue(store.remove(uuid));
+        assertNull(store.get(uuid));
+        assertEquals(0, store.size());
+        assertFalse(store.remove(uuid));
+    }
+
+    @Test
+    void remocaoMantemAgrupamentoQueDaAVoltaNaTabela() {
+        CompactLevelStore store = new CompactLevelStore();
+        // Todas no mesmo segmento e na última posição da tabela inicial (16): ocupam 15, 0, 1 e 2
+        List<String> ids = idsNaMesmaPosicao(4, 15, 16);
+        for (int i = 0; i < ids.size(); i++) {
+            store.put(ids.get(i), nivel("Ouro", 60 + i * 60L), true);
+        }
+
+        assertTrue(store.remove(ids.get(0)));
+        assertTrue(store.remove(ids.get(2)));
+
+        assertNull(store.get(ids.get(0)));
+        assertEquals(nivel("Ouro", 120), store.get(ids.get(1)));
+        assertNull(store.get(ids.get(2)));
+        assertEquals(nivel("Ouro", 240), store.get(ids.get(3)));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void removerExpiradasPreservaAsDemaisNoMesmoAgrupamento() {
+        CompactLevelStore store = new CompactLevelStore();
+        List<String> ids = idsNaMesmaPosicao(6, 14, 16);
+        for (int i = 0; i < ids.size(); i++) {
+            // Alterna expiradas e válidas ao longo do agrupamento 14, 15, 0, 1, 2, 3
+            store.put(ids.get(i), nivel("Ouro", i % 2 == 0 ? -60 : 60), true);
+        }
+        store.put("ldap:expirado", nivel("Ouro", -60), true);
+
+        assertEquals(4, store.removerExpiradas(AGORA));
+
+        for (int i = 0; i < ids.size(); i++) {
+            if (i % 2 == 0) {
+                assertNull(store.get(ids.get(i)));
+            } else {
+                assertEquals(nivel("Ouro", 60), store.get(ids.get(i)));
+            }
+        }
+        assertNull(store.get("ldap:expirado"));
+        assertEquals(3, store.size());
+        assertEquals(0, store.removerExpiradas(AGORA));
+    }
+
+    @Test
+    void despejoPrefereAsEntradasQueExpiramPrimeiro() {
+        CompactLevelStore store = new CompactLevelStore();
+        // Quatro entradas em um segmento: a amostra de um despejo unitário cobre todas
+        List<String> ids = idsNaMesmaPosicao(4, 3, 16);
+        long[] expiracoes = {300, 60, 240, 120};
+        for (int i = 0; i < ids.size(); i++) {
+            store.put(ids.get(i), nivel("Ouro", expiracoes[i]), true);
+        }
+
+        assertEquals(1, store.despejar(1));
+        assertNull(store.get(ids.get(1)));
+        assertEquals(1, store.despejar(1));
+        assertNull(store.get(ids.get(3)));
+
+        assertEquals(nivel("Ouro", 300), store.get(ids.get(0)));
+        assertEquals(nivel("Ouro", 240), store.get(ids.get(2)));
+    }
+
+    @Test
+    void despejoRemoveAQuantidadePedidaEntreSegmentos() {
+        CompactLevelStore store = new CompactLevelStore();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            ids.add(UUID.randomUUID().toString());
+            store.put(ids.get(i), nivel("Ouro", 60 + i), true);
+        }
+        store.put("ldap:joao", nivel("Ouro", 60), true);
+
+        assertEquals(100, store.despejar(100));
+        assertEquals(901, store.size());
+
+        int presentes = store.get("ldap:joao") != null ? 1 : 0;
+        for (String id : ids) {
+            if (store.get(id) != null) {
+                presentes++;
+            }
+        }
+        assertEquals(901, presentes);
+
+        // Pedido maior que o conteúdo esvazia o store
+        assertEquals(901, store.despejar(5000));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void redimensionamentoConcorrenteNaoPerdeNemTrocaEntradas() throws Exception {
+        CompactLevelStore store = new CompactLevelStore();
+        int escritores = 4;
+        int porEscritor = 20_000;
+        String[][] ids = new String[escritores][porEscritor];
+        for (String[] lote : ids) {
+            for (int i = 0; i < porEscritor; i++) {
+                lote[i] = UUID.randomUUID().toString();
+            }
+        }
+
+        AtomicInteger[] gravadas = new AtomicInteger[escritores];
+        for (int e = 0; e < escritores; e++) {
+            gravadas[e] = new AtomicInteger();
+        }
+        AtomicReference<String> erro = new AtomicReference<>();
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(escritores * 2);
+
+        for (int e = 0; e < escritores; e++) {
+            int escritor = e;
+            String nivelEscritor = escritor % 2 == 0 ? "Ouro" : "Prata";
+            executor.execute(() -> {
+                aguardar(largada);
+                for (int i = 0; i < porEscritor; i++) {
+                    store.put(ids[escritor][i], nivel(nivelEscritor, 60), true);
+                    gravadas[escritor].set(i + 1);
+                }
+            });
+            // Leitores só consultam entradas já gravadas, durante os redimensionamentos
+            executor.execute(() -> {
+                aguardar(largada);
+                while (gravadas[escritor].get() < porEscritor) {
+                    int limite = gravadas[escritor].get();
+                    for (int i = Math.max(0, limite - 500); i < limite; i++) {
+                        CachedLevel lido = store.get(ids[escritor][i]);
+                        if (lido == null || !nivelEscritor.equals(lido.userLevel())) {
+                            erro.compareAndSet(null, "leitura inconsistente: " + ids[escritor][i] + " -> " + lido);
+                        }
+                    }
+                }
+            });
+        }
+        largada.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        assertNull(erro.get());
+        assertEquals((long) escritores * porEscritor, store.size());
+        for (int e = 0; e < escritores; e++) {
+            for (String id : ids[e]) {
+                assertEquals(e % 2 == 0 ? "Ouro" : "Prata", store.get(id).userLevel());
+            }
+        }
+    }
+
+    private static CachedLevel nivel(String nome, long expiraEmSegundos) {
+        return new CachedLevel(nome, AGORA, AGORA + expiraEmSegundos * 1000);
+    }
+
+    /**
+     * Ids do mesmo segmento cuja posição ideal em uma tabela da capacidade informada é a mesma
+     */
+    private static List<String> idsNaMesmaPosicao(int quantidade, int posicao, int capacidade) {
+        List<String> ids = new ArrayList<>();
+        while (ids.size() < quantidade) {
+            UUID uuid = UUID.randomUUID();
+            long hash = CompactLevelStore.hash(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            if ((hash >>> 60) == 0 && ((int) hash & (capacidade - 1)) == posicao) {
+                ids.add(uuid.toString());
+            }
+        }
+        return ids;
+    }
+
+    private static void aguardar(CountDownLatch largada) {
+        try {
+            largada.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
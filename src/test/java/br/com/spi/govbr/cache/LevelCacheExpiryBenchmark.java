@@ -0,0 +1,112 @@
+package br.com.spi.govbr.cache;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulação, em tempo simulado, das consultas à API de nível depois de um pico de logins: todos
+ * os usuários são validados no primeiro minuto e voltam a logar em média a cada 30 s por 30 min.
+ *
+ * Os contadores {@code pico} e {@code media} são as consultas por segundo após o primeiro TTL
+ * (a carga inicial é a mesma em todas as combinações); quanto mais próximos, mais plana a taxa.
+ * O score é só a duração da simulação.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(1)
+public class LevelCacheExpiryBenchmark {
+
+    private static final String REALM = "realm";
+    private static final long INICIO = 1_750_000_000_000L;
+    private static final long TTL_MILLIS = 300_000;
+    private static final long JANELA_PICO_MILLIS = 60_000;
+    private static final double INTERVALO_MEDIO_LOGIN_MILLIS = 30_000;
+    private static final long DURACAO_MILLIS = 1_800_000;
+    private static final long CUSTO_CONSULTA_MILLIS = 300;
+
+    /**
+     * Padrão do provider: jitter de 10% e beta 1.0; 0 desabilita
+     */
+    @Param({"0", "10", "30"})
+    public int jitterPercent;
+
+    @Param({"0", "1.0"})
+    public double beta;
+
+    @Param({"100000"})
+    public int usuarios;
+
+    private String[] userIds;
+
+    // Relógio simulado lido pelo cache
+    private long agora;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Consultas {
+        public long pico;
+        public double media;
+    }
+
+    @Setup
+    public void preparar() {
+        SplittableRandom random = new SplittableRandom(7);
+        userIds = new String[usuarios];
+        for (int i = 0; i < usuarios; i++) {
+            userIds[i] = new UUID(random.nextLong(), random.nextLong()).toString();
+        }
+    }
+
+    @Benchmark
+    public void simular(Consultas consultas) {
+        LevelCache cache = new LevelCache(TTL_MILLIS, usuarios * 2, jitterPercent, beta, realmId -> 1, () -> agora);
+        SplittableRandom random = new SplittableRandom(42);
+
+        // Próximo login de cada usuário: {instante, índice}
+        PriorityQueue<long[]> logins = new PriorityQueue<>(usuarios, (a, b) -> Long.compare(a[0], b[0]));
+        for (int i = 0; i < usuarios; i++) {
+            logins.add(new long[]{INICIO + random.nextLong(JANELA_PICO_MILLIS), i});
+        }
+
+        long[] porSegundo = new long[(int) (DURACAO_MILLIS / 1000)];
+        while (!logins.isEmpty() && logins.peek()[0] < INICIO + DURACAO_MILLIS) {
+            long[] login = logins.poll();
+            agora = login[0];
+            String userId = userIds[(int) login[1]];
+            if (cache.get(REALM, userId) == null) {
+                porSegundo[(int) ((agora - INICIO) / 1000)]++;
+                cache.put(REALM, userId, "Ouro", CUSTO_CONSULTA_MILLIS);
+            }
+            login[0] = agora + Math.max(1, (long) (-INTERVALO_MEDIO_LOGIN_MILLIS * Math.log(1 - random.nextDouble())));
+            logins.add(login);
+        }
+
+        long pico = 0;
+        long total = 0;
+        int inicioMedicao = (int) (TTL_MILLIS / 1000);
+        for (int s = inicioMedicao; s < porSegundo.length; s++) {
+            pico = Math.max(pico, porSegundo[s]);
+            total += porSegundo[s];
+        }
+        consultas.pico = pico;
+        consultas.media = (double) total / (porSegundo.length - inicioMedicao);
+    }
+}
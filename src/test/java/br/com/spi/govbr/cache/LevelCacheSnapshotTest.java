@@ -0,0 +1,64 @@
+package br.com.spi.govbr.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class LevelCacheSnapshotTest {
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    void gravaECarregaEntradasEmMaisDeUmBuffer() {
+        LevelCache origem = new LevelCache(300_000, 100_000);
+        // Uns 6 MB: força várias descargas do buffer de 64 KB
+        for (int i = 0; i < 60_000; i++) {
+            origem.put("realm-" + (i % 3), UUID.randomUUID().toString(), i % 2 == 0 ? "Ouro" : "Prata");
+        }
+        LevelCacheSnapshot snapshot = new LevelCacheSnapshot(diretorio.resolve("cache.snapshot"));
+
+        assertEquals(60_000, snapshot.gravar(origem));
+
+        LevelCache destino = new LevelCache(300_000, 100_000);
+        assertEquals(60_000, snapshot.carregar(destino));
+        origem.paraCadaEntrada((chave, cached) ->
+                assertEquals(cached, destino.get(chave.realmId(), chave.userId())));
+    }
+
+    @Test
+    void gravacoesSucessivasSubstituemOArquivo() {
+        LevelCache cache = new LevelCache(300_000, 1000);
+        LevelCacheSnapshot snapshot = new LevelCacheSnapshot(diretorio.resolve("cache.snapshot"));
+        cache.put("realm", "usuario-1", "Ouro");
+        snapshot.gravar(cache);
+
+        cache.put("realm", "usuario-2", "Ouro");
+        assertEquals(2, snapshot.gravar(cache));
+        assertFalse(Files.exists(diretorio.resolve("cache.snapshot.tmp")));
+
+        assertEquals(2, snapshot.carregar(new LevelCache(300_000, 1000)));
+    }
+
+    @Test
+    void arquivoCorrompidoEhDescartado() throws Exception {
+        Path arquivo = diretorio.resolve("cache.snapshot");
+        LevelCache cache = new LevelCache(300_000, 1000);
+        cache.put("realm", "usuario", "Ouro");
+        LevelCacheSnapshot snapshot = new LevelCacheSnapshot(arquivo);
+        snapshot.gravar(cache);
+
+        byte[] conteudo = Files.readAllBytes(arquivo);
+        conteudo[conteudo.length / 2] ^= 0x5A;
+        Files.write(arquivo, conteudo);
+
+        assertEquals(0, snapshot.carregar(new LevelCache(300_000, 1000)));
+        assertFalse(Files.exists(arquivo));
+    }
+}
@@ -0,0 +1,182 @@
+package br.com.spi.govbr.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LevelCacheTest {
+
+    private static final String REALM = "realm";
+
+    // Instante fixo em segundos inteiros: o store guarda os tempos com resolução de segundo
+    private static final long AGORA = 1_750_000_000_000L;
+
+    @Test
+    void proximosDeExpirarIgnoraEntradasJaExpiradas() throws Exception {
+        LevelCache cache = new LevelCache(1, 1000);
+        for (int i = 0; i < 10; i++) {
+            cache.put(REALM, UUID.randomUUID().toString(), "Ouro");
+        }
+        Thread.sleep(5);
+
+        String valida = UUID.randomUUID().toString();
+        long agora = System.currentTimeMillis();
+        assertTrue(cache.restaurar(REALM, valida, new CachedLevel("Ouro", agora, agora + 30_000)));
+
+        assertEquals(List.of(new LevelCacheKey(REALM, valida)), cache.proximosDeExpirar(60_000, 5, chave -> false));
+    }
+
+    @Test
+    void proximosDeExpirarOrdenaPelaExpiracaoELimitaOLote() {
+        LevelCache cache = new LevelCache(300_000, 1000);
+        long agora = System.currentTimeMillis();
+        String[] usuarios = new String[5];
+        for (int i = 0; i < usuarios.length; i++) {
+            usuarios[i] = UUID.randomUUID().toString();
+            // Inseridos do mais distante ao mais próximo da expiração
+            cache.restaurar(REALM, usuarios[i], new CachedLevel("Ouro", agora, agora + 50_000 - i * 10_000L));
+        }
+        String foraDaJanela = UUID.randomUUID().toString();
+        cache.restaurar(REALM, foraDaJanela, new CachedLevel("Ouro", agora, agora + 120_000));
+
+        assertEquals(List.of(new LevelCacheKey(REALM, usuarios[4]), new LevelCacheKey(REALM, usuarios[3]),
+                        new LevelCacheKey(REALM, usuarios[2])),
+                cache.proximosDeExpirar(60_000, 3, chave -> false));
+    }
+
+    @Test
+    void proximosDeExpirarPulaEntradasAdiadas() {
+        LevelCache cache = new LevelCache(300_000, 1000);
+        long agora = System.currentTimeMillis();
+        String adiado = UUID.randomUUID().toString();
+        String proximo = UUID.randomUUID().toString();
+        cache.restaurar(REALM, adiado, new CachedLevel("Ouro", agora, agora + 10_000));
+        cache.restaurar(REALM, proximo, new CachedLevel("Ouro", agora, agora + 20_000));
+
+        LevelCacheKey chaveAdiada = new LevelCacheKey(REALM, adiado);
+        assertEquals(List.of(new LevelCacheKey(REALM, proximo)),
+                cache.proximosDeExpirar(60_000, 1, chaveAdiada::equals));
+    }
+
+    @Test
+    void cacheCheioDespejaUmLoteEmVezDeUmaEntradaPorPut() {
+        LevelCache cache = new LevelCache(300_000, 640);
+        for (int i = 0; i < 640; i++) {
+            cache.put(REALM, UUID.randomUUID().toString(), "Ouro");
+        }
+        assertEquals(640L, cache.tamanho());
+
+        // O primeiro put acima do limite abre espaço para os próximos 9 (lote de 1/64 da capacidade)
+        for (int i = 0; i < 10; i++) {
+            cache.put(REALM, UUID.randomUUID().toString(), "Ouro");
+        }
+        assertEquals(10L, cache.estatisticas().get("evictions"));
+        assertEquals(640L, cache.tamanho());
+    }
+
+    @Test
+    void removerExpiradasLimpaTodosOsRealms() throws Exception {
+        LevelCache cache = new LevelCache(1, 1000);
+        for (int i = 0; i < 10; i++) {
+            cache.put(REALM + (i % 3), UUID.randomUUID().toString(), "Ouro");
+        }
+        long agora = System.currentTimeMillis();
+        cache.restaurar(REALM, UUID.randomUUID().toString(), new CachedLevel("Ouro", agora, agora + 60_000));
+        Thread.sleep(1_100);
+
+        assertEquals(10, cache.removerExpiradas());
+        assertEquals(1L, cache.tamanho());
+        assertEquals(10L, cache.estatisticas().get("expiredRemoved"));
+    }
+
+    @Test
+    void ttlComJitterFicaEntreOMinimoEOTtl() {
+        LevelCache cache = new LevelCache(100_000, 10_000, 20, 0, realmId -> 1, () -> AGORA);
+        for (int i = 0; i < 2_000; i++) {
+            cache.put(REALM, UUID.randomUUID().toString(), "Ouro");
+        }
+
+        long[] extremos = {Long.MAX_VALUE, Long.MIN_VALUE};
+        cache.paraCadaEntrada((chave, cached) -> {
+            long ttl = cached.expiresAt() - cached.verifiedAt();
+            extremos[0] = Math.min(extremos[0], ttl);
+            extremos[1] = Math.max(extremos[1], ttl);
+        });
+
+        assertTrue(extremos[0] >= 80_000, "TTL mínimo " + extremos[0]);
+        assertTrue(extremos[1] <= 100_000, "TTL máximo " + extremos[1]);
+        // Espalhados por toda a faixa, e não concentrados num mesmo instante
+        assertTrue(extremos[0] < 84_000 && extremos[1] > 96_000, extremos[0] + " a " + extremos[1]);
+    }
+
+    @Test
+    void semJitterTodasAsEntradasRecebemOTtlInteiro() {
+        LevelCache cache = new LevelCache(100_000, 1000, 0, 0, realmId -> 1, () -> AGORA);
+        for (int i = 0; i < 100; i++) {
+            cache.put(REALM, UUID.randomUUID().toString(), "Ouro");
+        }
+
+        cache.paraCadaEntrada((chave, cached) -> assertEquals(100_000L, cached.expiresAt() - cached.verifiedAt()));
+    }
+
+    @Test
+    void renovacaoAntecipadaSegueAProbabilidadeDoXFetch() {
+        LevelCache cache = new LevelCache(300_000, 1000, 0, 1.0, realmId -> 1, () -> AGORA);
+        // Primeira consulta à API define o custo médio: 10 s
+        cache.put(REALM, "custo", "Ouro", 10_000);
+
+        // Restante igual a custo × beta: chance de exp(−1) ≈ 0,37
+        cache.restaurar(REALM, "perto", new CachedLevel("Ouro", AGORA, AGORA + 10_000));
+        double perto = fracaoRenovada(cache, "perto", 20_000);
+        assertTrue(perto > 0.33 && perto < 0.41, "fração perto da expiração " + perto);
+
+        // Restante de 10 × custo: chance de exp(−10) ≈ 0,00005
+        cache.restaurar(REALM, "longe", new CachedLevel("Ouro", AGORA, AGORA + 100_000));
+        double longe = fracaoRenovada(cache, "longe", 20_000);
+        assertTrue(longe < 0.001, "fração longe da expiração " + longe);
+    }
+
+    @Test
+    void betaZeroDesabilitaARenovacaoAntecipada() {
+        LevelCache cache = new LevelCache(300_000, 1000, 0, 0, realmId -> 1, () -> AGORA);
+        cache.put(REALM, "custo", "Ouro", 10_000);
+        cache.restaurar(REALM, "perto", new CachedLevel("Ouro", AGORA, AGORA + 1_000));
+
+        assertEquals(0.0, fracaoRenovada(cache, "perto", 1_000));
+    }
+
+    @Test
+    void reaproveitaAEntradaDentroDoTtlAposFalhaNaRenovacao() {
+        AtomicLong relogio = new AtomicLong(AGORA);
+        LevelCache cache = new LevelCache(300_000, 1000, 0, 1.0, realmId -> 1, relogio::get);
+        cache.put(REALM, "custo", "Ouro", 1_000_000);
+        cache.restaurar(REALM, "usuario", new CachedLevel("Ouro", AGORA, AGORA + 10_000));
+
+        // Com custo muito acima do restante, toda consulta antecipa a renovação
+        assertNull(cache.get(REALM, "usuario"));
+        CachedLevel anterior = cache.reaproveitarAposFalha(REALM, "usuario");
+        assertNotNull(anterior);
+        assertEquals("Ouro", anterior.userLevel());
+        assertEquals(1L, cache.estatisticas().get("earlyRefreshFallbacks"));
+
+        relogio.set(AGORA + 10_000);
+        assertNull(cache.reaproveitarAposFalha(REALM, "usuario"));
+        assertNull(cache.reaproveitarAposFalha(REALM, "ausente"));
+        assertEquals(1L, cache.estatisticas().get("earlyRefreshFallbacks"));
+    }
+
+    private static double fracaoRenovada(LevelCache cache, String userId, int consultas) {
+        long antes = (long) cache.estatisticas().get("earlyRefreshes");
+        for (int i = 0; i < consultas; i++) {
+            cache.get(REALM, userId);
+        }
+        return (double) ((long) cache.estatisticas().get("earlyRefreshes") - antes) / consultas;
+    }
+}
@@ -0,0 +1,55 @@
+package br.com.spi.govbr.config;
+
+import org.junit.jupiter.api.Test;
+import org.keycloak.models.RealmModel;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RealmWeightsTest {
+
+    @Test
+    void pesoConfiguradoPeloNomeValeParaOIdDoRealm() {
+        RealmWeights pesos = new RealmWeights(Map.of("portal", 3, "interno", 2));
+        RealmModel portal = realm("0f8c2d4e-uuid-portal", "portal");
+
+        assertEquals(GovBrConfig.REALM_DEFAULT_WEIGHT, pesos.peso(portal.getId()));
+        List<String> semRealm = pesos.resolver(Stream.of(portal, realm("b71e-uuid-outro", "outro")));
+
+        assertEquals(3, pesos.peso(portal.getId()));
+        assertEquals(GovBrConfig.REALM_DEFAULT_WEIGHT, pesos.peso("b71e-uuid-outro"));
+        assertEquals(List.of("interno"), semRealm);
+    }
+
+    @Test
+    void idTambemEhAceitoComoChave() {
+        RealmWeights pesos = new RealmWeights(Map.of("a1b2-uuid", 4));
+
+        assertEquals(4, pesos.peso("a1b2-uuid"));
+        assertEquals(List.of(), pesos.resolver(Stream.of(realm("a1b2-uuid", "portal"))));
+        assertEquals(4, pesos.peso("a1b2-uuid"));
+    }
+
+    @Test
+    void realmCriadoDepoisRecebeOPesoAoSerResolvido() {
+        RealmWeights pesos = new RealmWeights(Map.of("novo", 5));
+        assertEquals(List.of("novo"), pesos.resolver(Stream.empty()));
+
+        pesos.resolver(realm("c3d4-uuid-novo", "novo"));
+
+        assertEquals(5, pesos.peso("c3d4-uuid-novo"));
+    }
+
+    private static RealmModel realm(String id, String nome) {
+        return (RealmModel) Proxy.newProxyInstance(RealmModel.class.getClassLoader(), new Class<?>[]{RealmModel.class},
+                (proxy, metodo, args) -> switch (metodo.getName()) {
+                    case "getId" -> id;
+                    case "getName" -> nome;
+                    default -> throw new UnsupportedOperationException(metodo.getName());
+                });
+    }
+}
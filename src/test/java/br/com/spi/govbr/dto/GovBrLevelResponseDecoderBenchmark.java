@@ -0,0 +1,64 @@
+package br.com.spi.govbr.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo por chamada da decodificação da resposta da API de nível: decodificador sobre o streaming
+ * parser contra o ObjectMapper com o record. Com {@code -prof gc}, mostra também os bytes alocados
+ * por chamada.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GovBrLevelResponseDecoderBenchmark {
+
+    /**
+     * UNICO: um nível, como na resposta típica; HISTORICO: três níveis com campos extras
+     */
+    @Param({"UNICO", "HISTORICO"})
+    public String resposta;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] json;
+
+    @Setup
+    public void preparar() {
+        String corpo = switch (resposta) {
+            case "UNICO" -> "[{\"id\":\"3\",\"dataAtualizacao\":\"2024-05-01T10:00:00\"}]";
+            case "HISTORICO" -> """
+                    [{"id":"3","dataAtualizacao":"2024-05-01T10:00:00","descricao":"Ouro","origem":{"tipo":"banco","codigo":"001"}},
+                     {"id":"2","dataAtualizacao":"2022-03-10T08:30:00","descricao":"Prata","origem":{"tipo":"validacao-facial"}},
+                     {"id":"1","dataAtualizacao":"2020-01-01T12:00:00","descricao":"Bronze","origem":null}]""";
+            default -> throw new IllegalArgumentException(resposta);
+        };
+        json = corpo.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public GovBrLevelResponse streaming() throws Exception {
+        return GovBrLevelResponseDecoder.primeiro(json);
+    }
+
+    @Benchmark
+    public GovBrLevelResponse objectMapper() throws Exception {
+        GovBrLevelResponse[] niveis = objectMapper.readValue(json, GovBrLevelResponse[].class);
+        return niveis.length == 0 ? null : niveis[0];
+    }
+}
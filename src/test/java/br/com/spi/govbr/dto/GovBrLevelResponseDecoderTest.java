@@ -0,0 +1,75 @@
+package br.com.spi.govbr.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GovBrLevelResponseDecoderTest {
+
+    @Test
+    void lePrimeiroElemento() throws IOException {
+        GovBrLevelResponse nivel = decodificar("""
+                [{"id": "3", "dataAtualizacao": "2024-05-01T10:00:00"},
+                 {"id": "1", "dataAtualizacao": "2020-01-01T10:00:00"}]""");
+
+        assertEquals(new GovBrLevelResponse("3", "2024-05-01T10:00:00"), nivel);
+    }
+
+    @Test
+    void arrayVazioRetornaNull() throws IOException {
+        assertNull(decodificar("[]"));
+    }
+
+    @Test
+    void idAusenteOuNuloTornaORespostaInvalida() throws IOException {
+        assertFalse(decodificar("[{\"dataAtualizacao\": \"2024-05-01\"}]").isValid());
+        assertFalse(decodificar("[{\"id\": null}]").isValid());
+        assertFalse(decodificar("[{\"id\": \" \"}]").isValid());
+    }
+
+    @Test
+    void idNumericoViraTexto() throws IOException {
+        assertEquals("2", decodificar("[{\"id\": 2}]").id());
+    }
+
+    @Test
+    void camposExtrasSaoIgnorados() throws IOException {
+        GovBrLevelResponse nivel = decodificar("""
+                [{"descricao": "Ouro", "extra": {"id": "1", "lista": [1, {"id": "2"}]},
+                  "tags": ["a", "b"], "id": "3", "ativo": true}]""");
+
+        assertEquals("3", nivel.id());
+    }
+
+    @Test
+    void idNaoEscalarEhPuladoPorInteiro() throws IOException {
+        // O "id" aninhado não pode ser confundido com o id do elemento
+        GovBrLevelResponse objeto = decodificar("""
+                [{"id": {"id": "3", "nome": "Ouro"}, "dataAtualizacao": "2024-05-01"}]""");
+        assertNull(objeto.id());
+        assertEquals("2024-05-01", objeto.dataAtualizacao());
+
+        GovBrLevelResponse array = decodificar("[{\"id\": [\"3\", {\"id\": \"2\"}], \"dataAtualizacao\": [1]}]");
+        assertNull(array.id());
+        assertNull(array.dataAtualizacao());
+    }
+
+    @Test
+    void jsonInvalidoLancaExcecao() {
+        assertThrows(IOException.class, () -> decodificar("{\"id\": \"3\"}"));
+        assertThrows(IOException.class, () -> decodificar("[\"3\"]"));
+        assertThrows(IOException.class, () -> decodificar("[{\"id\": \"3\""));
+        assertThrows(IOException.class, () -> decodificar("[{id: 3}]"));
+        assertThrows(IOException.class, () -> decodificar(""));
+    }
+
+    private static GovBrLevelResponse decodificar(String json) throws IOException {
+        return GovBrLevelResponseDecoder.primeiro(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
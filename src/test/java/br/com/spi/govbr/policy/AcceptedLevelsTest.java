@@ -0,0 +1,64 @@
+package br.com.spi.govbr.policy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AcceptedLevelsTest {
+
+    @Test
+    void compilaListaSeparadaPorVirgulas() {
+        AcceptedLevels niveis = AcceptedLevels.compilar("Prata,Ouro");
+
+        assertFalse(niveis.aceita("Bronze"));
+        assertTrue(niveis.aceita("Prata"));
+        assertTrue(niveis.aceita("Ouro"));
+        assertFalse(niveis.aceita(null));
+        assertEquals(List.of("Prata", "Ouro"), niveis.nomes());
+        assertEquals("níveis Prata ou Ouro", niveis.texto());
+    }
+
+    @Test
+    void ignoraMaiusculasEEspacos() {
+        AcceptedLevels niveis = AcceptedLevels.compilar(" ouro , PRATA ");
+
+        assertEquals(List.of("Prata", "Ouro"), niveis.nomes());
+        assertEquals(AcceptedLevels.compilar("Prata", "Ouro").mascara(), niveis.mascara());
+    }
+
+    @Test
+    void nivelUnicoTemTextoNoSingular() {
+        assertEquals("nível Ouro", AcceptedLevels.compilar("Ouro").texto());
+    }
+
+    @Test
+    void nomesDesconhecidosSaoIgnoradosEListados() {
+        AcceptedLevels niveis = AcceptedLevels.compilar("Oruo,Prata");
+
+        assertEquals(List.of("Prata"), niveis.nomes());
+        assertEquals(List.of("Oruo"), AcceptedLevels.desconhecidos("Oruo,Prata"));
+        assertEquals(List.of(), AcceptedLevels.desconhecidos("ouro, prata,"));
+    }
+
+    @Test
+    void politicaSemNiveisConhecidosUsaOFallback() {
+        AcceptedLevels fallback = AcceptedLevels.compilar("Ouro");
+
+        assertSame(fallback, LevelPolicyRegistry.compilar("Oruo", fallback, "realm teste"));
+        assertSame(fallback, LevelPolicyRegistry.compilar("  ", fallback, "realm teste"));
+        assertSame(fallback, LevelPolicyRegistry.compilar(null, fallback, "realm teste"));
+    }
+
+    @Test
+    void politicaComNomeDesconhecidoMantemOsConhecidos() {
+        AcceptedLevels niveis = LevelPolicyRegistry.compilar("Prata,Oruo", AcceptedLevels.compilar("Ouro"),
+                "client teste");
+
+        assertEquals(List.of("Prata"), niveis.nomes());
+    }
+}
@@ -0,0 +1,124 @@
+package br.com.spi.govbr.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GovBrCircuitBreakerTest {
+
+    @Test
+    void abreAposFalhasConsecutivas() {
+        GovBrCircuitBreaker breaker = new GovBrCircuitBreaker(3, 60_000);
+
+        breaker.registrarFalha();
+        breaker.registrarFalha();
+        assertEquals(GovBrCircuitBreaker.Estado.FECHADO, breaker.getEstado());
+        assertTrue(breaker.permitirRequisicao());
+
+        breaker.registrarFalha();
+        assertEquals(GovBrCircuitBreaker.Estado.ABERTO, breaker.getEstado());
+        assertFalse(breaker.permitirRequisicao());
+        assertEquals(1L, breaker.estatisticas().get("rejectedCalls"));
+        assertEquals(1L, breaker.estatisticas().get("timesOpened"));
+    }
+
+    @Test
+    void sucessoZeraFalhasConsecutivas() {
+        GovBrCircuitBreaker breaker = new GovBrCircuitBreaker(3, 60_000);
+
+        breaker.registrarFalha();
+        breaker.registrarFalha();
+        breaker.registrarSucesso();
+        breaker.registrarFalha();
+        breaker.registrarFalha();
+
+        assertEquals(GovBrCircuitBreaker.Estado.FECHADO, breaker.getEstado());
+    }
+
+    @Test
+    void permaneceAbertoDuranteOPeriodo() {
+        GovBrCircuitBreaker breaker = new GovBrCircuitBreaker(1, 60_000);
+        breaker.registrarFalha();
+
+        for (int i = 0; i < 10; i++) {
+            assertFalse(breaker.permitirRequisicao());
+        }
+        assertEquals(GovBrCircuitBreaker.Estado.ABERTO, breaker.getEstado());
+    }
+
+    @Test
+    void meioAbertoLiberaUmaUnicaChamadaDeTeste() {
+        GovBrCircuitBreaker breaker = new GovBrCircuitBreaker(1, 0);
+        breaker.registrarFalha();
+
+        assertTrue(breaker.permitirRequisicao());
+        assertEquals(GovBrCircuitBreaker.Estado.MEIO_ABERTO, breaker.getEstado());
+        assertFalse(breaker.permitirRequisicao());
+    }
+
+    @Test
+    void chamadaDeTesteComSucessoFecha() {
+        GovBrCircuitBreaker breaker = new GovBrCircuitBreaker(1, 0);
+        breaker.registrarFalha();
+        assertTrue(breaker.permitirRequisicao());
+
+        breaker.registrarSucesso();
+
+        assertEquals(GovBrCircuitBreaker.Estado.FECHADO, breaker.getEstado());
+        assertTrue(breaker.permitirRequisicao());
+    }
+
+    @Test
+    void chamadaDeTesteComFalhaReabre() {
+        GovBrCircuitBreaker breaker = new GovBrCircuitBreaker(5, 0);
+        for (int i = 0; i < 5; i++) {
+            breaker.registrarFalha();
+        }
+        assertTrue(breaker.permitirRequisicao());
+
+        // Uma única falha no meio-aberto basta para reabrir
+        breaker.registrarFalha();
+
+        assertEquals(GovBrCircuitBreaker.Estado.ABERTO, breaker.getEstado());
+        assertEquals(2L, breaker.estatisticas().get("timesOpened"));
+    }
+
+    @Test
+    void chamadaDeTesteDisputadaLiberaApenasUmaThread() throws Exception {
+        int threads = 16;
+        for (int rodada = 0; rodada < 50; rodada++) {
+            GovBrCircuitBreaker breaker = new GovBrCircuitBreaker(1, 0);
+            breaker.registrarFalha();
+
+            AtomicInteger liberadas = new AtomicInteger();
+            CountDownLatch largada = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            for (int i = 0; i < threads; i++) {
+                executor.execute(() -> {
+                    try {
+                        largada.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    if (breaker.permitirRequisicao()) {
+                        liberadas.incrementAndGet();
+                    }
+                });
+            }
+            largada.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+            assertEquals(1, liberadas.get());
+        }
+    }
+}
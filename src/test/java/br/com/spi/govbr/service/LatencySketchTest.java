@@ -0,0 +1,78 @@
+package br.com.spi.govbr.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencySketchTest {
+
+    @Test
+    void bucketContemALatencia() {
+        for (long millis = 0; millis < 70_000; millis++) {
+            int bucket = LatencySketch.bucket(millis);
+            long superior = LatencySketch.limiteSuperior(bucket);
+            if (bucket < 63) {
+                assertTrue(millis <= superior, "latência " + millis + " acima do bucket " + bucket);
+            }
+            if (bucket > 0) {
+                assertTrue(millis > LatencySketch.limiteSuperior(bucket - 1),
+                        "latência " + millis + " cabia no bucket anterior a " + bucket);
+            }
+        }
+    }
+
+    @Test
+    void erroRelativoDoBucketFicaAbaixoDe25PorCento() {
+        for (long millis = 8; millis < 60_000; millis += 7) {
+            long superior = LatencySketch.limiteSuperior(LatencySketch.bucket(millis));
+            assertTrue(superior - millis <= millis / 4, "bucket largo demais para " + millis);
+        }
+    }
+
+    @Test
+    void latenciasNegativasEExtremasFicamNosBucketsDasPontas() {
+        assertEquals(0, LatencySketch.bucket(-5));
+        assertEquals(63, LatencySketch.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    void semAmostrasSuficientesRetornaMenosUm() {
+        LatencySketch sketch = new LatencySketch(60_000, 10);
+        for (int i = 0; i < 9; i++) {
+            sketch.registrar(100);
+        }
+        assertEquals(-1, sketch.percentil(0.99));
+
+        sketch.registrar(100);
+        assertEquals(LatencySketch.limiteSuperior(LatencySketch.bucket(100)), sketch.percentil(0.99));
+    }
+
+    @Test
+    void percentilSeparaCaudaDaMediana() {
+        LatencySketch sketch = new LatencySketch(60_000, 1);
+        for (int i = 0; i < 980; i++) {
+            sketch.registrar(20);
+        }
+        for (int i = 0; i < 20; i++) {
+            sketch.registrar(2_000);
+        }
+
+        assertEquals(LatencySketch.limiteSuperior(LatencySketch.bucket(20)), sketch.percentil(0.50));
+        assertEquals(LatencySketch.limiteSuperior(LatencySketch.bucket(20)), sketch.percentil(0.98));
+        assertEquals(LatencySketch.limiteSuperior(LatencySketch.bucket(2_000)), sketch.percentil(0.99));
+    }
+
+    @Test
+    void amostrasSaemAposDuasJanelas() throws Exception {
+        LatencySketch sketch = new LatencySketch(50, 1);
+        sketch.registrar(1_000);
+
+        // Uma rotação: a amostra ainda conta pela janela anterior
+        Thread.sleep(60);
+        assertEquals(LatencySketch.limiteSuperior(LatencySketch.bucket(1_000)), sketch.percentil(0.5));
+
+        Thread.sleep(60);
+        assertEquals(-1, sketch.percentil(0.5));
+    }
+}
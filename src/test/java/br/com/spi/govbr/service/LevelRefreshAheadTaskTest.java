@@ -0,0 +1,122 @@
+package br.com.spi.govbr.service;
+
+import br.com.spi.govbr.cache.CachedLevel;
+import br.com.spi.govbr.cache.LevelCache;
+import br.com.spi.govbr.config.GovBrSettings;
+import br.com.spi.govbr.exception.GovBrValidationException;
+import org.junit.jupiter.api.Test;
+import org.keycloak.models.KeycloakContext;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.RealmProvider;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.UserProvider;
+import org.keycloak.models.UserSessionModel;
+import org.keycloak.models.UserSessionProvider;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LevelRefreshAheadTaskTest {
+
+    private static final String REALM_ID = "realm-id";
+    private static final String USER_ID = "user-id";
+
+    @Test
+    void renovaOTokenRejeitadoComORealmNoContextoDaSessao() {
+        LevelCache cache = new LevelCache(300_000, 1000);
+        long agora = System.currentTimeMillis();
+        cache.restaurar(REALM_ID, USER_ID, new CachedLevel("Prata", agora - 280_000, agora + 20_000));
+        LevelValidationService service = new LevelValidationService(new ApiComTokenExpirado(), cache);
+
+        RealmModel realm = fake(RealmModel.class, Map.of("getId", args -> REALM_ID));
+        UserModel user = fake(UserModel.class, Map.of("getId", args -> USER_ID));
+        KeycloakSession session = sessao(realm, user);
+
+        // Como o vault, a renovação só resolve o segredo do IdP com o realm no contexto
+        LevelRefreshAheadTask task = new LevelRefreshAheadTask(service, 60_000, 10, (s, r, u) -> new GovBrTokenSource() {
+            @Override
+            public String obterAccessToken() {
+                return "expirado";
+            }
+
+            @Override
+            public String renovarAccessToken(String tokenRejeitado) {
+                if (s.getContext().getRealm() != r) {
+                    throw new IllegalStateException("Realm ausente no contexto da sessão");
+                }
+                return "renovado";
+            }
+        });
+
+        task.run(session);
+
+        assertEquals(1L, task.estatisticas().get("refreshed"));
+        assertEquals(0L, task.estatisticas().get("failed"));
+        assertEquals("Ouro", cache.get(REALM_ID, USER_ID).userLevel());
+    }
+
+    private static KeycloakSession sessao(RealmModel realm, UserModel user) {
+        RealmModel[] realmContexto = new RealmModel[1];
+        KeycloakContext contexto = fake(KeycloakContext.class, Map.of(
+                "getRealm", args -> realmContexto[0],
+                "setRealm", args -> realmContexto[0] = (RealmModel) args[0]));
+        RealmProvider realms = fake(RealmProvider.class, Map.of(
+                "getRealm", args -> REALM_ID.equals(args[0]) ? realm : null));
+        UserProvider users = fake(UserProvider.class, Map.of(
+                "getUserById", args -> USER_ID.equals(args[1]) ? user : null));
+        UserSessionProvider sessions = fake(UserSessionProvider.class, Map.of(
+                "getUserSessionsStream", args -> Stream.of(fake(UserSessionModel.class, Map.of()))));
+
+        return fake(KeycloakSession.class, Map.of(
+                "getContext", args -> contexto,
+                "realms", args -> realms,
+                "users", args -> users,
+                "sessions", args -> sessions));
+    }
+
+    /**
+     * Implementação mínima de uma interface do Keycloak: métodos não mapeados falham
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T fake(Class<T> tipo, Map<String, Function<Object[], Object>> metodos) {
+        Map<String, Function<Object[], Object>> respostas = new HashMap<>(metodos);
+        return (T) Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo}, (proxy, metodo, args) -> {
+            switch (metodo.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return tipo.getSimpleName();
+                default:
+                    Function<Object[], Object> resposta = respostas.get(metodo.getName());
+                    if (resposta == null) {
+                        throw new UnsupportedOperationException(tipo.getSimpleName() + "." + metodo.getName());
+                    }
+                    return resposta.apply(args);
+            }
+        });
+    }
+
+    private static class ApiComTokenExpirado extends GovBrApiClient {
+
+        ApiComTokenExpirado() {
+            super(GovBrSettings.padrao());
+        }
+
+        @Override
+        public String consultarNivelUsuario(String realmId, String accessToken, long prazoNanos)
+                throws GovBrValidationException {
+            if (!"renovado".equals(accessToken)) {
+                throw GovBrValidationException.invalidToken();
+            }
+            return "Ouro";
+        }
+    }
+}
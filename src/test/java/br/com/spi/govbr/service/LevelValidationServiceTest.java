@@ -0,0 +1,94 @@
+package br.com.spi.govbr.service;
+
+import br.com.spi.govbr.cache.LevelCache;
+import br.com.spi.govbr.config.GovBrSettings;
+import br.com.spi.govbr.dto.ValidationResult;
+import br.com.spi.govbr.policy.AcceptedLevels;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LevelValidationServiceTest {
+
+    private static final String REALM = "realm";
+    private static final AcceptedLevels OURO = AcceptedLevels.compilar("Ouro");
+
+    @Test
+    void falhaNaRenovacaoAntecipadaUsaONivelEmCache() {
+        ApiIndisponivel api = new ApiIndisponivel();
+        LevelValidationService service = new LevelValidationService(api, cacheQueSempreAntecipa());
+
+        ValidationResult resultado = service.validarNivelUsuario(REALM, "usuario", OURO, token("token"));
+
+        assertEquals(1, api.consultas.get());
+        assertTrue(resultado.isValid());
+        assertEquals("Ouro", resultado.userLevel());
+        assertTrue(resultado.fromCache());
+        assertEquals(1L, service.getLevelCache().estatisticas().get("earlyRefreshFallbacks"));
+    }
+
+    @Test
+    void tokenAusenteNaRenovacaoAntecipadaUsaONivelEmCache() {
+        LevelValidationService service = new LevelValidationService(new ApiIndisponivel(), cacheQueSempreAntecipa());
+
+        ValidationResult resultado = service.validarNivelUsuario(REALM, "usuario", OURO, token(null));
+
+        assertTrue(resultado.isValid());
+        assertTrue(resultado.fromCache());
+    }
+
+    @Test
+    void semEntradaEmCacheAFalhaDaApiRecusaOLogin() {
+        LevelValidationService service = new LevelValidationService(new ApiIndisponivel(),
+                new LevelCache(300_000, 1000));
+
+        ValidationResult resultado = service.validarNivelUsuario(REALM, "usuario", OURO, token("token"));
+
+        assertFalse(resultado.isValid());
+        assertFalse(resultado.fromCache());
+        assertEquals("Serviço Gov.br temporariamente indisponível", resultado.errorMessage());
+    }
+
+    /**
+     * Cache com custo de consulta muito acima do TTL: toda consulta antecipa a renovação
+     */
+    private static LevelCache cacheQueSempreAntecipa() {
+        LevelCache cache = new LevelCache(300_000, 1000, 0, 1.0, realmId -> 1);
+        cache.put(REALM, "usuario", "Ouro", 10_000_000);
+        return cache;
+    }
+
+    private static GovBrTokenSource token(String accessToken) {
+        return new GovBrTokenSource() {
+            @Override
+            public String obterAccessToken() {
+                return accessToken;
+            }
+
+            @Override
+            public String renovarAccessToken(String tokenRejeitado) {
+                return null;
+            }
+        };
+    }
+
+    private static class ApiIndisponivel extends GovBrApiClient {
+
+        private final AtomicInteger consultas = new AtomicInteger();
+
+        ApiIndisponivel() {
+            super(GovBrSettings.padrao());
+        }
+
+        @Override
+        public String consultarNivelUsuario(String realmId, String accessToken, long prazoNanos) throws IOException {
+            consultas.incrementAndGet();
+            throw new IOException("Connection refused");
+        }
+    }
+}
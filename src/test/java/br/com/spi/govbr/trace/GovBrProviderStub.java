@@ -0,0 +1,199 @@
+package br.com.spi.govbr.trace;
+
+import br.com.spi.govbr.constants.GovBrLevelConstants;
+import br.com.spi.govbr.util.LevelCodec;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Provedor OIDC simulado no lugar do Gov.br, em 127.0.0.1, para o {@link LoginFlowLoadDriver}.
+ *
+ * {@code /auth} aprova de imediato o usuário do {@code login_hint} e devolve ao broker um code
+ * com o usuário e o nonce; {@code /token} troca o code por um id_token HS256 (o Identity Provider
+ * é configurado sem validação de assinatura) e por um access token no formato da
+ * {@link LevelApiStub}. O nível de cada usuário é fixo: uma fração determinística recebe Prata.
+ */
+final class GovBrProviderStub implements AutoCloseable {
+
+    static final String CLIENT_ID = "govbr-carga";
+    static final String CLIENT_SECRET = "govbr-carga-segredo";
+
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder().build();
+    private static final Base64.Encoder BASE64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder BASE64_DECODER = Base64.getUrlDecoder();
+
+    private final HttpServer servidor;
+    private final ExecutorService executor;
+    private final int percentualInsuficiente;
+    private final long latenciaApiMillis;
+    private final LongAdder autorizacoes = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+
+    GovBrProviderStub(int porta, int percentualInsuficiente, long latenciaApiMillis) throws IOException {
+        this.percentualInsuficiente = percentualInsuficiente;
+        this.latenciaApiMillis = latenciaApiMillis;
+        LevelApiStub.desabilitarNagle();
+        this.servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), porta), 0);
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "govbr-provider-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.servidor.createContext("/auth", this::autorizar);
+        this.servidor.createContext("/token", this::emitirTokens);
+        this.servidor.setExecutor(executor);
+        this.servidor.start();
+    }
+
+    /**
+     * Nível fixo do usuário {@code carga-<n>}: espalha os insuficientes pela faixa de usuários
+     */
+    String nivel(String usuario) {
+        int indice = Integer.parseInt(usuario.substring(usuario.lastIndexOf('-') + 1));
+        return Math.floorMod(indice * 37, 100) < percentualInsuficiente
+                ? GovBrLevelConstants.PRATA
+                : GovBrLevelConstants.OURO;
+    }
+
+    private void autorizar(HttpExchange troca) throws IOException {
+        autorizacoes.increment();
+        try (troca) {
+            Map<String, String> parametros = parametros(troca.getRequestURI().getRawQuery());
+            String usuario = parametros.get("login_hint");
+            String redirect = parametros.get("redirect_uri");
+            if (usuario == null || redirect == null) {
+                troca.sendResponseHeaders(400, -1);
+                return;
+            }
+            String code = BASE64.encodeToString((usuario + "\n" + parametros.getOrDefault("nonce", ""))
+                    .getBytes(StandardCharsets.UTF_8));
+            String state = URLEncoder.encode(parametros.getOrDefault("state", ""), StandardCharsets.UTF_8);
+            troca.getResponseHeaders().set("Location",
+                    redirect + (redirect.contains("?") ? "&" : "?") + "code=" + code + "&state=" + state);
+            troca.sendResponseHeaders(302, -1);
+        }
+    }
+
+    private void emitirTokens(HttpExchange troca) throws IOException {
+        tokens.increment();
+        try (troca) {
+            Map<String, String> formulario = parametros(
+                    new String(troca.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            String code = formulario.get("code");
+            if (code == null) {
+                troca.sendResponseHeaders(400, -1);
+                return;
+            }
+            String[] partes = new String(BASE64_DECODER.decode(code), StandardCharsets.UTF_8).split("\n", -1);
+            String usuario = partes[0];
+            String nonce = partes.length > 1 ? partes[1] : "";
+
+            String accessToken = LevelApiStub.token(200,
+                    String.valueOf(LevelCodec.codificar(nivel(usuario))), latenciaApiMillis);
+
+            ByteArrayOutputStream corpo = new ByteArrayOutputStream(1024);
+            try (JsonGenerator json = JSON_FACTORY.createGenerator(corpo)) {
+                json.writeStartObject();
+                json.writeStringField("access_token", accessToken);
+                json.writeStringField("token_type", "Bearer");
+                json.writeNumberField("expires_in", 300);
+                json.writeStringField("refresh_token", "refresh-" + usuario);
+                json.writeNumberField("refresh_expires_in", 1800);
+                json.writeStringField("id_token", idToken(usuario, nonce));
+                json.writeEndObject();
+            }
+            troca.getResponseHeaders().set("Content-Type", "application/json");
+            troca.sendResponseHeaders(200, corpo.size());
+            try (OutputStream saida = troca.getResponseBody()) {
+                corpo.writeTo(saida);
+            }
+        }
+    }
+
+    private String idToken(String usuario, String nonce) throws IOException {
+        long agora = System.currentTimeMillis() / 1000;
+        ByteArrayOutputStream claims = new ByteArrayOutputStream(512);
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(claims)) {
+            json.writeStartObject();
+            json.writeStringField("iss", emissor());
+            json.writeStringField("sub", usuario);
+            json.writeStringField("aud", CLIENT_ID);
+            json.writeNumberField("iat", agora);
+            json.writeNumberField("exp", agora + 300);
+            json.writeStringField("nonce", nonce);
+            json.writeStringField("preferred_username", usuario);
+            json.writeStringField("email", usuario + "@carga.invalid");
+            json.writeBooleanField("email_verified", true);
+            json.writeStringField("given_name", "Usuário");
+            json.writeStringField("family_name", usuario);
+            json.writeEndObject();
+        }
+        String conteudo = BASE64.encodeToString("{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8))
+                + "." + BASE64.encodeToString(claims.toByteArray());
+        try {
+            Mac hmac = Mac.getInstance("HmacSHA256");
+            hmac.init(new SecretKeySpec(CLIENT_SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return conteudo + "." + BASE64.encodeToString(hmac.doFinal(conteudo.getBytes(StandardCharsets.US_ASCII)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 indisponível", e);
+        }
+    }
+
+    private static Map<String, String> parametros(String consulta) {
+        Map<String, String> parametros = new HashMap<>();
+        if (consulta == null || consulta.isEmpty()) {
+            return parametros;
+        }
+        for (String par : consulta.split("&")) {
+            int separador = par.indexOf('=');
+            if (separador > 0) {
+                parametros.put(URLDecoder.decode(par.substring(0, separador), StandardCharsets.UTF_8),
+                        URLDecoder.decode(par.substring(separador + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parametros;
+    }
+
+    String emissor() {
+        return "http://127.0.0.1:" + servidor.getAddress().getPort();
+    }
+
+    URI url(String caminho) {
+        return URI.create(emissor() + caminho);
+    }
+
+    long autorizacoes() {
+        return autorizacoes.sum();
+    }
+
+    long tokensEmitidos() {
+        return tokens.sum();
+    }
+
+    @Override
+    public void close() {
+        servidor.stop(0);
+        executor.shutdownNow();
+    }
+}
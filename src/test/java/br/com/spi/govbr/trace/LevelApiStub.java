@@ -0,0 +1,110 @@
+package br.com.spi.govbr.trace;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * API de nível simulada, em 127.0.0.1, para o {@link LoginTraceReplay} e o {@link LoginFlowLoadDriver}.
+ *
+ * A resposta é ditada pelo próprio access token, no formato {@code <status>.<código>.<latência ms>}
+ * gerado por {@link #token}: o stub espera a latência registrada no trace e devolve o status e o
+ * código de nível originais, de modo que o pipeline de validação vê a mesma API da captura.
+ */
+final class LevelApiStub implements AutoCloseable {
+
+    private static final String PREFIXO_BEARER = "Bearer ";
+
+    private final HttpServer servidor;
+    private final ExecutorService executor;
+    private final LongAdder chamadas = new LongAdder();
+
+    LevelApiStub() throws IOException {
+        this(0);
+    }
+
+    /**
+     * @param porta porta fixa em 127.0.0.1, ou 0 para uma porta livre
+     */
+    LevelApiStub(int porta) throws IOException {
+        desabilitarNagle();
+        this.servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), porta), 0);
+        // Uma thread por requisição: a latência simulada não pode enfileirar as demais
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "govbr-level-api-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.servidor.createContext("/", this::responder);
+        this.servidor.setExecutor(executor);
+        this.servidor.start();
+    }
+
+    /**
+     * Sem isto o Nagle do servidor, somado ao delayed ACK do cliente, acrescenta ~40 ms a cada
+     * resposta. Lido uma única vez pelo JDK, antes do primeiro {@link HttpServer}.
+     */
+    static void desabilitarNagle() {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    static String token(int status, String codigo, long latenciaMillis) {
+        return status + "." + (codigo == null ? "" : codigo) + "." + latenciaMillis;
+    }
+
+    private void responder(HttpExchange troca) throws IOException {
+        chamadas.increment();
+        try (troca) {
+            String autorizacao = troca.getRequestHeaders().getFirst("Authorization");
+            String[] partes = autorizacao != null && autorizacao.startsWith(PREFIXO_BEARER)
+                    ? autorizacao.substring(PREFIXO_BEARER.length()).split("\\.", -1)
+                    : new String[0];
+            if (partes.length != 3) {
+                troca.sendResponseHeaders(401, -1);
+                return;
+            }
+
+            try {
+                TimeUnit.MILLISECONDS.sleep(Long.parseLong(partes[2]));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            int status = Integer.parseInt(partes[0]);
+            if (status != 200) {
+                troca.sendResponseHeaders(status, -1);
+                return;
+            }
+            byte[] corpo = ("[{\"id\":\"" + partes[1] + "\"}]").getBytes(StandardCharsets.UTF_8);
+            troca.getResponseHeaders().set("Content-Type", "application/json");
+            troca.sendResponseHeaders(200, corpo.length);
+            try (OutputStream saida = troca.getResponseBody()) {
+                saida.write(corpo);
+            }
+        }
+    }
+
+    URI url() {
+        return URI.create("http://127.0.0.1:" + servidor.getAddress().getPort() + "/nivel");
+    }
+
+    long chamadas() {
+        return chamadas.sum();
+    }
+
+    @Override
+    public void close() {
+        servidor.stop(0);
+        executor.shutdownNow();
+    }
+}
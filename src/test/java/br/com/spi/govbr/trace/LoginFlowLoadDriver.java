@@ -0,0 +1,293 @@
+package br.com.spi.govbr.trace;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Carga de logins completos pelo broker contra um Keycloak local, com o {@link GovBrProviderStub}
+ * no lugar do Gov.br e a {@link LevelApiStub} no lugar da API de nível. Preparado e executado
+ * por {@code scripts/load-test.sh}, que sobe o Keycloak em modo dev (H2) com o SPI e o tema.
+ *
+ * Cada login parte de um navegador novo (sem cookies): authorization request com
+ * {@code kc_idp_hint}, ida ao provedor simulado, callback do broker, first broker login (só no
+ * primeiro acesso do usuário) e post broker login, onde roda o GovBrLevelAuthenticator. A
+ * latência é separada por etapa conforme o endpoint do Keycloak; usuários com nível
+ * insuficiente recebem a página {@code govbr-error.ftl}. Se o Keycloak expuser {@code /metrics},
+ * o relatório inclui a alocação do servidor por login.
+ *
+ * Uso: {@code LoginFlowLoadDriver <url-keycloak> <logins> [concorrência]}, com as opções
+ * {@code -Dcarga.<opção>} de {@link #opcao}.
+ */
+public final class LoginFlowLoadDriver {
+
+    static final String REALM = "govbr-carga";
+    static final String CLIENT_ID = "govbr-carga-app";
+    static final String REDIRECT_URI = "http://127.0.0.1/govbr-carga/callback";
+    static final String IDP_ALIAS = "gov-br";
+
+    private static final Pattern ALOCACAO_METRICA =
+            Pattern.compile("(?m)^jvm_gc_memory_allocated_bytes_total(?:\\{[^}]*})?\\s+(\\S+)$");
+    private static final int MAXIMO_REDIRECIONAMENTOS = 20;
+    // Classe CSS exclusiva do govbr-error.ftl
+    private static final String MARCA_PAGINA_ERRO = "govbr-error-container";
+
+    private final URI keycloak;
+    private final GovBrProviderStub provedor;
+    private final HttpClient http;
+
+    private final Map<String, ConcurrentLinkedQueue<Long>> etapas = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> resultados = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Long> totais = new ConcurrentLinkedQueue<>();
+
+    private LoginFlowLoadDriver(URI keycloak, GovBrProviderStub provedor) {
+        this.keycloak = keycloak;
+        this.provedor = provedor;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Uso: LoginFlowLoadDriver <url-keycloak> <logins> [concorrência]");
+            System.exit(2);
+        }
+        URI keycloak = URI.create(args[0].replaceAll("/+$", ""));
+        int logins = Integer.parseInt(args[1]);
+        int concorrencia = args.length == 3 ? Integer.parseInt(args[2]) : 8;
+        int usuarios = opcao("usuarios", Math.max(1, logins / 4));
+        int aquecimento = opcao("aquecimento", Math.min(200, logins));
+
+        try (LevelApiStub api = new LevelApiStub(opcao("porta-api", 8182));
+             GovBrProviderStub provedor = new GovBrProviderStub(opcao("porta-idp", 8181),
+                     opcao("insuficientes-percent", 10), opcao("latencia-api-ms", 50))) {
+            LoginFlowLoadDriver carga = new LoginFlowLoadDriver(keycloak, provedor);
+
+            // Aquecimento: cria parte dos usuários e compila o caminho quente antes da medição
+            carga.executar(aquecimento, concorrencia, usuarios);
+            carga.limpar();
+
+            Double alocadoAntes = carga.bytesAlocadosServidor();
+            long chamadasApiAntes = api.chamadas();
+            long inicio = System.nanoTime();
+            carga.executar(logins, concorrencia, usuarios);
+            double duracao = (System.nanoTime() - inicio) / 1e9;
+            Double alocadoDepois = carga.bytesAlocadosServidor();
+
+            carga.relatar(logins, concorrencia, usuarios, duracao, api.chamadas() - chamadasApiAntes,
+                    alocadoAntes == null || alocadoDepois == null ? null : alocadoDepois - alocadoAntes);
+        }
+    }
+
+    /**
+     * Opção {@code -Dcarga.<nome>}: usuarios, aquecimento, porta-api, porta-idp,
+     * insuficientes-percent e latencia-api-ms
+     */
+    static int opcao(String nome, int padrao) {
+        return Integer.getInteger("carga." + nome, padrao);
+    }
+
+    private void executar(int logins, int concorrencia, int usuarios) throws InterruptedException {
+        AtomicInteger proximo = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concorrencia, runnable -> {
+            Thread thread = new Thread(runnable, "govbr-carga");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < concorrencia; i++) {
+            executor.execute(() -> {
+                int indice;
+                while ((indice = proximo.getAndIncrement()) < logins) {
+                    String resultado;
+                    long inicio = System.nanoTime();
+                    try {
+                        resultado = login("carga-" + (indice % usuarios));
+                    } catch (IOException e) {
+                        resultado = "ERRO_IO";
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    totais.add(System.nanoTime() - inicio);
+                    resultados.computeIfAbsent(resultado, k -> new LongAdder()).increment();
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.DAYS);
+    }
+
+    /**
+     * Um login completo em um navegador novo; retorna o desfecho visto pelo navegador
+     */
+    private String login(String usuario) throws IOException, InterruptedException {
+        Map<String, String> cookies = new LinkedHashMap<>();
+        URI atual = URI.create(keycloak + "/realms/" + REALM + "/protocol/openid-connect/auth"
+                + "?client_id=" + CLIENT_ID
+                + "&redirect_uri=" + URLEncoder.encode(REDIRECT_URI, StandardCharsets.UTF_8)
+                + "&response_type=code&scope=openid&state=" + usuario
+                + "&kc_idp_hint=" + IDP_ALIAS
+                + "&login_hint=" + usuario);
+
+        for (int passo = 0; passo < MAXIMO_REDIRECIONAMENTOS; passo++) {
+            HttpRequest.Builder requisicao = HttpRequest.newBuilder(atual).timeout(Duration.ofSeconds(60)).GET();
+            boolean noKeycloak = atual.getPort() == keycloak.getPort() && atual.getHost().equals(keycloak.getHost());
+            if (noKeycloak && !cookies.isEmpty()) {
+                requisicao.header("Cookie", cabecalhoCookies(cookies));
+            }
+
+            long inicio = System.nanoTime();
+            HttpResponse<byte[]> resposta = http.send(requisicao.build(), HttpResponse.BodyHandlers.ofByteArray());
+            etapas.computeIfAbsent(etapa(atual), k -> new ConcurrentLinkedQueue<>()).add(System.nanoTime() - inicio);
+            if (noKeycloak) {
+                guardarCookies(resposta.headers().allValues("Set-Cookie"), cookies);
+            }
+
+            int status = resposta.statusCode();
+            String destino = resposta.headers().firstValue("Location").orElse(null);
+            if (status / 100 != 3 || destino == null) {
+                boolean paginaGovBr = new String(resposta.body(), StandardCharsets.UTF_8).contains(MARCA_PAGINA_ERRO);
+                return (paginaGovBr ? "ERRO_GOVBR_" : "PAGINA_") + status;
+            }
+            if (destino.startsWith(REDIRECT_URI)) {
+                return destino.contains("code=") ? "APROVADO" : "ERRO_OIDC";
+            }
+            atual = atual.resolve(destino);
+        }
+        return "REDIRECIONAMENTOS_EXCEDIDOS";
+    }
+
+    private String etapa(URI uri) {
+        if (uri.getPort() == provedor.url("/").getPort()) {
+            return "3 provedor (stub)";
+        }
+        String caminho = uri.getPath();
+        if (caminho.endsWith("/protocol/openid-connect/auth")) {
+            return "1 authorization request";
+        }
+        if (caminho.endsWith("/broker/" + IDP_ALIAS + "/login")) {
+            return "2 redirecionamento ao provedor";
+        }
+        if (caminho.endsWith("/broker/" + IDP_ALIAS + "/endpoint")) {
+            return "4 callback do broker";
+        }
+        // Inclui after-first-broker-login
+        if (caminho.contains("first-broker-login")) {
+            return "5 first broker login";
+        }
+        if (caminho.endsWith("/after-post-broker-login")) {
+            return "7 after post broker login";
+        }
+        if (caminho.contains("post-broker-login")) {
+            return "6 post broker login (validator)";
+        }
+        return "8 outros: " + caminho.replaceAll(".*/realms/[^/]+", "");
+    }
+
+    private static String cabecalhoCookies(Map<String, String> cookies) {
+        StringBuilder cabecalho = new StringBuilder();
+        cookies.forEach((nome, valor) -> {
+            if (cabecalho.length() > 0) {
+                cabecalho.append("; ");
+            }
+            cabecalho.append(nome).append('=').append(valor);
+        });
+        return cabecalho.toString();
+    }
+
+    private static void guardarCookies(List<String> setCookies, Map<String, String> cookies) {
+        for (String setCookie : setCookies) {
+            String par = setCookie.split(";", 2)[0];
+            int separador = par.indexOf('=');
+            if (separador <= 0) {
+                continue;
+            }
+            String nome = par.substring(0, separador).trim();
+            String valor = par.substring(separador + 1).trim();
+            String atributos = setCookie.toLowerCase();
+            if (valor.isEmpty() || atributos.contains("max-age=0") || atributos.contains("expires=thu, 01 jan 1970")) {
+                cookies.remove(nome);
+            } else {
+                cookies.put(nome, valor);
+            }
+        }
+    }
+
+    /**
+     * Total alocado pelo servidor, de {@code /metrics} (Keycloak com {@code --metrics-enabled=true})
+     */
+    private Double bytesAlocadosServidor() {
+        try {
+            HttpResponse<String> resposta = http.send(HttpRequest.newBuilder(URI.create(keycloak + "/metrics"))
+                    .timeout(Duration.ofSeconds(10)).GET().build(), HttpResponse.BodyHandlers.ofString());
+            Matcher matcher = ALOCACAO_METRICA.matcher(resposta.body());
+            return resposta.statusCode() == 200 && matcher.find() ? Double.valueOf(matcher.group(1)) : null;
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private void limpar() {
+        etapas.clear();
+        resultados.clear();
+        totais.clear();
+    }
+
+    private void relatar(int logins, int concorrencia, int usuarios, double duracao, long chamadasApi,
+                         Double bytesAlocados) {
+        System.out.printf("Logins:                %d (%d usuários, concorrência %d)%n", logins, usuarios, concorrencia);
+        System.out.printf("Duração:               %.1f s%n", duracao);
+        System.out.printf("Vazão:                 %.1f logins/s%n", logins / duracao);
+        System.out.printf("Chamadas à API:        %d (%.2f por login)%n", chamadasApi, (double) chamadasApi / logins);
+        if (bytesAlocados != null) {
+            System.out.printf("Alocação do servidor:  %.1f KB por login (inclui o aquecimento do GC)%n",
+                    bytesAlocados / logins / 1024);
+        }
+        System.out.println("Resultados:");
+        new TreeMap<>(resultados).forEach((resultado, contagem) ->
+                System.out.printf("  %-28s %8d%n", resultado, contagem.sum()));
+
+        System.out.printf("%-36s %8s %9s %9s %9s %9s%n", "Latência por etapa (ms)", "n", "p50", "p90", "p99", "max");
+        new TreeMap<>(etapas).forEach((etapa, amostras) -> imprimir(etapa, amostras));
+        imprimir("total do login", totais);
+    }
+
+    private static void imprimir(String etapa, ConcurrentLinkedQueue<Long> amostras) {
+        long[] ordenadas = amostras.stream().mapToLong(Long::longValue).sorted().toArray();
+        if (ordenadas.length == 0) {
+            return;
+        }
+        System.out.printf("  %-34s %8d %9.1f %9.1f %9.1f %9.1f%n", etapa, ordenadas.length,
+                percentil(ordenadas, 0.50), percentil(ordenadas, 0.90), percentil(ordenadas, 0.99),
+                ordenadas[ordenadas.length - 1] / 1e6);
+    }
+
+    private static double percentil(long[] ordenadas, double percentil) {
+        int indice = (int) Math.ceil(percentil * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, indice)] / 1e6;
+    }
+}
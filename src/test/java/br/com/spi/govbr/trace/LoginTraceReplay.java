@@ -0,0 +1,296 @@
+package br.com.spi.govbr.trace;
+
+import br.com.spi.govbr.config.GovBrSettings;
+import br.com.spi.govbr.constants.GovBrLevelConstants;
+import br.com.spi.govbr.dto.ValidationResult;
+import br.com.spi.govbr.policy.AcceptedLevels;
+import br.com.spi.govbr.service.GovBrTokenSource;
+import br.com.spi.govbr.service.LevelValidationService;
+import br.com.spi.govbr.util.LevelCodec;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.keycloak.Config;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reproduz um trace capturado pelo {@link LoginTraceRecorder} contra o pipeline de validação
+ * (cache, limite de concorrência, partições por realm, breakers) e uma {@link LevelApiStub} local.
+ *
+ * Uso: {@code java -cp "target/test-classes:target/classes:<dependências de teste>"
+ * br.com.spi.govbr.trace.LoginTraceReplay <trace.jsonl> [velocidade]}, a partir do código-fonte
+ * (não faz parte do JAR do provider; veja o README). Cada login é disparado no instante registrado dividido pela
+ * velocidade (1 = tempo real, 10 = dez vezes mais rápido). As opções do validator são lidas de
+ * {@code -Dgovbr.<opção>}, ex: {@code -Dgovbr.cache-ttl-seconds=60}; a URL da API é sempre a do stub.
+ *
+ * A latência de cada login é medida a partir do instante agendado, e não do início da chamada,
+ * para que um pipeline saturado não esconda a fila que formou.
+ */
+public final class LoginTraceReplay {
+
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder().build();
+
+    private LoginTraceReplay() {}
+
+    record Registro(long instanteMicros, String realm, String usuario, String outcome, String nivel,
+                    String niveisAceitos, long upstreamMillis, boolean fromCache) {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Uso: LoginTraceReplay <trace.jsonl> [velocidade]");
+            System.exit(2);
+        }
+        double velocidade = args.length == 2 ? Double.parseDouble(args[1]) : 1.0;
+        if (!(velocidade > 0)) {
+            System.err.println("A velocidade deve ser maior que zero");
+            System.exit(2);
+        }
+
+        List<Registro> registros = ler(Path.of(args[0]));
+        if (registros.isEmpty()) {
+            System.err.println("Trace sem logins: " + args[0]);
+            System.exit(1);
+        }
+
+        try (LevelApiStub stub = new LevelApiStub()) {
+            System.setProperty("govbr." + GovBrSettings.NIVEL_API_URL, stub.url().toString());
+            GovBrSettings settings = GovBrSettings.carregar(new Config.SystemPropertiesScope("govbr."));
+            LevelValidationService service = new LevelValidationService(settings);
+            try {
+                reproduzir(registros, velocidade, settings, service, stub);
+            } finally {
+                service.getApiClient().close();
+            }
+        }
+    }
+
+    static List<Registro> ler(Path arquivo) throws IOException {
+        List<Registro> registros = new ArrayList<>();
+        try (BufferedReader leitor = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
+            String cabecalho = leitor.readLine();
+            if (cabecalho == null || !cabecalho.contains("\"" + LoginTraceRecorder.FORMATO + "\"")) {
+                throw new IOException("Arquivo não é um trace de login Gov.br: " + arquivo);
+            }
+            String linha;
+            while ((linha = leitor.readLine()) != null) {
+                Registro registro = parse(linha);
+                if (registro != null) {
+                    registros.add(registro);
+                }
+            }
+        }
+        // A thread escritora grava na ordem de chegada à fila, que pode diferir do instante medido
+        registros.sort(Comparator.comparingLong(Registro::instanteMicros));
+        return registros;
+    }
+
+    private static Registro parse(String linha) {
+        long instante = -1;
+        String realm = null;
+        String usuario = null;
+        String outcome = null;
+        String nivel = null;
+        String aceitos = null;
+        long upstream = 0;
+        boolean fromCache = false;
+        try (JsonParser parser = JSON_FACTORY.createParser(linha)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String campo = parser.currentName();
+                JsonToken valor = parser.nextToken();
+                switch (campo) {
+                    case "t" -> instante = parser.getValueAsLong();
+                    case "realm" -> realm = valor == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+                    case "user" -> usuario = valor == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+                    case "outcome" -> outcome = parser.getValueAsString();
+                    case "level" -> nivel = valor == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+                    case "accepted" -> aceitos = valor == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+                    case "upstreamMs" -> upstream = parser.getValueAsLong();
+                    case "fromCache" -> fromCache = parser.getValueAsBoolean();
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            // Linha truncada (queda do nó durante a captura)
+            return null;
+        }
+        return instante < 0 || usuario == null ? null
+                : new Registro(instante, realm, usuario, outcome, nivel, aceitos, upstream, fromCache);
+    }
+
+    private static void reproduzir(List<Registro> registros, double velocidade, GovBrSettings settings,
+                                   LevelValidationService service, LevelApiStub stub) throws InterruptedException {
+        long latenciaMediana = latenciaMediana(registros);
+        String nivelFrequente = nivelMaisFrequente(registros);
+
+        int total = registros.size();
+        long[] latenciasNanos = new long[total];
+        long[] atrasosNanos = new long[total];
+        // Mesma política da captura; logins sem a informação usam accepted-levels
+        Map<String, AcceptedLevels> politicas = new ConcurrentHashMap<>();
+        Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+        LongAdder acertosCache = new LongAdder();
+        CountDownLatch concluidos = new CountDownLatch(total);
+        // Uma thread por login em andamento, como os workers do Keycloak
+        ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "govbr-trace-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            Registro registro = registros.get(i);
+            long agendado = inicio + (long) (registro.instanteMicros() * 1_000 / velocidade);
+            long espera;
+            while ((espera = agendado - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(espera);
+            }
+
+            int indice = i;
+            String token = tokenPara(registro, latenciaMediana, nivelFrequente);
+            AcceptedLevels niveisAceitos = registro.niveisAceitos() == null || registro.niveisAceitos().isEmpty()
+                    ? settings.acceptedLevels()
+                    : politicas.computeIfAbsent(registro.niveisAceitos(), AcceptedLevels::compilar);
+            executor.execute(() -> {
+                atrasosNanos[indice] = System.nanoTime() - agendado;
+                try {
+                    ValidationResult resultado = service.validarNivelUsuario(registro.realm(), registro.usuario(),
+                            niveisAceitos, fonteToken(token));
+                    outcomes.computeIfAbsent(resultado.outcomeCode(), k -> new LongAdder()).increment();
+                    if (resultado.fromCache()) {
+                        acertosCache.increment();
+                    }
+                } catch (RuntimeException e) {
+                    outcomes.computeIfAbsent("EXCEPTION", k -> new LongAdder()).increment();
+                } finally {
+                    latenciasNanos[indice] = System.nanoTime() - agendado;
+                    concluidos.countDown();
+                }
+            });
+        }
+        concluidos.await();
+        long duracaoNanos = System.nanoTime() - inicio;
+        executor.shutdown();
+
+        relatar(registros, velocidade, latenciasNanos, atrasosNanos, duracaoNanos, outcomes, acertosCache.sum(),
+                stub.chamadas());
+    }
+
+    /**
+     * Resposta que a API deu na captura. Acertos de cache não têm latência registrada e podem
+     * virar miss no replay (cache frio): usam a mediana. Logins descartados por sobrecarga não
+     * chegaram à API e são reproduzidos com o nível mais frequente do trace.
+     */
+    private static String tokenPara(Registro registro, long latenciaMediana, String nivelFrequente) {
+        long latencia = registro.fromCache() || registro.upstreamMillis() <= 0
+                ? latenciaMediana
+                : registro.upstreamMillis();
+        String outcome = registro.outcome() == null ? "" : registro.outcome();
+        return switch (outcome) {
+            case GovBrLevelConstants.OUTCOME_INVALID_TOKEN -> LevelApiStub.token(401, null, latencia);
+            case GovBrLevelConstants.OUTCOME_SERVICE_UNAVAILABLE, GovBrLevelConstants.OUTCOME_GENERIC ->
+                    LevelApiStub.token(503, null, latencia);
+            default -> {
+                String nivel = registro.nivel() != null ? registro.nivel() : nivelFrequente;
+                yield LevelApiStub.token(200, String.valueOf(LevelCodec.codificar(nivel)), latencia);
+            }
+        };
+    }
+
+    private static GovBrTokenSource fonteToken(String token) {
+        return new GovBrTokenSource() {
+            @Override
+            public String obterAccessToken() {
+                return token;
+            }
+
+            @Override
+            public String renovarAccessToken(String tokenRejeitado) {
+                return null;
+            }
+        };
+    }
+
+    private static long latenciaMediana(List<Registro> registros) {
+        long[] latencias = registros.stream()
+                .filter(r -> !r.fromCache() && r.upstreamMillis() > 0)
+                .mapToLong(Registro::upstreamMillis)
+                .sorted()
+                .toArray();
+        return latencias.length == 0 ? 0 : latencias[latencias.length / 2];
+    }
+
+    private static String nivelMaisFrequente(List<Registro> registros) {
+        return registros.stream()
+                .map(Registro::nivel)
+                .filter(n -> LevelCodec.codificar(n) != LevelCodec.DESCONHECIDO)
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()))
+                .entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse(GovBrLevelConstants.BRONZE);
+    }
+
+    private static void relatar(List<Registro> registros, double velocidade, long[] latenciasNanos,
+                                long[] atrasosNanos, long duracaoNanos, Map<String, LongAdder> outcomes, long acertosCache,
+                                long chamadasApi) {
+        int total = registros.size();
+        double duracaoTrace = registros.get(total - 1).instanteMicros() / 1e6;
+        double duracao = duracaoNanos / 1e9;
+        long[] ordenadas = latenciasNanos.clone();
+        Arrays.sort(ordenadas);
+        long[] atrasos = atrasosNanos.clone();
+        Arrays.sort(atrasos);
+
+        Map<String, Long> originais = new TreeMap<>(registros.stream()
+                .collect(Collectors.groupingBy(r -> String.valueOf(r.outcome()), Collectors.counting())));
+        long cacheOriginal = registros.stream().filter(Registro::fromCache).count();
+
+        System.out.printf("Logins reproduzidos:   %d (trace de %.1f s, velocidade %.2fx)%n",
+                total, duracaoTrace, velocidade);
+        System.out.printf("Tempo de replay:       %.1f s%n", duracao);
+        System.out.printf("Vazão:                 %.1f logins/s%n", total / duracao);
+        System.out.printf("Latência (ms):         p50 %.1f  p90 %.1f  p99 %.1f  max %.1f%n",
+                percentil(ordenadas, 0.50), percentil(ordenadas, 0.90),
+                percentil(ordenadas, 0.99), ordenadas[total - 1] / 1e6);
+        // Atraso alto indica que a máquina do replay, e não o pipeline, é o gargalo
+        System.out.printf("Atraso do disparo (ms): p99 %.1f  max %.1f%n",
+                percentil(atrasos, 0.99), atrasos[total - 1] / 1e6);
+        System.out.printf("Chamadas à API:        %d (%.2f por login)%n", chamadasApi, (double) chamadasApi / total);
+        System.out.printf("Acertos de cache:      %d (captura: %d)%n", acertosCache, cacheOriginal);
+        System.out.println("Outcomes (replay / captura):");
+        Map<String, Long> reproduzidos = new TreeMap<>();
+        outcomes.forEach((outcome, contagem) -> reproduzidos.put(outcome, contagem.sum()));
+        TreeMap<String, Long> todos = new TreeMap<>(originais);
+        reproduzidos.forEach(todos::putIfAbsent);
+        todos.keySet().forEach(outcome -> System.out.printf("  %-22s %8d / %d%n", outcome,
+                reproduzidos.getOrDefault(outcome, 0L), originais.getOrDefault(outcome, 0L)));
+    }
+
+    private static double percentil(long[] ordenadas, double percentil) {
+        int indice = (int) Math.ceil(percentil * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, indice)] / 1e6;
+    }
+}